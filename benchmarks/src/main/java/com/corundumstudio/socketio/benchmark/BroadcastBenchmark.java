@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.corundumstudio.socketio.BroadcastOperations;
+import com.corundumstudio.socketio.protocol.EngineIOVersion;
+
+/**
+ * Event broadcast to <code>clients</code> websocket clients,
+ * written frames are released after each broadcast
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    private static final String ROOM = "room";
+
+    @Param({"1", "100", "1000"})
+    public int clients;
+
+    @Param({"16", "1024"})
+    public int payloadSize;
+
+    @Param({"V3", "V4"})
+    public EngineIOVersion version;
+
+    private EmbeddedServer server;
+    private BroadcastOperations namespaceOperations;
+    private BroadcastOperations roomOperations;
+    private String payload;
+
+    @Setup
+    public void setup() {
+        server = new EmbeddedServer();
+        for (int i = 0; i < clients; i++) {
+            EmbeddedServer.EmbeddedClient client = server.connect(version);
+            client.getHead().getChildClient(server.getDefaultNamespace()).joinRoom(ROOM);
+        }
+        namespaceOperations = server.getDefaultNamespace().getBroadcastOperations();
+        roomOperations = server.getDefaultNamespace().getRoomOperations(ROOM);
+        payload = Payloads.text(payloadSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public void namespace() {
+        namespaceOperations.sendEvent(Payloads.EVENT_NAME, payload);
+        server.drain();
+    }
+
+    @Benchmark
+    public void room() {
+        roomOperations.sendEvent(Payloads.EVENT_NAME, payload);
+        server.drain();
+    }
+
+}
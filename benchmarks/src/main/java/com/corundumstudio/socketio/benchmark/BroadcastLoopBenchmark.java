@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.corundumstudio.socketio.BroadcastOperations;
+import com.corundumstudio.socketio.namespace.Namespace;
+import com.corundumstudio.socketio.protocol.EngineIOVersion;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketEncoder;
+import com.corundumstudio.socketio.transport.NamespaceClient;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.DefaultEventLoop;
+
+/**
+ * Broadcast from application thread to websocket clients
+ * spread over <code>eventLoops</code> event loops, measured until all loops write it.
+ * <p>
+ * <code>per-loop</code> is regular broadcast submitting one task per event loop,
+ * <code>per-client</code> sends shared packet to each client separately.
+ * <code>tasks / broadcasts</code> counters ratio shows event loop wakeups per broadcast.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastLoopBenchmark {
+
+    @Param({"per-loop", "per-client"})
+    public String submit;
+
+    @Param({"100", "1000"})
+    public int clients;
+
+    @Param({"4"})
+    public int eventLoops;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+
+        public long broadcasts;
+        public long tasks;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            broadcasts = 0;
+            tasks = 0;
+        }
+
+    }
+
+    private static class CountingEventLoop extends DefaultEventLoop {
+
+        private final AtomicLong tasks;
+
+        CountingEventLoop(AtomicLong tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.incrementAndGet();
+            super.execute(task);
+        }
+
+    }
+
+    private final AtomicLong tasks = new AtomicLong();
+    private final List<DefaultEventLoop> loops = new ArrayList<DefaultEventLoop>();
+    private final List<NamespaceClient> namespaceClients = new ArrayList<NamespaceClient>();
+
+    private EmbeddedServer server;
+    private BroadcastOperations operations;
+    private PacketEncoder encoder;
+    private Object[] args;
+
+    @Setup
+    public void setup() {
+        server = new EmbeddedServer();
+        for (int i = 0; i < eventLoops; i++) {
+            loops.add(new CountingEventLoop(tasks));
+        }
+        Namespace namespace = server.getDefaultNamespace();
+        for (int i = 0; i < clients; i++) {
+            EmbeddedServer.EmbeddedClient client = server.connect(EngineIOVersion.V4);
+            client.getChannel().pipeline().addFirst(new EmbeddedServer.DiscardHandler());
+            client.moveTo(loops.get(i % eventLoops));
+            namespaceClients.add(client.getHead().getChildClient(namespace));
+        }
+        operations = namespace.getBroadcastOperations();
+        encoder = new PacketEncoder(server.getConfiguration(), server.getConfiguration().getJsonSupport());
+        args = Payloads.eventArgs(64, 0);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        for (DefaultEventLoop loop : loops) {
+            loop.shutdownGracefully(0, 1, TimeUnit.SECONDS).await();
+        }
+        for (EmbeddedServer.EmbeddedClient client : server.getClients()) {
+            client.moveTo(null);
+        }
+        server.stop();
+    }
+
+    @Benchmark
+    public void broadcast(Counters counters) throws IOException {
+        long start = tasks.get();
+        if ("per-client".equals(submit)) {
+            Packet packet = Payloads.event(EngineIOVersion.V4, args);
+            Packet sharedPacket = encoder.encodeShared(packet, Namespace.DEFAULT_NAME, EngineIOVersion.V4,
+                                                        ByteBufAllocator.DEFAULT);
+            for (NamespaceClient client : namespaceClients) {
+                client.send(sharedPacket.retainedDuplicate(EngineIOVersion.V4));
+            }
+            sharedPacket.release();
+        } else {
+            operations.sendEvent(Payloads.EVENT_NAME, args);
+        }
+        counters.tasks += tasks.get() - start;
+        counters.broadcasts++;
+
+        // wait until every loop has written broadcast
+        for (DefaultEventLoop loop : loops) {
+            loop.submit(() -> { }).syncUninterruptibly();
+        }
+    }
+
+}
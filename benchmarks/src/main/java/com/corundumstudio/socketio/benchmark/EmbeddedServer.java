@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOChannelInitializer;
+import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.namespace.Namespace;
+import com.corundumstudio.socketio.namespace.NamespacesHub;
+import com.corundumstudio.socketio.protocol.EngineIOVersion;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * Server without network transport. Each client gets its own {@link EmbeddedChannel}
+ * with the same pipeline as created by {@link SocketIOChannelInitializer}
+ * and performs regular websocket handshake through it.
+ */
+public class EmbeddedServer {
+
+    private static final InetSocketAddress LOCAL_ADDRESS = new InetSocketAddress("127.0.0.1", 9092);
+    private static final InetSocketAddress REMOTE_ADDRESS = new InetSocketAddress("127.0.0.1", 50000);
+
+    private final Configuration configuration;
+    private final NamespacesHub namespacesHub;
+    private final SocketIOChannelInitializer initializer = new SocketIOChannelInitializer();
+    private final List<EmbeddedClient> clients = new ArrayList<EmbeddedClient>();
+
+    public EmbeddedServer() {
+        this(new Configuration());
+    }
+
+    public EmbeddedServer(Configuration configuration) {
+        if (configuration.getJsonSupport() == null) {
+            configuration.setJsonSupport(new JacksonJsonSupport());
+        }
+        // heartbeats are scheduled on real timer,
+        // so keep them out of measurements
+        int hour = (int) TimeUnit.HOURS.toMillis(1);
+        configuration.setPingInterval(hour);
+        configuration.setPingTimeout(hour);
+        configuration.setFirstDataTimeout(hour);
+        configuration.setAddVersionHeader(false);
+
+        this.configuration = configuration;
+        this.namespacesHub = new NamespacesHub(configuration);
+        namespacesHub.create(Namespace.DEFAULT_NAME);
+        initializer.start(configuration, namespacesHub);
+    }
+
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    public NamespacesHub getNamespacesHub() {
+        return namespacesHub;
+    }
+
+    public Namespace getDefaultNamespace() {
+        return namespacesHub.get(Namespace.DEFAULT_NAME);
+    }
+
+    public List<EmbeddedClient> getClients() {
+        return clients;
+    }
+
+    /**
+     * Connects websocket client to default namespace
+     *
+     * @param version - engine.io version of client
+     * @return client
+     */
+    public EmbeddedClient connect(EngineIOVersion version) {
+        EmbeddedChannel channel = new ClientChannel(initializer);
+
+        FullHttpRequest req = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET,
+                configuration.getContext() + "/?EIO=" + version.getValue() + "&transport=websocket");
+        req.headers().set(HttpHeaderNames.HOST, "localhost")
+                        .set(HttpHeaderNames.UPGRADE, HttpHeaderValues.WEBSOCKET)
+                        .set(HttpHeaderNames.CONNECTION, HttpHeaderValues.UPGRADE)
+                        .set(HttpHeaderNames.SEC_WEBSOCKET_KEY, "dGhlIHNhbXBsZSBub25jZQ==")
+                        .set(HttpHeaderNames.SEC_WEBSOCKET_VERSION, "13");
+        channel.writeInbound(req);
+        channel.runPendingTasks();
+
+        ClientHead head = channel.attr(ClientHead.CLIENT).get();
+        if (head == null || !head.isChannelOpen()) {
+            throw new IllegalStateException("Handshake failed");
+        }
+        // skip handshake response and open packet
+        channel.releaseOutbound();
+
+        EmbeddedClient client = new EmbeddedClient(channel, head);
+        clients.add(client);
+        return client;
+    }
+
+    /**
+     * Releases everything written to clients
+     */
+    public void drain() {
+        for (EmbeddedClient client : clients) {
+            client.getChannel().runPendingTasks();
+            client.getChannel().releaseOutbound();
+        }
+    }
+
+    public void stop() {
+        for (EmbeddedClient client : clients) {
+            client.getChannel().finishAndReleaseAll();
+        }
+        clients.clear();
+        initializer.stop();
+    }
+
+    public static class EmbeddedClient {
+
+        private final EmbeddedChannel channel;
+        private final ClientHead head;
+
+        EmbeddedClient(EmbeddedChannel channel, ClientHead head) {
+            this.channel = channel;
+            this.head = head;
+        }
+
+        public EmbeddedChannel getChannel() {
+            return channel;
+        }
+
+        public ClientHead getHead() {
+            return head;
+        }
+
+        /**
+         * Runs channel handlers on given event loop instead of the caller thread,
+         * so writes from other threads are submitted to it as tasks.
+         * Channel outbound buffer isn't thread-safe after that,
+         * so written messages should be consumed by {@link DiscardHandler}.
+         * <code>null</code> moves channel back to the caller thread.
+         *
+         * @param eventLoop - event loop
+         */
+        public void moveTo(EventLoop eventLoop) {
+            ((ClientChannel) channel).eventLoop = eventLoop;
+        }
+
+    }
+
+    /**
+     * Consumes written messages instead of channel outbound buffer,
+     * which isn't thread-safe once channel is moved to event loop
+     */
+    public static class DiscardHandler extends ChannelOutboundHandlerAdapter {
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            ReferenceCountUtil.release(msg);
+            promise.trySuccess();
+        }
+
+    }
+
+    /**
+     * Handshake requires inet addresses
+     */
+    private static class ClientChannel extends EmbeddedChannel {
+
+        private volatile EventLoop eventLoop;
+
+        ClientChannel(ChannelHandler handler) {
+            super(handler);
+        }
+
+        @Override
+        public EventLoop eventLoop() {
+            EventLoop loop = eventLoop;
+            if (loop != null) {
+                return loop;
+            }
+            return super.eventLoop();
+        }
+
+        @Override
+        protected SocketAddress localAddress0() {
+            return LOCAL_ADDRESS;
+        }
+
+        @Override
+        protected SocketAddress remoteAddress0() {
+            return REMOTE_ADDRESS;
+        }
+
+    }
+
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.corundumstudio.socketio.AckMode;
+import com.corundumstudio.socketio.AckRequest;
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.EventExecutionMode;
+import com.corundumstudio.socketio.namespace.Namespace;
+import com.corundumstudio.socketio.protocol.EngineIOVersion;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketType;
+import com.corundumstudio.socketio.transport.NamespaceClient;
+
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoop;
+
+/**
+ * Latency of a cheap event while another client of the same event loop
+ * is handled by blocking listener. Slow event is sent again once
+ * previous one is finished, so it occupies at most one thread.
+ * Use percentiles of sample time to compare execution modes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventExecutionBenchmark {
+
+    @Param({"IO_THREAD", "POOL", "VIRTUAL_THREADS"})
+    public EventExecutionMode mode;
+
+    @Param({"1"})
+    public int blockingMillis;
+
+    private EmbeddedServer server;
+    private Namespace namespace;
+    private EventLoop ioLoop;
+
+    private NamespaceClient slowClient;
+    private NamespaceClient fastClient;
+    private AckRequest slowAck;
+    private AckRequest fastAck;
+    private final List<Object> args = Collections.emptyList();
+
+    private final AtomicBoolean slowRunning = new AtomicBoolean();
+    private volatile CountDownLatch fastLatch;
+
+    @Setup
+    public void setup() {
+        Configuration configuration = new Configuration();
+        configuration.setEventExecutionMode(mode);
+        configuration.setAckMode(AckMode.MANUAL);
+        server = new EmbeddedServer(configuration);
+        namespace = server.getDefaultNamespace();
+
+        namespace.addEventListener("slow", Object.class, (client, data, ackRequest) -> {
+            Thread.sleep(blockingMillis);
+            slowRunning.set(false);
+        });
+        namespace.addEventListener("fast", Object.class, (client, data, ackRequest) -> {
+            fastLatch.countDown();
+        });
+
+        slowClient = server.connect(EngineIOVersion.V4).getHead().addNamespaceClient(namespace);
+        fastClient = server.connect(EngineIOVersion.V4).getHead().addNamespaceClient(namespace);
+        slowAck = new AckRequest(new Packet(PacketType.MESSAGE, EngineIOVersion.V4), slowClient);
+        fastAck = new AckRequest(new Packet(PacketType.MESSAGE, EngineIOVersion.V4), fastClient);
+
+        ioLoop = new DefaultEventLoop();
+    }
+
+    @TearDown
+    public void tearDown() {
+        ioLoop.shutdownGracefully().syncUninterruptibly();
+        server.stop();
+        server.getNamespacesHub().shutdown();
+    }
+
+    @Benchmark
+    public void fastEvent() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        fastLatch = latch;
+        ioLoop.execute(() -> {
+            if (slowRunning.compareAndSet(false, true)) {
+                namespace.onEvent(slowClient, "slow", args, slowAck);
+            }
+            namespace.onEvent(fastClient, "fast", args, fastAck);
+        });
+        latch.await();
+    }
+
+}
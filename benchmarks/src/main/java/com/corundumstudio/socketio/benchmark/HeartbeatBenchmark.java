@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.protocol.EngineIOVersion;
+import com.corundumstudio.socketio.scheduler.HashedWheelTimeoutScheduler;
+import com.corundumstudio.socketio.scheduler.SchedulerKey;
+
+/**
+ * Per inbound message heartbeat cost across <code>connections</code> clients:
+ * slot write of heartbeat table against ping timeout rescheduling
+ * in timer wheel used before.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeartbeatBenchmark {
+
+    private static final Runnable NOOP = () -> { };
+
+    @Param({"1000", "10000"})
+    public int connections;
+
+    private EmbeddedServer server;
+    private ClientHead[] clients;
+    private UUID[] sessionIds;
+    private HashedWheelTimeoutScheduler timeoutScheduler;
+    private int index;
+
+    @Setup
+    public void setup() {
+        server = new EmbeddedServer();
+        clients = new ClientHead[connections];
+        sessionIds = new UUID[connections];
+        for (int i = 0; i < connections; i++) {
+            clients[i] = server.connect(EngineIOVersion.V4).getHead();
+            sessionIds[i] = clients[i].getSessionId();
+        }
+        timeoutScheduler = new HashedWheelTimeoutScheduler();
+    }
+
+    @TearDown
+    public void tearDown() {
+        timeoutScheduler.shutdown();
+        server.stop();
+    }
+
+    private int next() {
+        int i = index++;
+        if (index == connections) {
+            index = 0;
+        }
+        return i;
+    }
+
+    @Benchmark
+    public void heartbeatTable() {
+        clients[next()].onActivity();
+    }
+
+    @Benchmark
+    public void timerWheel() {
+        SchedulerKey key = new SchedulerKey(SchedulerKey.Type.PING_TIMEOUT, sessionIds[next()]);
+        timeoutScheduler.schedule(key, NOOP, 60, TimeUnit.SECONDS);
+    }
+
+}
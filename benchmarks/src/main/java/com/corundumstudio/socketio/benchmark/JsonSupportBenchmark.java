@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.corundumstudio.socketio.AckCallback;
+import com.corundumstudio.socketio.namespace.Namespace;
+import com.corundumstudio.socketio.protocol.AckArgs;
+import com.corundumstudio.socketio.protocol.Event;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.corundumstudio.socketio.protocol.JsonSupport;
+import com.corundumstudio.socketio.protocol.StreamingJsonSupport;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Reading and writing of socket.io event and ack payloads
+ * by {@link JsonSupport} implementations.
+ * New implementation could be added to {@link #createJsonSupport()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSupportBenchmark {
+
+    public static class Message {
+
+        private String text;
+        private long time;
+
+        public String getText() {
+            return text;
+        }
+        public void setText(String text) {
+            this.text = text;
+        }
+
+        public long getTime() {
+            return time;
+        }
+        public void setTime(long time) {
+            this.time = time;
+        }
+
+    }
+
+    @Param({"jackson", "streaming"})
+    public String impl;
+
+    @Param({"16", "1024"})
+    public int payloadSize;
+
+    private JsonSupport jsonSupport;
+    private AckCallback<Message> ackCallback;
+
+    private ByteBuf event;
+    private ByteBuf ack;
+    private ByteBuf out;
+    private List<Object> args;
+
+    private JsonSupport createJsonSupport() {
+        switch (impl) {
+            case "jackson":
+                return new JacksonJsonSupport();
+            case "streaming":
+                return new StreamingJsonSupport();
+            default:
+                throw new IllegalArgumentException(impl);
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        jsonSupport = createJsonSupport();
+        jsonSupport.addEventMapping(Namespace.DEFAULT_NAME, Payloads.EVENT_NAME,
+                                        String.class, Integer.class, Message.class, Object.class);
+        ackCallback = new AckCallback<Message>(Message.class) {
+            @Override
+            public void onSuccess(Message result) {
+            }
+        };
+
+        String text = Payloads.text(payloadSize);
+        Message message = new Message();
+        message.setText(text);
+        message.setTime(System.currentTimeMillis());
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("id", 42);
+        map.put("tags", Arrays.asList("a", "b"));
+        args = Arrays.<Object>asList(text, 1, message, map);
+
+        event = Unpooled.buffer();
+        jsonSupport.writeEvent(new ByteBufOutputStream(event), Payloads.EVENT_NAME, args);
+        ack = Unpooled.copiedBuffer("[{\"text\":\"" + text + "\",\"time\":1}]", CharsetUtil.UTF_8);
+        out = Unpooled.buffer();
+    }
+
+    @TearDown
+    public void tearDown() {
+        event.release();
+        ack.release();
+        out.release();
+    }
+
+    @Benchmark
+    public Event readEvent() throws IOException {
+        return jsonSupport.readValue(Namespace.DEFAULT_NAME, event.duplicate(), Event.class);
+    }
+
+    @Benchmark
+    public AckArgs readAckArgs() throws IOException {
+        return jsonSupport.readAckArgs(ack.duplicate(), ackCallback);
+    }
+
+    @Benchmark
+    public int writeEvent() throws IOException {
+        out.clear();
+        jsonSupport.writeEvent(new ByteBufOutputStream(out), Payloads.EVENT_NAME, args);
+        return out.writerIndex();
+    }
+
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.protocol.EngineIOVersion;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketEncoder;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.handler.codec.base64.Base64;
+import io.netty.handler.codec.base64.Base64Dialect;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Base64 and JSONP polling response of several packets.
+ * <code>legacy</code> is the previous encoder which copied packets
+ * through intermediate buffers and rewrote the whole payload byte by byte.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonpEncoderBenchmark {
+
+    private static final byte[] BINARY_HEADER = "b4".getBytes(CharsetUtil.UTF_8);
+    private static final byte[] B64_DELIMITER = new byte[] {':'};
+    private static final byte[] JSONP_HEAD = "___eio[".getBytes(CharsetUtil.UTF_8);
+    private static final byte[] JSONP_START = "]('".getBytes(CharsetUtil.UTF_8);
+    private static final byte[] JSONP_END = "');".getBytes(CharsetUtil.UTF_8);
+
+    @Param({"single-pass", "legacy"})
+    public String encoderType;
+
+    @Param({"16", "1024"})
+    public int payloadSize;
+
+    @Param({"0", "1"})
+    public int attachments;
+
+    @Param({"false", "true"})
+    public boolean jsonp;
+
+    @Param({"10"})
+    public int packets;
+
+    private final ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+    private final Queue<Packet> queue = new ArrayDeque<Packet>();
+
+    private PacketEncoder encoder;
+    private Object[] args;
+
+    @Setup
+    public void setup() {
+        encoder = new PacketEncoder(new Configuration(), new JacksonJsonSupport());
+        args = Payloads.eventArgs(payloadSize, attachments);
+        // non-ascii chars are rewritten by both encoders
+        args[0] = args[0] + "éè";
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        for (int i = 0; i < packets; i++) {
+            queue.add(Payloads.event(EngineIOVersion.V3, args));
+        }
+        Integer jsonpIndex = jsonp ? 0 : null;
+        ByteBuf out = encoder.allocateBuffer(allocator);
+        try {
+            if ("legacy".equals(encoderType)) {
+                encodeLegacy(jsonpIndex, queue, out, packets);
+            } else {
+                encoder.encodeJsonP(jsonpIndex, queue, out, allocator, packets);
+            }
+            return out.readableBytes();
+        } finally {
+            out.release();
+        }
+    }
+
+    private void encodeLegacy(Integer jsonpIndex, Queue<Packet> packets, ByteBuf out, int limit) throws IOException {
+        boolean jsonpMode = jsonpIndex != null;
+        ByteBuf buf = encoder.allocateBuffer(allocator);
+        for (int i = 0; i < limit; i++) {
+            Packet packet = packets.poll();
+            if (packet == null) {
+                break;
+            }
+
+            ByteBuf packetBuf = encoder.allocateBuffer(allocator);
+            encoder.encodePacket(packet, packetBuf, allocator, true);
+            buf.writeBytes(PacketEncoder.toChars(packetBuf.writerIndex()));
+            buf.writeBytes(B64_DELIMITER);
+            buf.writeBytes(packetBuf);
+            packetBuf.release();
+
+            for (ByteBuf attachment : packet.getAttachments()) {
+                ByteBuf encodedBuf = Base64.encode(attachment, attachment.readerIndex(), attachment.readableBytes(),
+                                                    false, Base64Dialect.URL_SAFE);
+                buf.writeBytes(PacketEncoder.toChars(encodedBuf.readableBytes() + 2));
+                buf.writeBytes(B64_DELIMITER);
+                buf.writeBytes(BINARY_HEADER);
+                buf.writeBytes(encodedBuf);
+                encodedBuf.release();
+            }
+            packet.releaseAttachments();
+        }
+
+        if (jsonpMode) {
+            out.writeBytes(JSONP_HEAD);
+            out.writeBytes(PacketEncoder.toChars(jsonpIndex));
+            out.writeBytes(JSONP_START);
+        }
+        while (buf.isReadable()) {
+            short value = (short) (buf.readByte() & 0xFF);
+            if (value >>> 7 == 0) {
+                if (jsonpMode && (value == '\\' || value == '\'')) {
+                    out.writeByte('\\');
+                }
+                out.writeByte(value);
+            } else {
+                out.writeByte(((value >>> 6) | 0xC0));
+                out.writeByte(((value & 0x3F) | 0x80));
+            }
+        }
+        buf.release();
+        if (jsonpMode) {
+            out.writeBytes(JSONP_END);
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.corundumstudio.socketio.AckMode;
+import com.corundumstudio.socketio.AckRequest;
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.annotation.OnEvent;
+import com.corundumstudio.socketio.annotation.ScannerEngine;
+import com.corundumstudio.socketio.handler.SocketIOException;
+import com.corundumstudio.socketio.namespace.Namespace;
+import com.corundumstudio.socketio.protocol.EngineIOVersion;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketType;
+import com.corundumstudio.socketio.transport.NamespaceClient;
+
+/**
+ * Dispatch of an {@link OnEvent} listener registered by {@link ScannerEngine}
+ * against the same method called through {@link Method#invoke}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListenerInvokeBenchmark {
+
+    public static class Listener {
+
+        private long counter;
+
+        @OnEvent("event")
+        public void onEvent(SocketIOClient client, String data, AckRequest ackRequest) {
+            counter += data.length();
+        }
+
+    }
+
+    private EmbeddedServer server;
+    private Namespace generated;
+    private Namespace reflective;
+    private NamespaceClient generatedClient;
+    private NamespaceClient reflectiveClient;
+    private AckRequest generatedAck;
+    private AckRequest reflectiveAck;
+    private final List<Object> args = Collections.<Object>singletonList("data");
+
+    @Setup
+    public void setup() throws Exception {
+        Configuration configuration = new Configuration();
+        configuration.setAckMode(AckMode.MANUAL);
+        server = new EmbeddedServer(configuration);
+
+        Listener listener = new Listener();
+        generated = server.getNamespacesHub().create("/generated");
+        new ScannerEngine().scan(generated, listener, Listener.class);
+
+        Method method = Listener.class.getMethod("onEvent", SocketIOClient.class, String.class, AckRequest.class);
+        reflective = server.getNamespacesHub().create("/reflective");
+        reflective.addEventListener("event", String.class, (client, data, ackRequest) -> {
+            try {
+                method.invoke(listener, new Object[] {client, data, ackRequest});
+            } catch (InvocationTargetException e) {
+                throw new SocketIOException(e.getCause());
+            } catch (Exception e) {
+                throw new SocketIOException(e);
+            }
+        });
+
+        generatedClient = server.connect(EngineIOVersion.V4).getHead().addNamespaceClient(generated);
+        reflectiveClient = server.connect(EngineIOVersion.V4).getHead().addNamespaceClient(reflective);
+        generatedAck = new AckRequest(new Packet(PacketType.MESSAGE, EngineIOVersion.V4), generatedClient);
+        reflectiveAck = new AckRequest(new Packet(PacketType.MESSAGE, EngineIOVersion.V4), reflectiveClient);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public void generated() {
+        generated.onEvent(generatedClient, "event", args, generatedAck);
+    }
+
+    @Benchmark
+    public void reflective() {
+        reflective.onEvent(reflectiveClient, "event", args, reflectiveAck);
+    }
+
+}
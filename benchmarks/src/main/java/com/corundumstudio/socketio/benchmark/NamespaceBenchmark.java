@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.namespace.Namespace;
+
+/**
+ * Room membership operations on a room with <code>roomSize</code> members
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NamespaceBenchmark {
+
+    private static final String ROOM = "room";
+
+    @Param({"10", "1000", "100000"})
+    public int roomSize;
+
+    private EmbeddedServer server;
+    private Namespace namespace;
+    private UUID sessionId;
+
+    @Setup
+    public void setup() {
+        server = new EmbeddedServer();
+        namespace = server.getDefaultNamespace();
+        for (int i = 0; i < roomSize; i++) {
+            namespace.join(ROOM, UUID.randomUUID());
+        }
+        sessionId = UUID.randomUUID();
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public void joinLeave() {
+        namespace.joinRoom(ROOM, sessionId);
+        namespace.leaveRoom(ROOM, sessionId);
+    }
+
+    @Benchmark
+    public void roomClients(Blackhole blackhole) {
+        for (SocketIOClient client : namespace.getRoomClients(ROOM)) {
+            blackhole.consume(client);
+        }
+    }
+
+}
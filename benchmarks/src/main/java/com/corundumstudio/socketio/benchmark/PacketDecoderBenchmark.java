@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.corundumstudio.socketio.ack.AckManager;
+import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.protocol.EngineIOVersion;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketDecoder;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Decoding of websocket event frames, binary attachments are sent as separate frames
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketDecoderBenchmark {
+
+    @Param({"16", "1024", "65536"})
+    public int payloadSize;
+
+    @Param({"0", "1", "4"})
+    public int attachments;
+
+    @Param({"V3", "V4"})
+    public EngineIOVersion version;
+
+    private static final int BATCH_SIZE = 10;
+
+    private EmbeddedServer server;
+    private PacketDecoder decoder;
+    private ClientHead head;
+
+    private byte[] frame;
+    private byte[] attachment;
+    private byte[] batch;
+
+    @Setup
+    public void setup() {
+        server = new EmbeddedServer();
+        head = server.connect(version).getHead();
+        decoder = new PacketDecoder(new JacksonJsonSupport(), new AckManager());
+
+        String text = Payloads.text(payloadSize);
+        StringBuilder sb = new StringBuilder();
+        if (attachments == 0) {
+            sb.append("42");
+        } else {
+            sb.append("45").append(attachments).append('-');
+        }
+        sb.append("[\"").append(Payloads.EVENT_NAME).append("\",\"").append(text).append('"');
+        for (int i = 0; i < attachments; i++) {
+            sb.append(",{\"_placeholder\":true,\"num\":").append(i).append('}');
+        }
+        sb.append(']');
+        frame = sb.toString().getBytes(CharsetUtil.UTF_8);
+        // binary frame shouldn't start with a digit or zero byte,
+        // otherwise decoder treats it as a framed string packet
+        attachment = text.getBytes(CharsetUtil.UTF_8);
+
+        // engine.io v4 polling payload with namespace and ack id in each packet header
+        StringBuilder batchBuilder = new StringBuilder();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            if (i > 0) {
+                batchBuilder.append('\u001e');
+            }
+            batchBuilder.append("42/chat,").append(i + 1)
+                        .append("[\"").append(Payloads.EVENT_NAME).append("\",\"").append(text).append("\"]");
+        }
+        batch = batchBuilder.toString().getBytes(CharsetUtil.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public Packet websocket() throws IOException {
+        Packet packet = decoder.decodePackets(Unpooled.wrappedBuffer(frame), head);
+        for (int i = 0; i < attachments; i++) {
+            packet = decoder.decodePackets(Unpooled.wrappedBuffer(attachment), head);
+        }
+        return packet;
+    }
+
+    @Benchmark
+    public void pollingBatch(Blackhole blackhole) throws IOException {
+        ByteBuf buffer = Unpooled.wrappedBuffer(batch);
+        while (buffer.isReadable()) {
+            blackhole.consume(decoder.decodePackets(buffer, head));
+        }
+    }
+
+}
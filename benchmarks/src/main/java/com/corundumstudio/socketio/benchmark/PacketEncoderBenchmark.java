@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.protocol.EngineIOVersion;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketEncoder;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+
+/**
+ * Encoding of a single event packet for websocket and polling transports.
+ * Run with <code>-prof gc</code> to see allocations per packet.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketEncoderBenchmark {
+
+    @Param({"16", "1024", "65536"})
+    public int payloadSize;
+
+    @Param({"0", "1", "4"})
+    public int attachments;
+
+    @Param({"V3", "V4"})
+    public EngineIOVersion version;
+
+    @Param({"", "/chat"})
+    public String namespace;
+
+    private final ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+    private final Queue<Packet> queue = new ArrayDeque<Packet>();
+
+    private PacketEncoder encoder;
+    private Object[] args;
+
+    @Setup
+    public void setup() {
+        encoder = new PacketEncoder(new Configuration(), new JacksonJsonSupport());
+        args = Payloads.eventArgs(payloadSize, attachments);
+    }
+
+    private Packet event() {
+        Packet packet = Payloads.event(version, args);
+        packet.setNsp(namespace);
+        return packet;
+    }
+
+    @Benchmark
+    public int websocket() throws IOException {
+        // encoder marks packet as binary, so it can't be reused
+        Packet packet = event();
+        ByteBuf out = encoder.allocateBuffer(allocator);
+        try {
+            encoder.encodePacket(packet, out, allocator, true);
+            return out.readableBytes();
+        } finally {
+            out.release();
+        }
+    }
+
+    @Benchmark
+    public int polling() throws IOException {
+        queue.add(event());
+        ByteBuf out = encoder.allocateBuffer(allocator);
+        try {
+            encoder.encodePackets(queue, out, allocator, 50);
+            return out.readableBytes();
+        } finally {
+            out.release();
+        }
+    }
+
+    @Benchmark
+    public int pollingBase64() throws IOException {
+        queue.add(event());
+        ByteBuf out = encoder.allocateBuffer(allocator);
+        try {
+            encoder.encodeJsonP(null, queue, out, allocator, 50);
+            return out.readableBytes();
+        } finally {
+            out.release();
+        }
+    }
+
+}
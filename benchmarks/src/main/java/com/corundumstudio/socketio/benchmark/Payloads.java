@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.corundumstudio.socketio.protocol.EngineIOVersion;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketType;
+
+final class Payloads {
+
+    static final String EVENT_NAME = "message";
+
+    private Payloads() {
+    }
+
+    static String text(int size) {
+        char[] chars = new char[size];
+        for (int i = 0; i < size; i++) {
+            chars[i] = (char) ('a' + i % 26);
+        }
+        return new String(chars);
+    }
+
+    static byte[] binary(int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) i;
+        }
+        return bytes;
+    }
+
+    /**
+     * Event arguments: text of <code>payloadSize</code> chars
+     * followed by <code>attachments</code> byte arrays of the same size
+     */
+    static Object[] eventArgs(int payloadSize, int attachments) {
+        List<Object> args = new ArrayList<Object>(attachments + 1);
+        args.add(text(payloadSize));
+        for (int i = 0; i < attachments; i++) {
+            args.add(binary(payloadSize));
+        }
+        return args.toArray();
+    }
+
+    static Packet event(EngineIOVersion version, Object[] args) {
+        Packet packet = new Packet(PacketType.MESSAGE, version);
+        packet.setSubType(PacketType.EVENT);
+        packet.setName(EVENT_NAME);
+        packet.setData(Arrays.asList(args));
+        return packet;
+    }
+
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.corundumstudio.socketio.protocol.EngineIOVersion;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.corundumstudio.socketio.store.pubsub.BatchMessage;
+import com.corundumstudio.socketio.store.pubsub.BinaryPubSubCodec;
+import com.corundumstudio.socketio.store.pubsub.BulkJoinLeaveMessage;
+import com.corundumstudio.socketio.store.pubsub.DispatchMessage;
+import com.corundumstudio.socketio.store.pubsub.JoinLeaveMessage;
+import com.corundumstudio.socketio.store.pubsub.PubSubMessage;
+import com.corundumstudio.socketio.store.pubsub.PubSubType;
+
+/**
+ * Cluster message serialization: Java serialization used by default
+ * store codecs against {@link BinaryPubSubCodec}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PubSubCodecBenchmark {
+
+    @Param({"dispatch", "bulkJoin", "batch"})
+    public String message;
+
+    @Param({"java", "binary"})
+    public String codec;
+
+    private BinaryPubSubCodec binaryCodec;
+    private PubSubMessage msg;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        binaryCodec = new BinaryPubSubCodec();
+        binaryCodec.init(new JacksonJsonSupport());
+
+        msg = message(message);
+        msg.setNodeId(42L);
+        encoded = encode();
+    }
+
+    private static PubSubMessage message(String type) {
+        UUID sessionId = UUID.randomUUID();
+        switch (type) {
+            case "dispatch":
+                return new DispatchMessage("room", Payloads.event(EngineIOVersion.V4, Payloads.eventArgs(256, 0)), "/chat");
+            case "bulkJoin": {
+                Set<String> rooms = new LinkedHashSet<String>();
+                for (int i = 0; i < 8; i++) {
+                    rooms.add("room-" + i);
+                }
+                return new BulkJoinLeaveMessage(sessionId, rooms, "/chat");
+            }
+            case "batch": {
+                List<BatchMessage.Entry> entries = new ArrayList<BatchMessage.Entry>();
+                for (int i = 0; i < 32; i++) {
+                    entries.add(new BatchMessage.Entry(PubSubType.JOIN, new JoinLeaveMessage(UUID.randomUUID(), "room", "/chat")));
+                }
+                return new BatchMessage(entries);
+            }
+            default:
+                throw new IllegalArgumentException(type);
+        }
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        if ("binary".equals(codec)) {
+            if (msg instanceof DispatchMessage) {
+                // skip cached content to measure encoding itself
+                msg = new DispatchMessage(((DispatchMessage) msg).getRoom(), ((DispatchMessage) msg).getPacket(),
+                        ((DispatchMessage) msg).getNamespace());
+                msg.setNodeId(42L);
+            }
+            return binaryCodec.encode(msg);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(msg);
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public Object decode() throws IOException, ClassNotFoundException {
+        if ("binary".equals(codec)) {
+            return binaryCodec.decode(encoded);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(encoded))) {
+            return in.readObject();
+        }
+    }
+
+}
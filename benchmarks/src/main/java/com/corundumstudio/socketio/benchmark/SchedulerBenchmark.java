@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.corundumstudio.socketio.scheduler.CancelableScheduler;
+import com.corundumstudio.socketio.scheduler.EventLoopScheduler;
+import com.corundumstudio.socketio.scheduler.HashedWheelTimeoutScheduler;
+import com.corundumstudio.socketio.scheduler.SchedulerKey;
+
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+
+/**
+ * Keyed timeout schedule and cancel from several threads at once,
+ * each thread uses its own event loop as a channel would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class SchedulerBenchmark {
+
+    private static final Runnable NOOP = () -> { };
+
+    @Param({"timerWheel", "eventLoop"})
+    public String scheduler;
+
+    private CancelableScheduler cancelableScheduler;
+    private EventLoopGroup group;
+    private final AtomicInteger threadIndex = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private final UUID sessionId = UUID.randomUUID();
+        private EventExecutor executor;
+        private long index;
+
+        @Setup
+        public void setup(SchedulerBenchmark benchmark) {
+            EventExecutor[] executors = new EventExecutor[4];
+            int i = 0;
+            for (EventExecutor e : benchmark.group) {
+                executors[i++] = e;
+            }
+            executor = executors[benchmark.threadIndex.getAndIncrement() % executors.length];
+        }
+
+    }
+
+    @Setup
+    public void setup() {
+        group = new DefaultEventLoopGroup(4);
+        if ("eventLoop".equals(scheduler)) {
+            cancelableScheduler = new EventLoopScheduler();
+        } else {
+            cancelableScheduler = new HashedWheelTimeoutScheduler();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        cancelableScheduler.shutdown();
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public void scheduleAndCancel(ThreadState state) {
+        UUID keyId = new UUID(state.sessionId.getMostSignificantBits(), state.index++);
+        SchedulerKey key = new SchedulerKey(SchedulerKey.Type.UPGRADE_TIMEOUT, keyId);
+        cancelableScheduler.scheduleCallback(state.executor, key, NOOP, 30, TimeUnit.SECONDS);
+        cancelableScheduler.cancel(key);
+    }
+
+}
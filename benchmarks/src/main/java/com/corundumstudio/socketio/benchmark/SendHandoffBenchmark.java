@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.protocol.EngineIOVersion;
+import com.corundumstudio.socketio.protocol.Packet;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoop;
+
+/**
+ * Packets sent to a single websocket client from several application threads.
+ * <p>
+ * <code>scheduled</code> is {@link ClientHead#send(Packet)}, which submits one write task
+ * per burst, <code>per-send</code> submits write task for each packet as it was done before.
+ * <code>tasks / sends</code> counters ratio shows event loop tasks
+ * (and <code>OutPacketMessage</code> allocations) per packet, run with <code>-prof gc</code>
+ * for allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class SendHandoffBenchmark {
+
+    @Param({"scheduled", "per-send"})
+    public String handoff;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+
+        public long sends;
+        public long tasks;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            sends = 0;
+            tasks = 0;
+        }
+
+    }
+
+    private EmbeddedServer server;
+    private EmbeddedServer.EmbeddedClient client;
+    private EventLoop eventLoop;
+    private ClientHead head;
+    private Object[] args;
+
+    @Setup
+    public void setup() {
+        server = new EmbeddedServer();
+        client = server.connect(EngineIOVersion.V4);
+        client.getChannel().pipeline().addFirst(new EmbeddedServer.DiscardHandler());
+
+        eventLoop = new DefaultEventLoop();
+        client.moveTo(eventLoop);
+        head = client.getHead();
+        args = Payloads.eventArgs(64, 0);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        eventLoop.shutdownGracefully(0, 1, TimeUnit.SECONDS).await();
+        client.moveTo(null);
+        server.stop();
+    }
+
+    @Benchmark
+    public Object send(Counters counters) {
+        Packet packet = Payloads.event(EngineIOVersion.V4, args);
+        ChannelFuture future;
+        if ("per-send".equals(handoff)) {
+            head.getPacketsQueue(Transport.WEBSOCKET).add(packet);
+            future = head.sendPackets(Transport.WEBSOCKET);
+        } else {
+            future = head.send(packet, Transport.WEBSOCKET);
+        }
+        counters.sends++;
+        if (future != null) {
+            counters.tasks++;
+        }
+        return future;
+    }
+
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.benchmark;
+
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.messages.OutPacketMessage;
+import com.corundumstudio.socketio.protocol.EngineIOVersion;
+import com.corundumstudio.socketio.protocol.Packet;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+/**
+ * Websocket writes of packet bursts. Burst is accumulated in client queue
+ * and drained by single write, as it happens when event loop is busy.
+ * <p>
+ * <code>flushes / messages</code> counters ratio shows
+ * amount of socket writes (syscalls) per message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebsocketWriteBenchmark {
+
+    @Param({"1", "16", "256"})
+    public int burst;
+
+    @Param({"1", "64"})
+    public int writeBatchSize;
+
+    @Param({"0", "256"})
+    public int flushConsolidationLimit;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+
+        public long flushes;
+        public long messages;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            flushes = 0;
+            messages = 0;
+        }
+
+    }
+
+    /**
+     * Counts flushes which have pending writes, i.e. reach the socket
+     */
+    private static class FlushCounter extends ChannelOutboundHandlerAdapter {
+
+        private long flushes;
+        private boolean pending;
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+            pending = true;
+            super.write(ctx, msg, promise);
+        }
+
+        @Override
+        public void flush(ChannelHandlerContext ctx) throws Exception {
+            if (pending) {
+                flushes++;
+                pending = false;
+            }
+            super.flush(ctx);
+        }
+
+    }
+
+    private EmbeddedServer server;
+    private EmbeddedChannel channel;
+    private ClientHead head;
+    private FlushCounter flushCounter;
+    private Object[] args;
+
+    @Setup
+    public void setup() {
+        Configuration configuration = new Configuration();
+        configuration.setWebsocketWriteBatchSize(writeBatchSize);
+        configuration.setFlushConsolidationLimit(flushConsolidationLimit);
+        server = new EmbeddedServer(configuration);
+
+        EmbeddedServer.EmbeddedClient client = server.connect(EngineIOVersion.V4);
+        channel = client.getChannel();
+        head = client.getHead();
+        flushCounter = new FlushCounter();
+        channel.pipeline().addFirst(flushCounter);
+        args = Payloads.eventArgs(64, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public void burst(Counters counters) {
+        Queue<Packet> queue = head.getPacketsQueue(Transport.WEBSOCKET);
+        for (int i = 0; i < burst; i++) {
+            queue.add(Payloads.event(EngineIOVersion.V4, args));
+        }
+        long flushes = flushCounter.flushes;
+        channel.writeAndFlush(new OutPacketMessage(head, Transport.WEBSOCKET));
+        channel.runPendingTasks();
+        channel.releaseOutbound();
+
+        counters.flushes += flushCounter.flushes - flushes;
+        counters.messages += burst;
+    }
+
+}
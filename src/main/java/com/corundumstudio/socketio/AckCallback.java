@@ -15,6 +15,7 @@
  */
 package com.corundumstudio.socketio;
 
+import java.util.concurrent.TimeUnit;
 
 /**
  * Base ack callback class.
@@ -26,6 +27,11 @@ package com.corundumstudio.socketio;
  * while {@link SocketIOClient} is alive. Timeout can be
  * defined {@link #timeout} as constructor argument.
  *
+ * Timeouts are checked by periodic heartbeat sweep of client's
+ * event loop, so {@link #onTimeout} may be executed up to one second
+ * later than defined. Callbacks still waiting on client disconnect
+ * are timed out too.
+ *
  * This object is NOT actual anymore if {@link #onSuccess} or
  * {@link #onTimeout} was executed.
  *
@@ -64,6 +70,19 @@ public abstract class AckCallback<T> {
         return timeout;
     }
 
+    /**
+     * Returns time when this callback should be timed out
+     *
+     * @param now - registration time in milliseconds
+     * @return deadline in milliseconds or <code>-1</code> if there is no timeout
+     */
+    public long getDeadline(long now) {
+        if (timeout == -1) {
+            return -1;
+        }
+        return now + TimeUnit.SECONDS.toMillis(timeout);
+    }
+
     /**
      * Executes only once when acknowledgement received from client.
      *
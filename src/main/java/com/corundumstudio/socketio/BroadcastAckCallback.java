@@ -15,17 +15,39 @@
  */
 package com.corundumstudio.socketio;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Acknowledgement of broadcast message.
+ * <p>
+ * All recipients share single deadline which is calculated
+ * when first client callback is created. Per client state is
+ * just a reference to the client, so outstanding acks are
+ * tracked by counter and timed out clients are collected only
+ * if timeout happens.
+ *
+ * @param <T> - any serializable type
+ */
 public class BroadcastAckCallback<T> {
 
     final AtomicBoolean loopFinished = new AtomicBoolean();
     final AtomicInteger counter = new AtomicInteger();
-    final AtomicBoolean successExecuted = new AtomicBoolean();
+    final AtomicBoolean completed = new AtomicBoolean();
+    final Queue<SocketIOClient> timedOutClients = new ConcurrentLinkedQueue<SocketIOClient>();
+    final CompletableFuture<List<SocketIOClient>> future = new CompletableFuture<List<SocketIOClient>>();
     final Class<T> resultClass;
     final int timeout;
 
+    private volatile long deadline = -1;
+
     public BroadcastAckCallback(Class<T> resultClass, int timeout) {
         this.resultClass = resultClass;
         this.timeout = timeout;
@@ -35,22 +57,54 @@ public class BroadcastAckCallback<T> {
         this(resultClass, -1);
     }
 
+    private final class ClientCallback extends AckCallback<T> {
+
+        private final SocketIOClient client;
+
+        ClientCallback(SocketIOClient client) {
+            super(BroadcastAckCallback.this.resultClass, BroadcastAckCallback.this.timeout);
+            this.client = client;
+        }
+
+        @Override
+        public long getDeadline(long now) {
+            return deadline;
+        }
+
+        @Override
+        public void onSuccess(T result) {
+            onClientSuccess(client, result);
+            counter.getAndDecrement();
+            executeComplete();
+        }
+
+        @Override
+        public void onTimeout() {
+            timedOutClients.add(client);
+            onClientTimeout(client);
+            counter.getAndDecrement();
+            executeComplete();
+        }
+
+    }
+
     final AckCallback<T> createClientCallback(final SocketIOClient client) {
+        if (timeout != -1 && deadline == -1) {
+            deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeout);
+        }
         counter.getAndIncrement();
-        return new AckCallback<T>(resultClass, timeout) {
-            @Override
-            public void onSuccess(T result) {
-                counter.getAndDecrement();
-                onClientSuccess(client, result);
-                executeSuccess();
-            }
-
-            @Override
-            public void onTimeout() {
-                onClientTimeout(client);
-            }
+        return new ClientCallback(client);
+    }
 
-        };
+    /**
+     * Returns future which is completed once all recipients
+     * acknowledged message or timed out.
+     *
+     * @return future with list of timed out clients, it's empty
+     * if all clients acknowledged message
+     */
+    public CompletableFuture<List<SocketIOClient>> getFuture() {
+        return future;
     }
 
     protected void onClientTimeout(SocketIOClient client) {
@@ -65,18 +119,22 @@ public class BroadcastAckCallback<T> {
 
     }
 
-    private void executeSuccess() {
+    private void executeComplete() {
         if (loopFinished.get()
                 && counter.get() == 0
-                    && successExecuted.compareAndSet(false, true)) {
-            onAllSuccess();
+                    && completed.compareAndSet(false, true)) {
+            if (timedOutClients.isEmpty()) {
+                onAllSuccess();
+                future.complete(Collections.<SocketIOClient>emptyList());
+            } else {
+                future.complete(new ArrayList<SocketIOClient>(timedOutClients));
+            }
         }
     }
 
     void loopFinished() {
         loopFinished.set(true);
-        executeSuccess();
+        executeComplete();
     }
 
 }
-
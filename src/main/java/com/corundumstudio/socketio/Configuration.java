@@ -18,6 +18,7 @@ package com.corundumstudio.socketio;
 import com.corundumstudio.socketio.handler.SuccessAuthorizationListener;
 import com.corundumstudio.socketio.listener.DefaultExceptionListener;
 import com.corundumstudio.socketio.listener.ExceptionListener;
+import com.corundumstudio.socketio.metrics.SocketIOMetrics;
 import com.corundumstudio.socketio.protocol.JsonSupport;
 import com.corundumstudio.socketio.store.MemoryStoreFactory;
 import com.corundumstudio.socketio.store.StoreFactory;
@@ -90,6 +91,34 @@ public class Configuration {
 
     private boolean websocketCompression = true;
 
+    private int websocketWriteBatchSize = 64;
+
+    private int pollingBatchSize = 50;
+
+    private int pollingBatchBytes = 64 * 1024;
+
+    private boolean adaptivePollingBatch = false;
+
+    private int pollingBatchMaxBytes = 1024 * 1024;
+
+    private int pollingLatencyTarget = 200;
+
+    private boolean httpKeepAlive = false;
+
+    private boolean chunkedPollingResponse = false;
+
+    private int flushConsolidationLimit = 0;
+
+    private int maxPacketsQueueSize = 0;
+
+    private QueueOverflowPolicy queueOverflowPolicy = QueueOverflowPolicy.DROP_OLDEST;
+
+    private SocketIOMetrics metrics = SocketIOMetrics.NOOP;
+
+    private EventExecutionMode eventExecutionMode = EventExecutionMode.IO_THREAD;
+
+    private int eventThreads = 0; // 0 = current_processors_amount * 2
+
     private boolean randomSession = false;
 
     private boolean needClientAuth = false;
@@ -164,6 +193,20 @@ public class Configuration {
 
         setHttpCompression(conf.isHttpCompression());
         setWebsocketCompression(conf.isWebsocketCompression());
+        setWebsocketWriteBatchSize(conf.getWebsocketWriteBatchSize());
+        setPollingBatchSize(conf.getPollingBatchSize());
+        setPollingBatchBytes(conf.getPollingBatchBytes());
+        setAdaptivePollingBatch(conf.isAdaptivePollingBatch());
+        setPollingBatchMaxBytes(conf.getPollingBatchMaxBytes());
+        setPollingLatencyTarget(conf.getPollingLatencyTarget());
+        setHttpKeepAlive(conf.isHttpKeepAlive());
+        setChunkedPollingResponse(conf.isChunkedPollingResponse());
+        setFlushConsolidationLimit(conf.getFlushConsolidationLimit());
+        setMaxPacketsQueueSize(conf.getMaxPacketsQueueSize());
+        setQueueOverflowPolicy(conf.getQueueOverflowPolicy());
+        setMetrics(conf.getMetrics());
+        setEventExecutionMode(conf.getEventExecutionMode());
+        setEventThreads(conf.getEventThreads());
         setRandomSession(conf.randomSession);
         setNeedClientAuth(conf.isNeedClientAuth());
         setHttpRequestDecoderConfiguration(conf.getHttpRequestDecoderConfiguration());
@@ -175,7 +218,9 @@ public class Configuration {
 
     /**
      * Allows to setup custom implementation of
-     * JSON serialization/deserialization
+     * JSON serialization/deserialization.
+     * {@link com.corundumstudio.socketio.protocol.StreamingJsonSupport}
+     * could be used for faster event parsing.
      *
      * @param jsonSupport - json mapper
      *
@@ -619,6 +664,236 @@ public class Configuration {
         return websocketCompression;
     }
 
+    /**
+     * Max amount of websocket frames written to channel
+     * between flushes while client packets queue is drained.
+     * Queue remainder is flushed once it's empty.
+     * <code>1</code> means flush after each frame.
+     * <p>
+     * Default is <code>64</code>
+     *
+     * @param websocketWriteBatchSize - frames amount
+     */
+    public void setWebsocketWriteBatchSize(int websocketWriteBatchSize) {
+        this.websocketWriteBatchSize = websocketWriteBatchSize;
+    }
+    public int getWebsocketWriteBatchSize() {
+        return websocketWriteBatchSize;
+    }
+
+    /**
+     * Max amount of packets sent in a single polling response.
+     * <p>
+     * Default is <code>50</code>
+     *
+     * @param pollingBatchSize - packets amount
+     */
+    public void setPollingBatchSize(int pollingBatchSize) {
+        this.pollingBatchSize = pollingBatchSize;
+    }
+    public int getPollingBatchSize() {
+        return pollingBatchSize;
+    }
+
+    /**
+     * Size of polling response in bytes after which no more packets are added to it.
+     * Response contains at least one packet regardless of its size.
+     * <p>
+     * Default is <code>65536</code>
+     *
+     * @param pollingBatchBytes - size in bytes
+     */
+    public void setPollingBatchBytes(int pollingBatchBytes) {
+        this.pollingBatchBytes = pollingBatchBytes;
+    }
+    public int getPollingBatchBytes() {
+        return pollingBatchBytes;
+    }
+
+    /**
+     * Grow polling batch while client has packets left in queue after response
+     * and polls again within {@link #setPollingLatencyTarget(int)},
+     * batch is shrunk back once client falls behind the target.
+     * Batch never exceeds {@link #setPollingBatchMaxBytes(int)}.
+     * <p>
+     * Default is <code>false</code>
+     *
+     * @param adaptivePollingBatch - <code>true</code> to use adaptive polling batch
+     */
+    public void setAdaptivePollingBatch(boolean adaptivePollingBatch) {
+        this.adaptivePollingBatch = adaptivePollingBatch;
+    }
+    public boolean isAdaptivePollingBatch() {
+        return adaptivePollingBatch;
+    }
+
+    /**
+     * Max size of polling response in bytes reached by adaptive polling batch.
+     * Packets amount grows in the same proportion.
+     * <p>
+     * Default is <code>1048576</code>
+     *
+     * @param pollingBatchMaxBytes - size in bytes
+     */
+    public void setPollingBatchMaxBytes(int pollingBatchMaxBytes) {
+        this.pollingBatchMaxBytes = pollingBatchMaxBytes;
+    }
+    public int getPollingBatchMaxBytes() {
+        return pollingBatchMaxBytes;
+    }
+
+    /**
+     * Max time in milliseconds between polling response and next poll request
+     * of a client which keeps up with adaptive polling batch.
+     * <p>
+     * Default is <code>200</code>
+     *
+     * @param pollingLatencyTarget - time in milliseconds
+     */
+    public void setPollingLatencyTarget(int pollingLatencyTarget) {
+        this.pollingLatencyTarget = pollingLatencyTarget;
+    }
+    public int getPollingLatencyTarget() {
+        return pollingLatencyTarget;
+    }
+
+    /**
+     * Keep polling connection open after successful response
+     * if client requested keep-alive, so next poll reuses it.
+     * Otherwise connection is closed after each response.
+     * <p>
+     * Default is <code>false</code>
+     *
+     * @param httpKeepAlive - <code>true</code> to keep connections alive
+     */
+    public void setHttpKeepAlive(boolean httpKeepAlive) {
+        this.httpKeepAlive = httpKeepAlive;
+    }
+    public boolean isHttpKeepAlive() {
+        return httpKeepAlive;
+    }
+
+    /**
+     * Send binary polling payload using chunked transfer encoding.
+     * Content of broadcast packets, encoded once for all clients,
+     * is written as separate chunk without copying it to the response.
+     * Doesn't affect base64 and JSONP polling.
+     * <p>
+     * Default is <code>false</code>
+     *
+     * @param chunkedPollingResponse - <code>true</code> to use chunked polling response
+     */
+    public void setChunkedPollingResponse(boolean chunkedPollingResponse) {
+        this.chunkedPollingResponse = chunkedPollingResponse;
+    }
+    public boolean isChunkedPollingResponse() {
+        return chunkedPollingResponse;
+    }
+
+    /**
+     * Consolidates flushes of channel using {@link io.netty.handler.flush.FlushConsolidationHandler}.
+     * Flushes are delayed until channel read is complete or
+     * <code>flushConsolidationLimit</code> flushes have been requested.
+     * <p>
+     * Default is <code>0</code> (disabled)
+     *
+     * @param flushConsolidationLimit - flushes amount before explicit flush
+     */
+    public void setFlushConsolidationLimit(int flushConsolidationLimit) {
+        this.flushConsolidationLimit = flushConsolidationLimit;
+    }
+    public int getFlushConsolidationLimit() {
+        return flushConsolidationLimit;
+    }
+
+    /**
+     * Max amount of outbound packets queued per client
+     * while client doesn't take them.
+     * Websocket writes are paused while channel isn't writable,
+     * see {@link SocketConfig#setWriteBufferWaterMarkHigh(int)},
+     * so slow clients are limited by this queue instead of channel buffer.
+     * Once limit is reached and websocket channel isn't writable
+     * (or polling client hasn't fetched packets yet)
+     * {@link #getQueueOverflowPolicy()} is applied.
+     * <p>
+     * Default is <code>0</code> (unlimited)
+     *
+     * @param maxPacketsQueueSize - packets amount
+     */
+    public void setMaxPacketsQueueSize(int maxPacketsQueueSize) {
+        this.maxPacketsQueueSize = maxPacketsQueueSize;
+    }
+    public int getMaxPacketsQueueSize() {
+        return maxPacketsQueueSize;
+    }
+
+    /**
+     * Action taken when client packets queue is full
+     * <p>
+     * Default is <code>DROP_OLDEST</code>
+     *
+     * @param queueOverflowPolicy - overflow policy
+     *
+     * @see QueueOverflowPolicy
+     */
+    public void setQueueOverflowPolicy(QueueOverflowPolicy queueOverflowPolicy) {
+        this.queueOverflowPolicy = queueOverflowPolicy;
+    }
+    public QueueOverflowPolicy getQueueOverflowPolicy() {
+        return queueOverflowPolicy;
+    }
+
+    /**
+     * Receiver of connections, packets, queues, acks and pub/sub metrics.
+     * Pub/sub publishing is measured only for store factories
+     * extending {@link com.corundumstudio.socketio.store.pubsub.BaseStoreFactory}.
+     * <p>
+     * Default is {@link SocketIOMetrics#NOOP}
+     *
+     * @param metrics - metrics receiver
+     *
+     * @see com.corundumstudio.socketio.metrics.DefaultSocketIOMetrics
+     */
+    public void setMetrics(SocketIOMetrics metrics) {
+        this.metrics = metrics;
+    }
+    public SocketIOMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Thread used to invoke event listeners.
+     * Could be overridden per event via
+     * {@link SocketIONamespace#setEventExecutionMode(String, EventExecutionMode)}
+     * <p>
+     * Default is <code>IO_THREAD</code>
+     *
+     * @param eventExecutionMode - execution mode
+     *
+     * @see EventExecutionMode
+     */
+    public void setEventExecutionMode(EventExecutionMode eventExecutionMode) {
+        this.eventExecutionMode = eventExecutionMode;
+    }
+    public EventExecutionMode getEventExecutionMode() {
+        return eventExecutionMode;
+    }
+
+    /**
+     * Threads amount of event listeners pool used in
+     * {@link EventExecutionMode#POOL} mode.
+     * <p>
+     * Default is <code>0</code> (current processors amount * 2)
+     *
+     * @param eventThreads - threads amount
+     */
+    public void setEventThreads(int eventThreads) {
+        this.eventThreads = eventThreads;
+    }
+    public int getEventThreads() {
+        return eventThreads;
+    }
+
     public boolean isRandomSession() {
         return randomSession;
     }
@@ -0,0 +1,45 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio;
+
+/**
+ * Thread used to invoke event listeners.
+ * <p>
+ * Offloaded events of the same client are executed one by one
+ * in order of receiving, even if their modes differ.
+ */
+public enum EventExecutionMode {
+
+    /**
+     * Invoke listeners on I/O thread which received the event.
+     * Listener shouldn't block, otherwise it delays all clients
+     * of the same event loop.
+     */
+    IO_THREAD,
+
+    /**
+     * Invoke listeners on bounded thread pool,
+     * see {@link Configuration#setEventThreads(int)}
+     */
+    POOL,
+
+    /**
+     * Invoke listeners on virtual threads. Falls back to
+     * <code>POOL</code> if runtime doesn't support them.
+     */
+    VIRTUAL_THREADS
+
+}
@@ -15,7 +15,9 @@
  */
 package com.corundumstudio.socketio;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
+import io.netty.util.CharsetUtil;
 import io.netty.buffer.ByteBufOutputStream;
 
 import java.io.IOException;
@@ -59,6 +61,50 @@ class JsonSupportWrapper implements JsonSupport {
         }
     }
 
+    @Override
+    public <T> T readValue(String namespaceName, ByteBuf src, Class<T> valueType) throws IOException {
+        int index = src.readerIndex();
+        try {
+            return delegate.readValue(namespaceName, src, valueType);
+        } catch (Exception e) {
+            log.error("Can't read value: " + src.toString(index, src.writerIndex() - index, CharsetUtil.UTF_8) + " for type: " + valueType, e);
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public AckArgs readAckArgs(ByteBuf src, AckCallback<?> callback) throws IOException {
+        int index = src.readerIndex();
+        try {
+            return delegate.readAckArgs(src, callback);
+        } catch (Exception e) {
+            log.error("Can't read ack args: " + src.toString(index, src.writerIndex() - index, CharsetUtil.UTF_8) + " for type: " + callback.getResultClass(), e);
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public <T> T readValue(String namespaceName, ByteBuf src, Class<T> valueType, List<ByteBuf> attachments) throws IOException {
+        int index = src.readerIndex();
+        try {
+            return delegate.readValue(namespaceName, src, valueType, attachments);
+        } catch (Exception e) {
+            log.error("Can't read value: " + src.toString(index, src.writerIndex() - index, CharsetUtil.UTF_8) + " for type: " + valueType, e);
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public AckArgs readAckArgs(ByteBuf src, AckCallback<?> callback, List<ByteBuf> attachments) throws IOException {
+        int index = src.readerIndex();
+        try {
+            return delegate.readAckArgs(src, callback, attachments);
+        } catch (Exception e) {
+            log.error("Can't read ack args: " + src.toString(index, src.writerIndex() - index, CharsetUtil.UTF_8) + " for type: " + callback.getResultClass(), e);
+            throw new IOException(e);
+        }
+    }
+
     @Override
     public void writeValue(ByteBufOutputStream out, Object value) throws IOException {
         try {
@@ -69,6 +115,16 @@ class JsonSupportWrapper implements JsonSupport {
         }
     }
 
+    @Override
+    public void writeEvent(ByteBufOutputStream out, String name, List<?> args) throws IOException {
+        try {
+            delegate.writeEvent(out, name, args);
+        } catch (Exception e) {
+            log.error("Can't write event: " + name + " with args: " + args, e);
+            throw new IOException(e);
+        }
+    }
+
     @Override
     public void addEventMapping(String namespaceName, String eventName, Class<?> ... eventClass) {
         delegate.addEventMapping(namespaceName, eventName, eventClass);
@@ -84,4 +140,9 @@ class JsonSupportWrapper implements JsonSupport {
         return delegate.getArrays();
     }
 
+    @Override
+    public List<ByteBuf> getAttachments() {
+        return delegate.getAttachments();
+    }
+
 }
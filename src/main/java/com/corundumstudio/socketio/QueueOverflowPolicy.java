@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio;
+
+/**
+ * Action taken when client packets queue reaches
+ * {@link Configuration#getMaxPacketsQueueSize()}
+ */
+public enum QueueOverflowPolicy {
+
+    /**
+     * Drop the oldest queued packet
+     */
+    DROP_OLDEST,
+
+    /**
+     * Drop the packet being sent
+     */
+    DROP_NEWEST,
+
+    /**
+     * Replace queued event with the same name and namespace.
+     * Falls back to DROP_OLDEST if there is no such event.
+     */
+    COALESCE,
+
+    /**
+     * Disconnect client as slow consumer.
+     * Client channels are closed and disconnect is handled
+     * by transport in channel event loop.
+     */
+    DISCONNECT
+
+}
@@ -16,12 +16,12 @@
 package com.corundumstudio.socketio;
 
 import com.corundumstudio.socketio.misc.IterableCollection;
+import com.corundumstudio.socketio.namespace.PacketBroadcaster;
 import com.corundumstudio.socketio.protocol.EngineIOVersion;
 import com.corundumstudio.socketio.protocol.Packet;
 import com.corundumstudio.socketio.protocol.PacketType;
 import com.corundumstudio.socketio.store.StoreFactory;
 import com.corundumstudio.socketio.store.pubsub.DispatchMessage;
-import com.corundumstudio.socketio.store.pubsub.PubSubType;
 
 import java.util.Arrays;
 import java.util.Collection;
@@ -37,19 +37,24 @@ public class SingleRoomBroadcastOperations implements BroadcastOperations {
     private final String room;
     private final Iterable<SocketIOClient> clients;
     private final StoreFactory storeFactory;
+    private final PacketBroadcaster broadcaster;
 
     public SingleRoomBroadcastOperations(String namespace, String room, Iterable<SocketIOClient> clients, StoreFactory storeFactory) {
+        this(namespace, room, clients, storeFactory, null);
+    }
+
+    public SingleRoomBroadcastOperations(String namespace, String room, Iterable<SocketIOClient> clients, StoreFactory storeFactory,
+                                            PacketBroadcaster broadcaster) {
         super();
         this.namespace = namespace;
         this.room = room;
         this.clients = clients;
         this.storeFactory = storeFactory;
+        this.broadcaster = broadcaster;
     }
 
     private void dispatch(Packet packet) {
-        this.storeFactory.pubSubStore().publish(
-                PubSubType.DISPATCH,
-                new DispatchMessage(this.room, packet, this.namespace));
+        this.storeFactory.dispatch(new DispatchMessage(this.room, packet, this.namespace));
     }
 
     @Override
@@ -59,9 +64,20 @@ public class SingleRoomBroadcastOperations implements BroadcastOperations {
 
     @Override
     public void send(Packet packet) {
-        for (SocketIOClient client : clients) {
-            packet.setEngineIOVersion(client.getEngineIOVersion());
-            client.send(packet);
+        sendPacket(packet, null);
+    }
+
+    private void sendPacket(Packet packet, Predicate<SocketIOClient> excludePredicate) {
+        if (broadcaster != null) {
+            broadcaster.send(clients, packet, excludePredicate);
+        } else {
+            for (SocketIOClient client : clients) {
+                packet.setEngineIOVersion(client.getEngineIOVersion());
+                if (excludePredicate != null && excludePredicate.test(client)) {
+                    continue;
+                }
+                client.send(packet);
+            }
         }
         dispatch(packet);
     }
@@ -76,9 +92,7 @@ public class SingleRoomBroadcastOperations implements BroadcastOperations {
 
     @Override
     public void disconnect() {
-        for (SocketIOClient client : clients) {
-            client.disconnect();
-        }
+        clients.forEach(SocketIOClient::disconnect);
     }
 
     @Override
@@ -95,15 +109,7 @@ public class SingleRoomBroadcastOperations implements BroadcastOperations {
         packet.setSubType(PacketType.EVENT);
         packet.setName(name);
         packet.setData(Arrays.asList(data));
-
-        for (SocketIOClient client : clients) {
-            packet.setEngineIOVersion(client.getEngineIOVersion());
-            if (excludePredicate.test(client)) {
-                continue;
-            }
-            client.send(packet);
-        }
-        dispatch(packet);
+        sendPacket(packet, excludePredicate);
     }
 
     @Override
@@ -32,6 +32,7 @@ import com.corundumstudio.socketio.handler.AuthorizeHandler;
 import com.corundumstudio.socketio.handler.ClientHead;
 import com.corundumstudio.socketio.handler.ClientsBox;
 import com.corundumstudio.socketio.handler.EncoderHandler;
+import com.corundumstudio.socketio.handler.HeartbeatScheduler;
 import com.corundumstudio.socketio.handler.InPacketHandler;
 import com.corundumstudio.socketio.handler.PacketListener;
 import com.corundumstudio.socketio.handler.WrongUrlHandler;
@@ -40,8 +41,9 @@ import com.corundumstudio.socketio.protocol.JsonSupport;
 import com.corundumstudio.socketio.protocol.PacketDecoder;
 import com.corundumstudio.socketio.protocol.PacketEncoder;
 import com.corundumstudio.socketio.scheduler.CancelableScheduler;
-import com.corundumstudio.socketio.scheduler.HashedWheelTimeoutScheduler;
+import com.corundumstudio.socketio.scheduler.EventLoopScheduler;
 import com.corundumstudio.socketio.store.StoreFactory;
+import com.corundumstudio.socketio.store.pubsub.BaseStoreFactory;
 import com.corundumstudio.socketio.store.pubsub.DisconnectMessage;
 import com.corundumstudio.socketio.store.pubsub.PubSubType;
 import com.corundumstudio.socketio.transport.PollingTransport;
@@ -56,6 +58,7 @@ import io.netty.handler.codec.http.HttpMessage;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpRequestDecoder;
 import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.ssl.SslHandler;
 
 public class SocketIOChannelInitializer extends ChannelInitializer<Channel> implements DisconnectableHub {
@@ -72,6 +75,7 @@ public class SocketIOChannelInitializer extends ChannelInitializer<Channel> impl
     public static final String HTTP_AGGREGATOR = "httpAggregator";
     public static final String HTTP_REQUEST_DECODER = "httpDecoder";
     public static final String SSL_HANDLER = "ssl";
+    public static final String FLUSH_CONSOLIDATION = "flushConsolidation";
 
     public static final String RESOURCE_HANDLER = "resourceHandler";
     public static final String WRONG_URL_HANDLER = "wrongUrlBlocker";
@@ -87,7 +91,8 @@ public class SocketIOChannelInitializer extends ChannelInitializer<Channel> impl
     private EncoderHandler encoderHandler;
     private WrongUrlHandler wrongUrlHandler;
 
-    private CancelableScheduler scheduler = new HashedWheelTimeoutScheduler();
+    private CancelableScheduler scheduler = new EventLoopScheduler();
+    private HeartbeatScheduler heartbeatScheduler;
 
     private InPacketHandler packetHandler;
     private SSLContext sslContext;
@@ -101,7 +106,7 @@ public class SocketIOChannelInitializer extends ChannelInitializer<Channel> impl
     public void start(Configuration configuration, NamespacesHub namespacesHub) {
         this.configuration = configuration;
 
-        ackManager = new AckManager(scheduler);
+        ackManager = new AckManager(configuration.getMetrics());
 
         JsonSupport jsonSupport = configuration.getJsonSupport();
         PacketEncoder encoder = new PacketEncoder(configuration, jsonSupport);
@@ -119,7 +124,11 @@ public class SocketIOChannelInitializer extends ChannelInitializer<Channel> impl
         }
 
         StoreFactory factory = configuration.getStoreFactory();
-        authorizeHandler = new AuthorizeHandler(connectPath, scheduler, configuration, namespacesHub, factory, this, ackManager, clientsBox);
+        if (factory instanceof BaseStoreFactory) {
+            ((BaseStoreFactory) factory).setMetrics(configuration.getMetrics());
+        }
+        heartbeatScheduler = new HeartbeatScheduler(configuration);
+        authorizeHandler = new AuthorizeHandler(connectPath, scheduler, heartbeatScheduler, configuration, namespacesHub, factory, this, ackManager, clientsBox);
         factory.init(namespacesHub, authorizeHandler, jsonSupport);
         xhrPollingTransport = new PollingTransport(decoder, authorizeHandler, clientsBox);
         webSocketTransport = new WebSocketTransport(isSsl, authorizeHandler, configuration, scheduler, clientsBox);
@@ -127,7 +136,7 @@ public class SocketIOChannelInitializer extends ChannelInitializer<Channel> impl
         PacketListener packetListener = new PacketListener(ackManager, namespacesHub, xhrPollingTransport, scheduler);
 
 
-        packetHandler = new InPacketHandler(packetListener, decoder, namespacesHub, configuration.getExceptionListener());
+        packetHandler = new InPacketHandler(packetListener, decoder, namespacesHub, configuration.getExceptionListener(), configuration.getMetrics());
 
         try {
             encoderHandler = new EncoderHandler(configuration, encoder);
@@ -167,6 +176,9 @@ public class SocketIOChannelInitializer extends ChannelInitializer<Channel> impl
      * @param pipeline - channel pipeline
      */
     protected void addSocketioHandlers(ChannelPipeline pipeline) {
+        if (configuration.getFlushConsolidationLimit() > 0) {
+            pipeline.addLast(FLUSH_CONSOLIDATION, new FlushConsolidationHandler(configuration.getFlushConsolidationLimit(), true));
+        }
         pipeline.addLast(HTTP_REQUEST_DECODER, new HttpRequestDecoder(configuration.getHttpDecoderConfig()));
         pipeline.addLast(HTTP_AGGREGATOR, new HttpObjectAggregator(configuration.getMaxHttpContentLength()) {
             @Override
@@ -232,6 +244,7 @@ public class SocketIOChannelInitializer extends ChannelInitializer<Channel> impl
         StoreFactory factory = configuration.getStoreFactory();
         factory.shutdown();
         scheduler.shutdown();
+        heartbeatScheduler.shutdown();
     }
 
 }
@@ -50,4 +50,13 @@ public interface SocketIONamespace extends ClientListeners {
     SocketIOClient getClient(UUID uuid);
 
     void addAuthTokenListener(AuthTokenListener listener);
+
+    /**
+     * Overrides {@link Configuration#getEventExecutionMode()}
+     * for listeners of event
+     *
+     * @param eventName - event name
+     * @param mode - execution mode
+     */
+    void setEventExecutionMode(String eventName, EventExecutionMode mode);
 }
@@ -218,6 +218,7 @@ public class SocketIOServer implements ClientListeners {
         workerGroup.shutdownGracefully().syncUninterruptibly();
 
         pipelineFactory.stop();
+        namespacesHub.shutdown();
         log.info("SocketIO server stopped");
     }
 
@@ -254,6 +255,17 @@ public class SocketIOServer implements ClientListeners {
         mainNamespace.addEventListener(eventName, eventClass, listener);
     }
 
+    /**
+     * Overrides {@link Configuration#getEventExecutionMode()}
+     * for listeners of event in main namespace
+     *
+     * @param eventName - event name
+     * @param mode - execution mode
+     */
+    public void setEventExecutionMode(String eventName, EventExecutionMode mode) {
+        mainNamespace.setEventExecutionMode(eventName, mode);
+    }
+
     @Override
     public void addEventInterceptor(EventInterceptor eventInterceptor) {
         mainNamespace.addEventInterceptor(eventInterceptor);
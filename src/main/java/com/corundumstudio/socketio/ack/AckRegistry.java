@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.ack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.corundumstudio.socketio.AckCallback;
+
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.collection.LongObjectMap;
+
+/**
+ * Ack callbacks of single client, keyed by ack index.
+ * <p>
+ * Timeouts aren't scheduled per callback, instead owner checks
+ * {@link #getNextDeadline()} periodically and calls {@link #expire(long)}.
+ * So timeout resolution is the check period: heartbeat sweep does it
+ * at most a second apart while client is registered in heartbeat table,
+ * and {@link #clear()} is called on disconnect.
+ */
+public class AckRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(AckRegistry.class);
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    static final class Entry {
+
+        final AckCallback<?> callback;
+        final long registered;
+        final long deadline;
+
+        Entry(AckCallback<?> callback, long registered, long deadline) {
+            this.callback = callback;
+            this.registered = registered;
+            this.deadline = deadline;
+        }
+
+    }
+
+    private final LongObjectMap<Entry> entries = new LongObjectHashMap<Entry>(8);
+    private long ackIndex = -1;
+
+    private volatile long nextDeadline = NO_DEADLINE;
+
+    public synchronized void initAckIndex(long index) {
+        if (ackIndex == -1) {
+            ackIndex = index;
+        }
+    }
+
+    /**
+     * @param callback - ack callback
+     * @return ack index
+     */
+    public synchronized long register(AckCallback<?> callback) {
+        initAckIndex(0);
+        long index = ++ackIndex;
+
+        long now = System.currentTimeMillis();
+        long deadline = callback.getDeadline(now);
+        if (deadline == -1) {
+            deadline = NO_DEADLINE;
+        } else if (deadline < nextDeadline) {
+            nextDeadline = deadline;
+        }
+        entries.put(index, new Entry(callback, now, deadline));
+        return index;
+    }
+
+    public synchronized AckCallback<?> getCallback(long index) {
+        Entry entry = entries.get(index);
+        if (entry == null) {
+            return null;
+        }
+        return entry.callback;
+    }
+
+    public AckCallback<?> remove(long index) {
+        Entry entry = removeEntry(index);
+        if (entry == null) {
+            return null;
+        }
+        return entry.callback;
+    }
+
+    synchronized Entry removeEntry(long index) {
+        return entries.remove(index);
+    }
+
+    /**
+     * @return earliest timeout time in milliseconds, it may be already
+     * removed callback, or {@link Long#MAX_VALUE} if nothing to expire
+     */
+    public long getNextDeadline() {
+        return nextDeadline;
+    }
+
+    /**
+     * Removes callbacks with deadline before <code>now</code>
+     * and notifies them about timeout
+     *
+     * @param now - current time in milliseconds
+     */
+    public void expire(long now) {
+        List<AckCallback<?>> expired = Collections.emptyList();
+        synchronized (this) {
+            long next = NO_DEADLINE;
+            for (Iterator<LongObjectMap.PrimitiveEntry<Entry>> it = entries.entries().iterator(); it.hasNext();) {
+                Entry entry = it.next().value();
+                if (entry.deadline <= now) {
+                    if (expired.isEmpty()) {
+                        expired = new ArrayList<AckCallback<?>>();
+                    }
+                    expired.add(entry.callback);
+                    it.remove();
+                } else if (entry.deadline < next) {
+                    next = entry.deadline;
+                }
+            }
+            nextDeadline = next;
+        }
+
+        for (AckCallback<?> callback : expired) {
+            notifyTimeout(callback);
+        }
+    }
+
+    /**
+     * Removes all callbacks and notifies them about timeout
+     */
+    public void clear() {
+        List<AckCallback<?>> callbacks;
+        synchronized (this) {
+            callbacks = new ArrayList<AckCallback<?>>(entries.size());
+            for (Entry entry : entries.values()) {
+                callbacks.add(entry.callback);
+            }
+            entries.clear();
+            nextDeadline = NO_DEADLINE;
+        }
+
+        for (AckCallback<?> callback : callbacks) {
+            notifyTimeout(callback);
+        }
+    }
+
+    private void notifyTimeout(AckCallback<?> callback) {
+        try {
+            callback.onTimeout();
+        } catch (Exception e) {
+            // user callback must not break the rest of callbacks or the sweep
+            log.error("Ack timeout callback error", e);
+        }
+    }
+
+}
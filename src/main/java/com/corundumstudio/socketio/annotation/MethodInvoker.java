@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.annotation;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.corundumstudio.socketio.AckRequest;
+import com.corundumstudio.socketio.MultiTypeArgs;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.handler.SocketIOException;
+
+/**
+ * Invokes listener method without reflection and arguments array.
+ * <p>
+ * Invoker class is generated by {@link LambdaMetafactory} if runtime allows
+ * private lookup in method class (java 9+), otherwise method handle
+ * of the method is invoked.
+ */
+final class MethodInvoker {
+
+    private static final Logger log = LoggerFactory.getLogger(MethodInvoker.class);
+
+    static final int CLIENT = -1;
+    static final int ACK_REQUEST = -2;
+
+    // interfaces should be public, they're implemented by classes generated in the listener's package
+    public interface Invoker0 {
+        void invoke(Object target) throws Throwable;
+    }
+
+    public interface Invoker1 {
+        void invoke(Object target, Object a0) throws Throwable;
+    }
+
+    public interface Invoker2 {
+        void invoke(Object target, Object a0, Object a1) throws Throwable;
+    }
+
+    public interface Invoker3 {
+        void invoke(Object target, Object a0, Object a1, Object a2) throws Throwable;
+    }
+
+    public interface Invoker4 {
+        void invoke(Object target, Object a0, Object a1, Object a2, Object a3) throws Throwable;
+    }
+
+    private static final Class<?>[] INVOKERS = {Invoker0.class, Invoker1.class, Invoker2.class, Invoker3.class, Invoker4.class};
+
+    private static final Method PRIVATE_LOOKUP_IN = findPrivateLookupIn();
+
+    private final Object target;
+    private final int[] params;
+    private final Object invoker;
+
+    /**
+     * @param target - listener object
+     * @param method - listener method
+     * @param params - source of each method argument: {@link #CLIENT},
+     *                 {@link #ACK_REQUEST} or index of event data
+     */
+    MethodInvoker(Object target, Method method, int[] params) {
+        if (params.length != method.getParameterTypes().length) {
+            throw new IllegalArgumentException("Wrong params amount for " + method);
+        }
+        this.target = target;
+        this.params = params;
+        this.invoker = createInvoker(method);
+    }
+
+    private static Method findPrivateLookupIn() {
+        try {
+            return MethodHandles.class.getMethod("privateLookupIn", Class.class, Lookup.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static Object createInvoker(Method method) {
+        int arity = method.getParameterTypes().length;
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        if (arity < INVOKERS.length && !isStatic) {
+            Object invoker = generateInvoker(method, arity);
+            if (invoker != null) {
+                return invoker;
+            }
+        }
+
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Can't access listener method " + method, e);
+        }
+        if (isStatic) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        final MethodHandle h = handle.asType(MethodType.genericMethodType(arity + 1).changeReturnType(void.class));
+        switch (arity) {
+            case 0:
+                return (Invoker0) t -> {
+                    h.invokeExact(t);
+                };
+            case 1:
+                return (Invoker1) (t, a0) -> {
+                    h.invokeExact(t, a0);
+                };
+            case 2:
+                return (Invoker2) (t, a0, a1) -> {
+                    h.invokeExact(t, a0, a1);
+                };
+            case 3:
+                return (Invoker3) (t, a0, a1, a2) -> {
+                    h.invokeExact(t, a0, a1, a2);
+                };
+            case 4:
+                return (Invoker4) (t, a0, a1, a2, a3) -> {
+                    h.invokeExact(t, a0, a1, a2, a3);
+                };
+            default:
+                return h.asSpreader(Object[].class, arity);
+        }
+    }
+
+    private static Object generateInvoker(Method method, int arity) {
+        if (PRIVATE_LOOKUP_IN == null) {
+            // lambda class defined with our class loader may not see listener class
+            return null;
+        }
+        try {
+            Lookup caller = (Lookup) PRIVATE_LOOKUP_IN.invoke(null, method.getDeclaringClass(), MethodHandles.lookup());
+            MethodHandle impl = caller.unreflect(method);
+            Class<?> invokerClass = INVOKERS[arity];
+            MethodType invokeType = MethodType.genericMethodType(arity + 1).changeReturnType(void.class);
+            CallSite site = LambdaMetafactory.metafactory(caller, "invoke", MethodType.methodType(invokerClass),
+                                        invokeType, impl, impl.type().wrap().changeReturnType(void.class));
+            return site.getTarget().invoke();
+        } catch (Throwable e) {
+            log.debug("Can't generate invoker for {}, method handle is used", method, e);
+            return null;
+        }
+    }
+
+    private Object arg(int index, SocketIOClient client, AckRequest ackRequest, Object data, MultiTypeArgs args) {
+        int param = params[index];
+        if (param == CLIENT) {
+            return client;
+        }
+        if (param == ACK_REQUEST) {
+            return ackRequest;
+        }
+        if (args != null) {
+            return args.get(param);
+        }
+        return data;
+    }
+
+    void invoke(SocketIOClient client, AckRequest ackRequest, Object data) {
+        invoke(client, ackRequest, data, null);
+    }
+
+    void invoke(SocketIOClient client, AckRequest ackRequest, MultiTypeArgs args) {
+        invoke(client, ackRequest, null, args);
+    }
+
+    private void invoke(SocketIOClient client, AckRequest ackRequest, Object data, MultiTypeArgs args) {
+        try {
+            switch (params.length) {
+                case 0:
+                    ((Invoker0) invoker).invoke(target);
+                    break;
+                case 1:
+                    ((Invoker1) invoker).invoke(target,
+                            arg(0, client, ackRequest, data, args));
+                    break;
+                case 2:
+                    ((Invoker2) invoker).invoke(target,
+                            arg(0, client, ackRequest, data, args),
+                            arg(1, client, ackRequest, data, args));
+                    break;
+                case 3:
+                    ((Invoker3) invoker).invoke(target,
+                            arg(0, client, ackRequest, data, args),
+                            arg(1, client, ackRequest, data, args),
+                            arg(2, client, ackRequest, data, args));
+                    break;
+                case 4:
+                    ((Invoker4) invoker).invoke(target,
+                            arg(0, client, ackRequest, data, args),
+                            arg(1, client, ackRequest, data, args),
+                            arg(2, client, ackRequest, data, args),
+                            arg(3, client, ackRequest, data, args));
+                    break;
+                default:
+                    Object[] array = new Object[params.length];
+                    for (int i = 0; i < array.length; i++) {
+                        array[i] = arg(i, client, ackRequest, data, args);
+                    }
+                    ((MethodHandle) invoker).invokeExact(target, array);
+            }
+        } catch (Throwable e) {
+            throw new SocketIOException(e);
+        }
+    }
+
+}
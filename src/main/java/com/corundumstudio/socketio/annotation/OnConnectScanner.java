@@ -16,11 +16,9 @@
 package com.corundumstudio.socketio.annotation;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
 import com.corundumstudio.socketio.SocketIOClient;
-import com.corundumstudio.socketio.handler.SocketIOException;
 import com.corundumstudio.socketio.listener.ConnectListener;
 import com.corundumstudio.socketio.namespace.Namespace;
 
@@ -33,16 +31,11 @@ public class OnConnectScanner implements AnnotationScanner  {
 
     @Override
     public void addListener(Namespace namespace, final Object object, final Method method, Annotation annotation) {
+        final MethodInvoker invoker = new MethodInvoker(object, method, new int[] {MethodInvoker.CLIENT});
         namespace.addConnectListener(new ConnectListener() {
             @Override
             public void onConnect(SocketIOClient client) {
-                try {
-                    method.invoke(object, client);
-                } catch (InvocationTargetException e) {
-                    throw new SocketIOException(e.getCause());
-                } catch (Exception e) {
-                    throw new SocketIOException(e);
-                }
+                invoker.invoke(client, null, (Object) null);
             }
         });
     }
@@ -16,7 +16,6 @@
 package com.corundumstudio.socketio.annotation;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
@@ -24,7 +23,6 @@ import java.util.List;
 import com.corundumstudio.socketio.AckRequest;
 import com.corundumstudio.socketio.MultiTypeArgs;
 import com.corundumstudio.socketio.SocketIOClient;
-import com.corundumstudio.socketio.handler.SocketIOException;
 import com.corundumstudio.socketio.listener.DataListener;
 import com.corundumstudio.socketio.listener.MultiTypeEventListener;
 import com.corundumstudio.socketio.namespace.Namespace;
@@ -43,9 +41,8 @@ public class OnEventScanner implements AnnotationScanner {
         if (annotation.value() == null || annotation.value().trim().length() == 0) {
             throw new IllegalArgumentException("OnEvent \"value\" parameter is required");
         }
-        final int socketIOClientIndex = paramIndex(method, SocketIOClient.class);
-        final int ackRequestIndex = paramIndex(method, AckRequest.class);
         final List<Integer> dataIndexes = dataIndexes(method);
+        final MethodInvoker invoker = new MethodInvoker(object, method, invokerParams(method));
 
         if (dataIndexes.size() > 1) {
             List<Class<?>> classes = new ArrayList<Class<?>>();
@@ -57,25 +54,7 @@ public class OnEventScanner implements AnnotationScanner {
             namespace.addMultiTypeEventListener(annotation.value(), new MultiTypeEventListener() {
                 @Override
                 public void onData(SocketIOClient client, MultiTypeArgs data, AckRequest ackSender) {
-                    try {
-                        Object[] args = new Object[method.getParameterTypes().length];
-                        if (socketIOClientIndex != -1) {
-                            args[socketIOClientIndex] = client;
-                        }
-                        if (ackRequestIndex != -1) {
-                            args[ackRequestIndex] = ackSender;
-                        }
-                        int i = 0;
-                        for (int index : dataIndexes) {
-                            args[index] = data.get(i);
-                            i++;
-                        }
-                        method.invoke(object, args);
-                    } catch (InvocationTargetException e) {
-                        throw new SocketIOException(e.getCause());
-                    } catch (Exception e) {
-                        throw new SocketIOException(e);
-                    }
+                    invoker.invoke(client, ackSender, data);
                 }
             }, classes.toArray(new Class[0]));
         } else {
@@ -87,29 +66,28 @@ public class OnEventScanner implements AnnotationScanner {
             namespace.addEventListener(annotation.value(), objectType, new DataListener<Object>() {
                 @Override
                 public void onData(SocketIOClient client, Object data, AckRequest ackSender) {
-                    try {
-                        Object[] args = new Object[method.getParameterTypes().length];
-                        if (socketIOClientIndex != -1) {
-                            args[socketIOClientIndex] = client;
-                        }
-                        if (ackRequestIndex != -1) {
-                            args[ackRequestIndex] = ackSender;
-                        }
-                        if (!dataIndexes.isEmpty()) {
-                            int dataIndex = dataIndexes.iterator().next();
-                            args[dataIndex] = data;
-                        }
-                        method.invoke(object, args);
-                    } catch (InvocationTargetException e) {
-                        throw new SocketIOException(e.getCause());
-                    } catch (Exception e) {
-                        throw new SocketIOException(e);
-                    }
+                    invoker.invoke(client, ackSender, data);
                 }
             });
         }
     }
 
+    private int[] invokerParams(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        int[] result = new int[types.length];
+        int dataIndex = 0;
+        for (int i = 0; i < types.length; i++) {
+            if (types[i].equals(SocketIOClient.class)) {
+                result[i] = MethodInvoker.CLIENT;
+            } else if (types[i].equals(AckRequest.class)) {
+                result[i] = MethodInvoker.ACK_REQUEST;
+            } else {
+                result[i] = dataIndex++;
+            }
+        }
+        return result;
+    }
+
     private List<Integer> dataIndexes(Method method) {
         List<Integer> result = new ArrayList<Integer>();
         int index = 0;
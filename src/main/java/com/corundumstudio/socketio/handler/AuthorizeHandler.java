@@ -69,6 +69,7 @@ public class AuthorizeHandler extends ChannelInboundHandlerAdapter implements Di
     private static final Logger log = LoggerFactory.getLogger(AuthorizeHandler.class);
 
     private final CancelableScheduler scheduler;
+    private final HeartbeatScheduler heartbeatScheduler;
 
     private final String connectPath;
     private final Configuration configuration;
@@ -78,12 +79,13 @@ public class AuthorizeHandler extends ChannelInboundHandlerAdapter implements Di
     private final AckManager ackManager;
     private final ClientsBox clientsBox;
 
-    public AuthorizeHandler(String connectPath, CancelableScheduler scheduler, Configuration configuration, NamespacesHub namespacesHub, StoreFactory storeFactory,
-            DisconnectableHub disconnectable, AckManager ackManager, ClientsBox clientsBox) {
+    public AuthorizeHandler(String connectPath, CancelableScheduler scheduler, HeartbeatScheduler heartbeatScheduler, Configuration configuration,
+            NamespacesHub namespacesHub, StoreFactory storeFactory, DisconnectableHub disconnectable, AckManager ackManager, ClientsBox clientsBox) {
         super();
         this.connectPath = connectPath;
         this.configuration = configuration;
         this.scheduler = scheduler;
+        this.heartbeatScheduler = heartbeatScheduler;
         this.namespacesHub = namespacesHub;
         this.storeFactory = storeFactory;
         this.disconnectable = disconnectable;
@@ -94,7 +96,7 @@ public class AuthorizeHandler extends ChannelInboundHandlerAdapter implements Di
     @Override
     public void channelActive(final ChannelHandlerContext ctx) throws Exception {
         SchedulerKey key = new SchedulerKey(Type.PING_TIMEOUT, ctx.channel());
-        scheduler.schedule(key, new Runnable() {
+        scheduler.schedule(ctx.channel().eventLoop(), key, new Runnable() {
             @Override
             public void run() {
                 ctx.channel().close();
@@ -195,11 +197,12 @@ public class AuthorizeHandler extends ChannelInboundHandlerAdapter implements Di
             sessionId = this.generateOrGetSessionIdFromRequest(req.headers());
         }
 
-        ClientHead client = new ClientHead(sessionId, ackManager, disconnectable, storeFactory, data, clientsBox, transport, scheduler, configuration, params);
+        ClientHead client = new ClientHead(sessionId, ackManager, disconnectable, storeFactory, data, clientsBox, transport, heartbeatScheduler, configuration, params);
         Store store = client.getStore();
         storeParams.forEach(store::set);
         channel.attr(ClientHead.CLIENT).set(client);
         clientsBox.addClient(client);
+        configuration.getMetrics().clientConnected(transport);
 
         String[] transports = {};
         //:TODO lyjnew   Current WEBSOCKET retrun upgrade[] engine-io protocol
@@ -216,8 +219,7 @@ public class AuthorizeHandler extends ChannelInboundHandlerAdapter implements Di
         packet.setData(authPacket);
         client.send(packet);
 
-        client.schedulePing();
-        client.schedulePingTimeout();
+        client.startHeartbeat(channel.eventLoop());
         log.debug("Handshake authorized for sessionId: {}, query params: {} headers: {}", sessionId, params, headers);
         return true;
     }
@@ -287,7 +289,9 @@ public class AuthorizeHandler extends ChannelInboundHandlerAdapter implements Di
 
     @Override
     public void onDisconnect(ClientHead client) {
-        clientsBox.removeClient(client.getSessionId());
+        if (clientsBox.removeClient(client.getSessionId()) != null) {
+            configuration.getMetrics().clientDisconnected(client.getCurrentTransport());
+        }
     }
 
 }
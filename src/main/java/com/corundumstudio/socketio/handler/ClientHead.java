@@ -18,16 +18,15 @@ package com.corundumstudio.socketio.handler;
 import com.corundumstudio.socketio.Configuration;
 import com.corundumstudio.socketio.DisconnectableHub;
 import com.corundumstudio.socketio.HandshakeData;
+import com.corundumstudio.socketio.QueueOverflowPolicy;
 import com.corundumstudio.socketio.Transport;
 import com.corundumstudio.socketio.ack.AckManager;
+import com.corundumstudio.socketio.ack.AckRegistry;
 import com.corundumstudio.socketio.messages.OutPacketMessage;
 import com.corundumstudio.socketio.namespace.Namespace;
 import com.corundumstudio.socketio.protocol.EngineIOVersion;
 import com.corundumstudio.socketio.protocol.Packet;
 import com.corundumstudio.socketio.protocol.PacketType;
-import com.corundumstudio.socketio.scheduler.CancelableScheduler;
-import com.corundumstudio.socketio.scheduler.SchedulerKey;
-import com.corundumstudio.socketio.scheduler.SchedulerKey.Type;
 import com.corundumstudio.socketio.store.Store;
 import com.corundumstudio.socketio.store.StoreFactory;
 import com.corundumstudio.socketio.transport.NamespaceClient;
@@ -36,6 +35,8 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ImmediateExecutor;
 import io.netty.util.internal.PlatformDependent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,8 +44,9 @@ import org.slf4j.LoggerFactory;
 import java.net.SocketAddress;
 import java.util.*;
 import java.util.Map.Entry;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ClientHead {
 
@@ -53,6 +55,8 @@ public class ClientHead {
     public static final AttributeKey<ClientHead> CLIENT = AttributeKey.<ClientHead>valueOf("client");
 
     private final AtomicBoolean disconnected = new AtomicBoolean();
+    private final AtomicLong droppedPackets = new AtomicLong();
+    private final AtomicBoolean queueOverflowed = new AtomicBoolean();
     private final Map<Namespace, NamespaceClient> namespaceClients = PlatformDependent.newConcurrentHashMap();
     private final Map<Transport, TransportState> channels = new HashMap<Transport, TransportState>(2);
     private final HandshakeData handshakeData;
@@ -63,17 +67,25 @@ public class ClientHead {
     private final Store store;
     private final DisconnectableHub disconnectableHub;
     private final AckManager ackManager;
+    private final AckRegistry ackRegistry = new AckRegistry();
+    private final AtomicReference<SerialExecutor> eventExecutor = new AtomicReference<SerialExecutor>();
     private ClientsBox clientsBox;
-    private final CancelableScheduler scheduler;
+    private final HeartbeatScheduler heartbeatScheduler;
     private final Configuration configuration;
+    private final PollingBatch pollingBatch;
 
     private Packet lastBinaryPacket;
 
     // TODO use lazy set
     private volatile Transport currentTransport;
 
+    private volatile EventExecutor handshakeExecutor;
+    private volatile HeartbeatTable heartbeatTable;
+    private volatile int heartbeatSlot = -1;
+    private volatile boolean heartbeatStopped;
+
     public ClientHead(UUID sessionId, AckManager ackManager, DisconnectableHub disconnectable,
-                      StoreFactory storeFactory, HandshakeData handshakeData, ClientsBox clientsBox, Transport transport, CancelableScheduler scheduler,
+                      StoreFactory storeFactory, HandshakeData handshakeData, ClientsBox clientsBox, Transport transport, HeartbeatScheduler heartbeatScheduler,
                       Configuration configuration, Map<String, List<String>> params) {
         this.sessionId = sessionId;
         this.ackManager = ackManager;
@@ -82,8 +94,9 @@ public class ClientHead {
         this.handshakeData = handshakeData;
         this.clientsBox = clientsBox;
         this.currentTransport = transport;
-        this.scheduler = scheduler;
+        this.heartbeatScheduler = heartbeatScheduler;
         this.configuration = configuration;
+        this.pollingBatch = new PollingBatch(configuration);
 
         channels.put(Transport.POLLING, new TransportState());
         channels.put(Transport.WEBSOCKET, new TransportState());
@@ -106,6 +119,11 @@ public class ClientHead {
         }
         clientsBox.add(channel, this);
 
+        if (queueOverflowed.get()) {
+            // disconnect requested by overflow policy while channel wasn't bound
+            channel.close();
+            return;
+        }
         sendPackets(transport, channel);
     }
 
@@ -125,58 +143,323 @@ public class ClientHead {
         return send(packet, getCurrentTransport());
     }
 
-    public void cancelPing() {
-        SchedulerKey key = new SchedulerKey(Type.PING, sessionId);
-        scheduler.cancel(key);
+    /**
+     * Starts ping sending and ping timeout detection
+     *
+     * @param executor - event loop of handshake channel
+     */
+    public void startHeartbeat(EventExecutor executor) {
+        handshakeExecutor = executor;
+        HeartbeatTable table = heartbeatScheduler.getTable(executor);
+        heartbeatTable = table;
+        table.register(this);
     }
-    public void cancelPingTimeout() {
-        SchedulerKey key = new SchedulerKey(Type.PING_TIMEOUT, sessionId);
-        scheduler.cancel(key);
+
+    /**
+     * @return event loop of current transport channel,
+     * or of handshake channel if current one is released
+     */
+    public EventExecutor getEventLoop() {
+        Channel channel = channels.get(getCurrentTransport()).getChannel();
+        if (channel != null) {
+            return channel.eventLoop();
+        }
+        return handshakeExecutor;
     }
 
-    public void schedulePing() {
-        cancelPing();
-        final SchedulerKey key = new SchedulerKey(Type.PING, sessionId);
-        scheduler.schedule(key, new Runnable() {
-            @Override
-            public void run() {
-                ClientHead client = clientsBox.get(sessionId);
-                if (client != null) {
-                    EngineIOVersion version = client.getEngineIOVersion();
-                    //only send ping packet for engine.io version 4
-                    if (EngineIOVersion.V4.equals(version)) {
-                        client.send(new Packet(PacketType.PING, version));
-                    }
-                    schedulePing();
-                }
+    /**
+     * Returns executor which runs offloaded events of this client
+     * one by one in order of receiving, whatever executor
+     * each event is submitted with
+     *
+     * @return executor
+     */
+    public SerialExecutor getEventExecutor() {
+        SerialExecutor executor = eventExecutor.get();
+        if (executor == null) {
+            executor = new SerialExecutor(ImmediateExecutor.INSTANCE);
+            if (!eventExecutor.compareAndSet(null, executor)) {
+                executor = eventExecutor.get();
             }
-        }, configuration.getPingInterval(), TimeUnit.MILLISECONDS);
+        }
+        return executor;
+    }
+
+    public void stopHeartbeat() {
+        heartbeatStopped = true;
+        HeartbeatTable table = heartbeatTable;
+        int slot = heartbeatSlot;
+        if (table != null && slot != -1) {
+            heartbeatSlot = -1;
+            table.unregister(this, slot);
+        }
     }
 
+    /**
+     * Postpones ping timeout, invoked on each inbound packet
+     */
+    public void onActivity() {
+        HeartbeatTable table = heartbeatTable;
+        int slot = heartbeatSlot;
+        if (table != null && slot != -1) {
+            table.touch(slot);
+        }
+    }
+
+    /**
+     * @deprecated pings are sent by heartbeat table,
+     *             use {@link #startHeartbeat(EventExecutor)} instead
+     */
+    @Deprecated
+    public void schedulePing() {
+        resumeHeartbeat();
+    }
+
+    /**
+     * @deprecated ping timeout is checked by heartbeat table,
+     *             use {@link #onActivity()} instead
+     */
+    @Deprecated
     public void schedulePingTimeout() {
-        cancelPingTimeout();
-        SchedulerKey key = new SchedulerKey(Type.PING_TIMEOUT, sessionId);
-        scheduler.schedule(key, new Runnable() {
-            @Override
-            public void run() {
-                ClientHead client = clientsBox.get(sessionId);
-                if (client != null) {
-                    client.disconnect();
-                    log.debug("{} removed due to ping timeout", sessionId);
-                }
-            }
-        }, configuration.getPingTimeout() + configuration.getPingInterval(), TimeUnit.MILLISECONDS);
+        resumeHeartbeat();
+        onActivity();
     }
 
+    /**
+     * Stops both ping sending and ping timeout detection
+     *
+     * @deprecated use {@link #stopHeartbeat()} instead
+     */
+    @Deprecated
+    public void cancelPing() {
+        stopHeartbeat();
+    }
+
+    /**
+     * Stops both ping sending and ping timeout detection
+     *
+     * @deprecated use {@link #stopHeartbeat()} instead
+     */
+    @Deprecated
+    public void cancelPingTimeout() {
+        stopHeartbeat();
+    }
+
+    private synchronized void resumeHeartbeat() {
+        HeartbeatTable table = heartbeatTable;
+        if (table != null && heartbeatStopped && !disconnected.get()) {
+            heartbeatStopped = false;
+            table.register(this);
+        }
+    }
+
+    boolean isHeartbeatStopped() {
+        return heartbeatStopped;
+    }
+
+    void setHeartbeatSlot(int slot) {
+        heartbeatSlot = slot;
+    }
+
+    void onPingTime() {
+        if (clientsBox.get(sessionId) == null) {
+            return;
+        }
+        //only send ping packet for engine.io version 4
+        if (EngineIOVersion.V4.equals(engineIOVersion)) {
+            send(new Packet(PacketType.PING, engineIOVersion));
+        }
+    }
+
+    void onPingTimeout() {
+        if (clientsBox.get(sessionId) != null) {
+            disconnect();
+            log.debug("{} removed due to ping timeout", sessionId);
+        }
+    }
+
+    /**
+     * Queues packet and schedules its write to transport channel.
+     * Packets sent while write is already scheduled are written by it.
+     *
+     * @param packet - packet
+     * @param transport - transport
+     * @return write future or <code>null</code> if packet is written by already scheduled write,
+     * or channel isn't bound
+     */
     public ChannelFuture send(Packet packet, Transport transport) {
+        return send(packet, transport, true);
+    }
+
+    private ChannelFuture send(Packet packet, Transport transport, boolean coalesce) {
+        Channel channel = queue(packet, transport);
+        if (channel == null) {
+            return null;
+        }
+        if (!coalesce) {
+            return sendPackets(transport, channel);
+        }
         TransportState state = channels.get(transport);
-        state.getPacketsQueue().add(packet);
+        if (!state.scheduleDrain()) {
+            return null;
+        }
+        // a single write task per burst of packets sent from other threads
+        return sendPackets(transport, channel).addListener(state);
+    }
+
+    /**
+     * Queues packet like {@link #send(Packet)}, but leaves its write to the caller.
+     * Allows to write packets of many clients by a single event loop task.
+     *
+     * @param packet - packet
+     * @return transport which packets should be written by {@link #drainPackets(Transport)},
+     * or <code>null</code> if write is already scheduled or channel isn't bound
+     */
+    public Transport queuePacket(Packet packet) {
+        Transport transport = getCurrentTransport();
+        if (queue(packet, transport) == null
+                || !channels.get(transport).scheduleDrain()) {
+            return null;
+        }
+        return transport;
+    }
 
+    /**
+     * Writes packets queued by {@link #queuePacket(Packet)}
+     *
+     * @param transport - transport returned by {@link #queuePacket(Packet)}
+     */
+    public void drainPackets(Transport transport) {
+        TransportState state = channels.get(transport);
+        Channel channel = state.getChannel();
+        if (channel == null) {
+            // packets are written once channel is bound
+            state.onDrain();
+            return;
+        }
+        sendPackets(transport, channel).addListener(state);
+    }
+
+    /**
+     * @return channel to write queued packet to,
+     * or <code>null</code> if it can't be written now
+     */
+    private Channel queue(Packet packet, Transport transport) {
+        if (!packet.isEncoded()) {
+            // queued packet keeps reference counted arguments until it's encoded
+            packet.retainData();
+        }
+        TransportState state = channels.get(transport);
         Channel channel = state.getChannel();
+        if (disconnected.get() && (channel == null || !channel.isActive())) {
+            // nobody will write it
+            packet.release();
+            return null;
+        }
+
+        if (!enqueue(transport, state, packet)) {
+            return null;
+        }
+
         if (channel == null
                 || (transport == Transport.POLLING && channel.attr(EncoderHandler.WRITE_ONCE).get() != null)) {
             return null;
         }
+        return channel;
+    }
+
+    private boolean enqueue(Transport transport, TransportState state, Packet packet) {
+        Queue<Packet> queue = state.getPacketsQueue();
+        int limit = configuration.getMaxPacketsQueueSize();
+        int size = queue.size();
+        if (limit <= 0 || size < limit || isWritable(transport, state.getChannel())) {
+            queue.add(packet);
+            configuration.getMetrics().packetQueued(size + 1);
+            return true;
+        }
+
+        QueueOverflowPolicy policy = configuration.getQueueOverflowPolicy();
+        if (policy == QueueOverflowPolicy.DROP_NEWEST) {
+            drop(packet);
+            return false;
+        }
+        if (policy == QueueOverflowPolicy.DISCONNECT) {
+            drop(packet);
+            if (!disconnected.get() && queueOverflowed.compareAndSet(false, true)) {
+                log.warn("Packets queue limit {} exceeded, disconnecting slow client {}", limit, sessionId);
+                // cleanup is done by transport on channel inactivation, in channel event loop
+                for (TransportState transportState : channels.values()) {
+                    Channel channel = transportState.getChannel();
+                    if (channel != null) {
+                        channel.close();
+                    }
+                }
+            }
+            return false;
+        }
+
+        if (policy != QueueOverflowPolicy.COALESCE || !coalesce(queue, packet)) {
+            Packet oldest = queue.poll();
+            if (oldest != null) {
+                drop(oldest);
+            }
+        }
+        queue.add(packet);
+        return true;
+    }
+
+    /**
+     * Websocket channel below its write buffer high water mark
+     * takes queued packets right away, so queue limit doesn't apply to it.
+     */
+    private boolean isWritable(Transport transport, Channel channel) {
+        return transport == Transport.WEBSOCKET
+                && channel != null
+                && channel.isActive()
+                && channel.isWritable();
+    }
+
+    private boolean coalesce(Queue<Packet> queue, Packet packet) {
+        if (!isCoalescable(packet)) {
+            return false;
+        }
+        for (Packet queued : queue) {
+            if (isCoalescable(queued)
+                    && packet.getName().equals(queued.getName())
+                    && Objects.equals(packet.getNsp(), queued.getNsp())
+                    && queue.remove(queued)) {
+                drop(queued);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isCoalescable(Packet packet) {
+        // acks can't be dropped silently
+        return packet.getSubType() == PacketType.EVENT
+                && packet.getName() != null
+                && packet.getAckId() == null;
+    }
+
+    private void drop(Packet packet) {
+        droppedPackets.incrementAndGet();
+        configuration.getMetrics().packetDropped();
+        packet.release();
+        log.debug("Packet {} dropped for client {}", packet, sessionId);
+    }
+
+    /**
+     * Writes queued packets to transport channel
+     *
+     * @param transport - transport
+     * @return write future or <code>null</code> if channel isn't bound
+     */
+    public ChannelFuture sendPackets(Transport transport) {
+        Channel channel = channels.get(transport).getChannel();
+        if (channel == null) {
+            return null;
+        }
         return sendPackets(transport, channel);
     }
 
@@ -184,6 +467,21 @@ public class ClientHead {
         return channel.writeAndFlush(new OutPacketMessage(this, transport));
     }
 
+    /**
+     * @return amount of packets dropped due to packets queue limit
+     */
+    public long getDroppedPackets() {
+        return droppedPackets.get();
+    }
+
+    /**
+     * @return <code>true</code> if client should be disconnected
+     *          due to {@link QueueOverflowPolicy#DISCONNECT}
+     */
+    public boolean isQueueOverflowed() {
+        return queueOverflowed.get();
+    }
+
     public void removeNamespaceClient(NamespaceClient client) {
         namespaceClients.remove(client.getNamespace());
         if (namespaceClients.isEmpty()) {
@@ -210,10 +508,15 @@ public class ClientHead {
     }
 
     public void onChannelDisconnect() {
-        cancelPing();
-        cancelPingTimeout();
+        stopHeartbeat();
 
         disconnected.set(true);
+        Packet binaryPacket = lastBinaryPacket;
+        if (binaryPacket != null) {
+            // attachments which never arrived
+            lastBinaryPacket = null;
+            binaryPacket.releaseAttachments();
+        }
         for (NamespaceClient client : namespaceClients.values()) {
             client.onDisconnect();
         }
@@ -221,6 +524,10 @@ public class ClientHead {
             if (state.getChannel() != null) {
                 clientsBox.remove(state.getChannel());
             }
+            if (state.getChannel() == null || !state.getChannel().isActive()) {
+                // nobody will write these packets anymore
+                state.releasePackets();
+            }
         }
     }
 
@@ -232,6 +539,10 @@ public class ClientHead {
         return ackManager;
     }
 
+    public AckRegistry getAckRegistry() {
+        return ackRegistry;
+    }
+
     public UUID getSessionId() {
         return sessionId;
     }
@@ -243,7 +554,8 @@ public class ClientHead {
     public void disconnect() {
         Packet packet = new Packet(PacketType.MESSAGE, engineIOVersion);
         packet.setSubType(PacketType.DISCONNECT);
-        ChannelFuture future = send(packet);
+        // own write future is needed to close channel after packet
+        ChannelFuture future = send(packet, getCurrentTransport(), false);
 		if(future != null) {
 			future.addListener(ChannelFutureListener.CLOSE);
 		}
@@ -283,7 +595,11 @@ public class ClientHead {
                 state.setPacketsQueue(queue);
 
                 sendPackets(currentTransport, state.getChannel());
+                Transport prevTransport = this.currentTransport;
                 this.currentTransport = currentTransport;
+                if (prevTransport != currentTransport) {
+                    configuration.getMetrics().transportUpgraded(prevTransport, currentTransport);
+                }
                 log.debug("Transport upgraded to: {} for: {}", currentTransport, sessionId);
                 break;
             }
@@ -294,6 +610,17 @@ public class ClientHead {
         return currentTransport;
     }
 
+    /**
+     * Invoked by encoder before draining packets queue
+     */
+    void onDrain(Transport transport) {
+        channels.get(transport).onDrain();
+    }
+
+    PollingBatch getPollingBatch() {
+        return pollingBatch;
+    }
+
     public Queue<Packet> getPacketsQueue(Transport transport) {
         return channels.get(transport).getPacketsQueue();
     }
@@ -24,11 +24,13 @@ import com.corundumstudio.socketio.messages.HttpMessage;
 import com.corundumstudio.socketio.messages.OutPacketMessage;
 import com.corundumstudio.socketio.messages.XHROptionsMessage;
 import com.corundumstudio.socketio.messages.XHRPostMessage;
+import com.corundumstudio.socketio.metrics.SocketIOMetrics;
 import com.corundumstudio.socketio.protocol.Packet;
 import com.corundumstudio.socketio.protocol.PacketEncoder;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
@@ -75,6 +77,7 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
     public static final AttributeKey<Boolean> B64 = AttributeKey.valueOf("b64");
     public static final AttributeKey<Integer> JSONP_INDEX = AttributeKey.valueOf("jsonpIndex");
     public static final AttributeKey<Boolean> WRITE_ONCE = AttributeKey.valueOf("writeOnce");
+    public static final AttributeKey<Boolean> HTTP_KEEP_ALIVE = AttributeKey.valueOf("httpKeepAlive");
 
     private static final Logger log = LoggerFactory.getLogger(EncoderHandler.class);
 
@@ -82,10 +85,14 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
 
     private String version;
     private Configuration configuration;
+    private final SocketIOMetrics metrics;
+    private final boolean timing;
 
     public EncoderHandler(Configuration configuration, PacketEncoder encoder) throws IOException {
         this.encoder = encoder;
         this.configuration = configuration;
+        this.metrics = configuration.getMetrics();
+        this.timing = metrics != SocketIOMetrics.NOOP;
 
         if (configuration.isAddVersionHeader()) {
             readVersion();
@@ -122,6 +129,8 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
         String origin = ctx.channel().attr(ORIGIN).get();
         addOriginHeaders(origin, res);
 
+        HttpUtil.setContentLength(res, 0);
+
         ByteBuf out = encoder.allocateBuffer(ctx.alloc());
         sendMessage(msg, ctx.channel(), out, res, promise);
     }
@@ -133,6 +142,12 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
     }
 
     private void sendMessage(HttpMessage msg, Channel channel, ByteBuf out, String type, ChannelPromise promise, HttpResponseStatus status) {
+        HttpResponse res = createResponse(msg, channel, type, status);
+        HttpUtil.setContentLength(res, out.readableBytes());
+        sendMessage(msg, channel, out, res, promise);
+    }
+
+    private HttpResponse createResponse(HttpMessage msg, Channel channel, String type, HttpResponseStatus status) {
         HttpResponse res = new DefaultHttpResponse(HTTP_1_1, status);
 
         res.headers().add(HttpHeaderNames.CONTENT_TYPE, type)
@@ -144,19 +159,20 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
         String origin = channel.attr(ORIGIN).get();
         addOriginHeaders(origin, res);
 
-        HttpUtil.setContentLength(res, out.readableBytes());
-
         // prevent XSS warnings on IE
         // https://github.com/LearnBoost/socket.io/pull/1333
         String userAgent = channel.attr(EncoderHandler.USER_AGENT).get();
         if (userAgent != null && (userAgent.contains(";MSIE") || userAgent.contains("Trident/"))) {
             res.headers().add("X-XSS-Protection", "0");
         }
-
-        sendMessage(msg, channel, out, res, promise);
+        return res;
     }
 
     private void sendMessage(HttpMessage msg, Channel channel, ByteBuf out, HttpResponse res, ChannelPromise promise) {
+        boolean keepAlive = isKeepAlive(channel, res);
+        if (!keepAlive) {
+            res.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        }
         channel.write(res);
 
         if (log.isTraceEnabled()) {
@@ -173,8 +189,45 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
             out.release();
         }
 
-        channel.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT, promise).addListener(ChannelFutureListener.CLOSE);
+        finishResponse(channel, promise, keepAlive);
     }
+
+    /**
+     * Writes each chunk as is, broadcast packets content isn't copied to the response
+     */
+    private void sendChunks(HttpMessage msg, Channel channel, List<ByteBuf> chunks, ChannelPromise promise) {
+        HttpResponse res = createResponse(msg, channel, "application/octet-stream", HttpResponseStatus.OK);
+        HttpUtil.setTransferEncodingChunked(res, true);
+        boolean keepAlive = isKeepAlive(channel, res);
+        if (!keepAlive) {
+            res.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        }
+        channel.write(res);
+
+        for (ByteBuf chunk : chunks) {
+            if (log.isTraceEnabled()) {
+                log.trace("Out chunk: {} - sessionId: {}", ByteBufUtil.hexDump(chunk), msg.getSessionId());
+            }
+            channel.write(new DefaultHttpContent(chunk));
+        }
+
+        finishResponse(channel, promise, keepAlive);
+    }
+
+    private void finishResponse(Channel channel, ChannelPromise promise, boolean keepAlive) {
+        ChannelFuture future = channel.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT, promise);
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private boolean isKeepAlive(Channel channel, HttpResponse res) {
+        // error responses still close connection
+        return configuration.isHttpKeepAlive()
+                && HttpResponseStatus.OK.equals(res.status())
+                && Boolean.TRUE.equals(channel.attr(HTTP_KEEP_ALIVE).get());
+    }
+
     private void sendError(HttpErrorMessage errorMsg, ChannelHandlerContext ctx, ChannelPromise promise) throws IOException {
         final ByteBuf encBuf = encoder.allocateBuffer(ctx.alloc());
         ByteBufOutputStream out = new ByteBufOutputStream(encBuf);
@@ -215,6 +268,7 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
 
         if (msg instanceof OutPacketMessage) {
             OutPacketMessage m = (OutPacketMessage) msg;
+            m.getClientHead().onDrain(m.getTransport());
             if (m.getTransport() == Transport.WEBSOCKET) {
                 handleWebsocket((OutPacketMessage) msg, ctx, promise);
             }
@@ -233,55 +287,101 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
 
     private static final int FRAME_BUFFER_SIZE = 8192;
 
+    private static final ByteBuf BINARY_HEADER = Unpooled.unreleasableBuffer(Unpooled.directBuffer(1, 1).writeByte(4));
+
 
     private void handleWebsocket(final OutPacketMessage msg, ChannelHandlerContext ctx, ChannelPromise promise) throws IOException {
         ChannelFutureList writeFutureList = new ChannelFutureList();
+        // frames are written without flush and flushed once per batch
+        int batchSize = Math.max(1, configuration.getWebsocketWriteBatchSize());
+        int unflushed = 0;
+        // with bounded packets queue slow client accumulates packets there, not in channel buffer
+        boolean deferUnwritable = configuration.getMaxPacketsQueueSize() > 0;
+
+        try {
+            while (true) {
+                Queue<Packet> queue = msg.getClientHead().getPacketsQueue(msg.getTransport());
+                if (deferUnwritable && !ctx.channel().isWritable()) {
+                    // the rest is sent once channel becomes writable
+                    break;
+                }
+                Packet packet = queue.poll();
+                if (packet == null) {
+                    break;
+                }
 
-        while (true) {
-            Queue<Packet> queue = msg.getClientHead().getPacketsQueue(msg.getTransport());
-            Packet packet = queue.poll();
-            if (packet == null) {
-                writeFutureList.setChannelPromise(promise);
-                break;
-            }
+                ByteBuf out;
+                if (packet.isEncoded()) {
+                    // content shared with other clients, frame takes ownership of the packet's reference
+                    out = packet.getEncoded();
+                } else {
+                    out = encoder.allocateBuffer(ctx.alloc());
+                    long encodeStart = timing ? System.nanoTime() : 0;
+                    try {
+                        encoder.encodePacket(packet, out, ctx.alloc(), true);
+                    } catch (IOException | RuntimeException e) {
+                        out.release();
+                        packet.releaseAttachments();
+                        throw e;
+                    } finally {
+                        // attachments hold their own references
+                        packet.releaseData();
+                    }
+                    if (timing) {
+                        metrics.encodeTime(System.nanoTime() - encodeStart);
+                    }
+                }
+                metrics.packetSent(packet.getNsp(), packet.getName(), out.readableBytes());
 
-            ByteBuf out = encoder.allocateBuffer(ctx.alloc());
-            encoder.encodePacket(packet, out, ctx.alloc(), true);
+                if (log.isTraceEnabled()) {
+                    log.trace("Out message: {} sessionId: {}", out.toString(CharsetUtil.UTF_8), msg.getSessionId());
+                }
+                if (out.isReadable() && out.readableBytes() > configuration.getMaxFramePayloadLength()) {
+                    ByteBuf dstStart = out.readSlice(FRAME_BUFFER_SIZE);
+                    dstStart.retain();
+                    WebSocketFrame start = new TextWebSocketFrame(false, 0, dstStart);
+                    writeFutureList.add(ctx.channel().write(start));
+                    while (out.isReadable()) {
+                        int re = Math.min(out.readableBytes(), FRAME_BUFFER_SIZE);
+                        ByteBuf dst = out.readSlice(re);
+                        dst.retain();
+                        WebSocketFrame res = new ContinuationWebSocketFrame(!out.isReadable(), 0, dst);
+                        writeFutureList.add(ctx.channel().write(res));
+                    }
+                    out.release();
+                    unflushed++;
+                } else if (out.isReadable()){
+                    WebSocketFrame res = new TextWebSocketFrame(out);
+                    writeFutureList.add(ctx.channel().write(res));
+                    unflushed++;
+                } else {
+                    out.release();
+                }
 
-            if (log.isTraceEnabled()) {
-                log.trace("Out message: {} sessionId: {}", out.toString(CharsetUtil.UTF_8), msg.getSessionId());
-            }
-            if (out.isReadable() && out.readableBytes() > configuration.getMaxFramePayloadLength()) {
-                ByteBuf dstStart = out.readSlice(FRAME_BUFFER_SIZE);
-                dstStart.retain();
-                WebSocketFrame start = new TextWebSocketFrame(false, 0, dstStart);
-                ctx.channel().write(start);
-                while (out.isReadable()) {
-                    int re = Math.min(out.readableBytes(), FRAME_BUFFER_SIZE);
-                    ByteBuf dst = out.readSlice(re);
-                    dst.retain();
-                    WebSocketFrame res = new ContinuationWebSocketFrame(!out.isReadable(), 0, dst);
-                    ctx.channel().write(res);
+                for (ByteBuf buf : packet.getAttachments()) {
+                    // attachment content isn't copied, frame takes its own reference
+                    ByteBuf outBuf = Unpooled.wrappedBuffer(BINARY_HEADER.duplicate(), buf.retainedDuplicate());
+                    if (log.isTraceEnabled()) {
+                        log.trace("Out attachment: {} sessionId: {}", ByteBufUtil.hexDump(outBuf), msg.getSessionId());
+                    }
+                    writeFutureList.add(ctx.channel().write(new BinaryWebSocketFrame(outBuf)));
+                    unflushed++;
                 }
-                out.release();
-                ctx.channel().flush();
-            } else if (out.isReadable()){
-                WebSocketFrame res = new TextWebSocketFrame(out);
-                ctx.channel().writeAndFlush(res);
-            } else {
-                out.release();
-            }
+                packet.releaseAttachments();
 
-            for (ByteBuf buf : packet.getAttachments()) {
-                ByteBuf outBuf = encoder.allocateBuffer(ctx.alloc());
-                outBuf.writeByte(4);
-                outBuf.writeBytes(buf);
-                if (log.isTraceEnabled()) {
-                    log.trace("Out attachment: {} sessionId: {}", ByteBufUtil.hexDump(outBuf), msg.getSessionId());
+                if (unflushed >= batchSize) {
+                    ctx.channel().flush();
+                    unflushed = 0;
                 }
-                writeFutureList.add(ctx.channel().writeAndFlush(new BinaryWebSocketFrame(outBuf)));
+            }
+        } finally {
+            if (unflushed > 0) {
+                ctx.channel().flush();
             }
         }
+        // completed only after the last frames are flushed,
+        // so listeners (e.g. close on disconnect) never run ahead of them
+        writeFutureList.setChannelPromise(promise);
     }
 
     private void handleHTTP(OutPacketMessage msg, ChannelHandlerContext ctx, ChannelPromise promise) throws IOException {
@@ -295,18 +395,47 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
             return;
         }
 
-        ByteBuf out = encoder.allocateBuffer(ctx.alloc());
+        // batch limits are adapted to how fast client polls again
+        PollingBatch batch = msg.getClientHead().getPollingBatch();
+        batch.onPoll(System.nanoTime());
+
         Boolean b64 = ctx.channel().attr(EncoderHandler.B64).get();
+        long encodeStart = timing ? System.nanoTime() : 0;
         if (b64 != null && b64) {
             Integer jsonpIndex = ctx.channel().attr(EncoderHandler.JSONP_INDEX).get();
-            encoder.encodeJsonP(jsonpIndex, queue, out, ctx.alloc(), 50);
+            ByteBuf out = encoder.allocateBuffer(ctx.alloc());
+            encoder.encodeJsonP(jsonpIndex, queue, out, ctx.alloc(), batch.getSize(), batch.getBytes());
+            if (timing) {
+                metrics.encodeTime(System.nanoTime() - encodeStart);
+            }
+            batch.onResponse(System.nanoTime(), !queue.isEmpty());
             String type = "application/javascript";
             if (jsonpIndex == null) {
                 type = "text/plain";
             }
             sendMessage(msg, channel, out, type, promise, HttpResponseStatus.OK);
+        } else if (configuration.isChunkedPollingResponse()) {
+            List<ByteBuf> chunks = new ArrayList<ByteBuf>();
+            try {
+                encoder.encodePacketChunks(queue, chunks, ctx.alloc(), batch.getSize(), batch.getBytes());
+            } catch (IOException | RuntimeException e) {
+                for (ByteBuf chunk : chunks) {
+                    chunk.release();
+                }
+                throw e;
+            }
+            if (timing) {
+                metrics.encodeTime(System.nanoTime() - encodeStart);
+            }
+            batch.onResponse(System.nanoTime(), !queue.isEmpty());
+            sendChunks(msg, channel, chunks, promise);
         } else {
-            encoder.encodePackets(queue, out, ctx.alloc(), 50);
+            ByteBuf out = encoder.allocateBuffer(ctx.alloc());
+            encoder.encodePackets(queue, out, ctx.alloc(), batch.getSize(), batch.getBytes());
+            if (timing) {
+                metrics.encodeTime(System.nanoTime() - encodeStart);
+            }
+            batch.onResponse(System.nanoTime(), !queue.isEmpty());
             sendMessage(msg, channel, out, "application/octet-stream", promise, HttpResponseStatus.OK);
         }
     }
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import java.util.concurrent.ConcurrentMap;
+
+import com.corundumstudio.socketio.Configuration;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Sends ping packets and disconnects clients without activity.
+ * Clients are kept in a heartbeat table of event loop they handshaked on.
+ * Ack timeouts of these clients are expired by the same sweep,
+ * so they are late by one sweep interval at most as well.
+ */
+public class HeartbeatScheduler {
+
+    private static final long MAX_SWEEP_INTERVAL = 1000;
+
+    private final ConcurrentMap<EventExecutor, HeartbeatTable> tables = PlatformDependent.newConcurrentHashMap();
+
+    private final long pingInterval;
+    private final long pingTimeout;
+    private final long sweepInterval;
+
+    public HeartbeatScheduler(Configuration configuration) {
+        this.pingInterval = configuration.getPingInterval();
+        this.pingTimeout = configuration.getPingTimeout();
+        // ping and timeout can be late by one sweep interval only
+        this.sweepInterval = Math.max(1, Math.min(MAX_SWEEP_INTERVAL, Math.min(pingInterval, pingTimeout) / 4));
+    }
+
+    HeartbeatTable getTable(EventExecutor executor) {
+        return tables.computeIfAbsent(executor, e -> new HeartbeatTable(e, pingInterval, pingTimeout, sweepInterval));
+    }
+
+    public void shutdown() {
+        for (HeartbeatTable table : tables.values()) {
+            table.shutdown();
+        }
+        tables.clear();
+    }
+
+}
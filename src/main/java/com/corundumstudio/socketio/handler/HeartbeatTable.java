@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import java.util.Arrays;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.corundumstudio.socketio.ack.AckRegistry;
+
+import io.netty.util.concurrent.EventExecutor;
+
+/**
+ * Heartbeat state of clients handshaked on single event loop.
+ * <p>
+ * Each client owns a slot with its last activity time. Inbound packets only
+ * write coarse time of the last sweep to the slot, ping packets, ping timeouts and
+ * ack timeouts are handled by periodic sweep over all slots. Since recorded activity can be
+ * one sweep interval old, timeout check allows one sweep interval more. Slots are allocated, released
+ * and swept by event loop thread only, activity may be written by any thread.
+ */
+class HeartbeatTable {
+
+    private static final Logger log = LoggerFactory.getLogger(HeartbeatTable.class);
+
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final EventExecutor executor;
+    private final long pingInterval;
+    private final long activityTimeout;
+    private final ScheduledFuture<?> sweepFuture;
+
+    // pages are never moved, so concurrent writes aren't lost on growth
+    private volatile AtomicLongArray[] activity = new AtomicLongArray[0];
+    private long[] nextPing = new long[0];
+    private ClientHead[] clients = new ClientHead[0];
+    private int[] freeSlots = new int[0];
+    private int freeCount;
+    private int size;
+
+    // coarse clock updated on each sweep, so activity writes don't read system time
+    private volatile long now = System.currentTimeMillis();
+
+    HeartbeatTable(EventExecutor executor, long pingInterval, long pingTimeout, long sweepInterval) {
+        this.executor = executor;
+        this.pingInterval = pingInterval;
+        // grace of one sweep for activity recorded with coarse clock
+        this.activityTimeout = pingInterval + pingTimeout + sweepInterval;
+        this.sweepFuture = executor.scheduleAtFixedRate(this::sweep, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+    }
+
+    void register(ClientHead client) {
+        if (executor.inEventLoop()) {
+            doRegister(client);
+        } else {
+            executor.execute(() -> doRegister(client));
+        }
+    }
+
+    private void doRegister(ClientHead client) {
+        if (client.isHeartbeatStopped()) {
+            return;
+        }
+
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            slot = size++;
+            ensureCapacity(size);
+        }
+
+        long time = System.currentTimeMillis();
+        now = time;
+        clients[slot] = client;
+        nextPing[slot] = time + pingInterval;
+        page(slot).set(slot & PAGE_MASK, time);
+        client.setHeartbeatSlot(slot);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= clients.length) {
+            return;
+        }
+
+        int newCapacity = Math.max(PAGE_SIZE, clients.length << 1);
+        clients = Arrays.copyOf(clients, newCapacity);
+        nextPing = Arrays.copyOf(nextPing, newCapacity);
+        freeSlots = Arrays.copyOf(freeSlots, newCapacity);
+
+        AtomicLongArray[] pages = Arrays.copyOf(activity, newCapacity >> PAGE_SHIFT);
+        for (int i = activity.length; i < pages.length; i++) {
+            pages[i] = new AtomicLongArray(PAGE_SIZE);
+        }
+        activity = pages;
+    }
+
+    private AtomicLongArray page(int slot) {
+        return activity[slot >> PAGE_SHIFT];
+    }
+
+    /**
+     * Marks client activity
+     *
+     * @param slot - client slot
+     */
+    void touch(int slot) {
+        page(slot).lazySet(slot & PAGE_MASK, now);
+    }
+
+    void unregister(ClientHead client, int slot) {
+        if (executor.inEventLoop()) {
+            doUnregister(client, slot);
+        } else {
+            executor.execute(() -> doUnregister(client, slot));
+        }
+    }
+
+    private void doUnregister(ClientHead client, int slot) {
+        if (slot >= size || clients[slot] != client) {
+            return;
+        }
+        clients[slot] = null;
+        freeSlots[freeCount++] = slot;
+    }
+
+    void sweep() {
+        long time = System.currentTimeMillis();
+        now = time;
+        for (int slot = 0; slot < size; slot++) {
+            ClientHead client = clients[slot];
+            if (client == null) {
+                continue;
+            }
+            try {
+                sweep(client, slot, time);
+            } catch (Exception e) {
+                // keep periodic sweep alive for the rest of clients
+                log.error("Heartbeat sweep error. Client sessionId: " + client.getSessionId(), e);
+            }
+        }
+    }
+
+    private void sweep(ClientHead client, int slot, long time) {
+        if (client.isHeartbeatStopped()) {
+            // stopped concurrently with registration
+            doUnregister(client, slot);
+            return;
+        }
+
+        AckRegistry ackRegistry = client.getAckRegistry();
+        if (ackRegistry.getNextDeadline() <= time) {
+            ackRegistry.expire(time);
+        }
+
+        if (time - page(slot).get(slot & PAGE_MASK) > activityTimeout) {
+            client.onPingTimeout();
+        } else if (nextPing[slot] <= time) {
+            nextPing[slot] = time + pingInterval;
+            client.onPingTime();
+        }
+    }
+
+    void shutdown() {
+        sweepFuture.cancel(false);
+    }
+
+}
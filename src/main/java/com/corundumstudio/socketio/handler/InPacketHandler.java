@@ -18,6 +18,7 @@ package com.corundumstudio.socketio.handler;
 import com.corundumstudio.socketio.AuthTokenResult;
 import com.corundumstudio.socketio.listener.ExceptionListener;
 import com.corundumstudio.socketio.messages.PacketsMessage;
+import com.corundumstudio.socketio.metrics.SocketIOMetrics;
 import com.corundumstudio.socketio.namespace.Namespace;
 import com.corundumstudio.socketio.namespace.NamespacesHub;
 import com.corundumstudio.socketio.protocol.ConnPacket;
@@ -43,13 +44,22 @@ public class InPacketHandler extends SimpleChannelInboundHandler<PacketsMessage>
     private final PacketDecoder decoder;
     private final NamespacesHub namespacesHub;
     private final ExceptionListener exceptionListener;
+    private final SocketIOMetrics metrics;
+    private final boolean timing;
 
     public InPacketHandler(PacketListener packetListener, PacketDecoder decoder, NamespacesHub namespacesHub, ExceptionListener exceptionListener) {
+        this(packetListener, decoder, namespacesHub, exceptionListener, SocketIOMetrics.NOOP);
+    }
+
+    public InPacketHandler(PacketListener packetListener, PacketDecoder decoder, NamespacesHub namespacesHub, ExceptionListener exceptionListener,
+                            SocketIOMetrics metrics) {
         super();
         this.packetListener = packetListener;
         this.decoder = decoder;
         this.namespacesHub = namespacesHub;
         this.exceptionListener = exceptionListener;
+        this.metrics = metrics;
+        this.timing = metrics != SocketIOMetrics.NOOP;
     }
 
     @Override
@@ -63,7 +73,12 @@ public class InPacketHandler extends SimpleChannelInboundHandler<PacketsMessage>
         }
         while (content.isReadable()) {
             try {
+                int start = content.readerIndex();
+                long decodeStart = timing ? System.nanoTime() : 0;
                 Packet packet = decoder.decodePackets(content, client);
+                if (timing) {
+                    metrics.decodeTime(System.nanoTime() - decodeStart);
+                }
 
                 Namespace ns = namespacesHub.get(packet.getNsp());
                 if (ns == null) {
@@ -119,6 +134,7 @@ public class InPacketHandler extends SimpleChannelInboundHandler<PacketsMessage>
                 if (packet.hasAttachments() && !packet.isAttachmentsLoaded()) {
                     return;
                 }
+                metrics.packetReceived(ns.getName(), packet.getName(), content.readerIndex() - start);
                 packetListener.onPacket(packet, nClient, message.getTransport());
             } catch (Exception ex) {
                 String c = content.toString(CharsetUtil.UTF_8);
@@ -48,7 +48,7 @@ public class PacketListener {
         final AckRequest ackRequest = new AckRequest(packet, client);
 
         if (packet.isAckRequested()) {
-            ackManager.initAckIndex(client.getSessionId(), packet.getAckId());
+            ackManager.initAckIndex(client.getBaseClient(), packet.getAckId());
         }
 
         switch (packet.getType()) {
@@ -60,21 +60,21 @@ public class PacketListener {
             if ("probe".equals(packet.getData())) {
                 client.getBaseClient().send(new Packet(PacketType.NOOP, client.getEngineIOVersion()), Transport.POLLING);
             } else {
-                client.getBaseClient().schedulePingTimeout();
+                client.getBaseClient().onActivity();
             }
             Namespace namespace = namespacesHub.get(packet.getNsp());
             namespace.onPing(client);
             break;
         }
         case PONG: {
-            client.getBaseClient().schedulePingTimeout();
+            client.getBaseClient().onActivity();
             Namespace namespace = namespacesHub.get(packet.getNsp());
             namespace.onPong(client);
             break;
         }
 
         case UPGRADE: {
-            client.getBaseClient().schedulePingTimeout();
+            client.getBaseClient().onActivity();
 
             SchedulerKey key = new SchedulerKey(SchedulerKey.Type.UPGRADE_TIMEOUT, client.getSessionId());
             scheduler.cancel(key);
@@ -84,7 +84,7 @@ public class PacketListener {
         }
 
         case MESSAGE: {
-            client.getBaseClient().schedulePingTimeout();
+            client.getBaseClient().onActivity();
 
             if (packet.getSubType() == PacketType.DISCONNECT) {
                 client.onDisconnect();
@@ -101,7 +101,7 @@ public class PacketListener {
 
             if (packet.getSubType() == PacketType.ACK
                     || packet.getSubType() == PacketType.BINARY_ACK) {
-                ackManager.onAck(client, packet);
+                ackManager.onAck(client.getBaseClient(), packet);
             }
 
             if (packet.getSubType() == PacketType.EVENT
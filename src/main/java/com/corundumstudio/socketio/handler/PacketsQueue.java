@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.corundumstudio.socketio.protocol.Packet;
+
+/**
+ * Unbounded concurrent queue with constant time size,
+ * used to enforce packets queue limit.
+ */
+public class PacketsQueue extends AbstractQueue<Packet> {
+
+    private final Queue<Packet> queue = new ConcurrentLinkedQueue<Packet>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    @Override
+    public boolean offer(Packet packet) {
+        queue.offer(packet);
+        size.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public Packet poll() {
+        Packet packet = queue.poll();
+        if (packet != null) {
+            size.decrementAndGet();
+        }
+        return packet;
+    }
+
+    @Override
+    public Packet peek() {
+        return queue.peek();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (queue.remove(o)) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public Iterator<Packet> iterator() {
+        final Iterator<Packet> iterator = queue.iterator();
+        return new Iterator<Packet>() {
+
+            private Packet last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Packet next() {
+                last = iterator.next();
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                PacketsQueue.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+}
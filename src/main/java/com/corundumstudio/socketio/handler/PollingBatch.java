@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import java.util.concurrent.TimeUnit;
+
+import com.corundumstudio.socketio.Configuration;
+
+/**
+ * Packets amount and size limits of client polling response.
+ * <p>
+ * In adaptive mode limits are doubled each time client polls again
+ * within latency target while packets are left in its queue,
+ * and halved down to the configured ones when it's late.
+ */
+class PollingBatch {
+
+    private final boolean adaptive;
+    private final int size;
+    private final int bytes;
+    private final int maxScale;
+    private final long latencyTarget;
+
+    // polls of the same client could be served by different channels
+    private volatile int scale = 1;
+    private volatile long lastResponseTime;
+    private volatile boolean backlog;
+
+    PollingBatch(Configuration configuration) {
+        this.adaptive = configuration.isAdaptivePollingBatch();
+        this.size = Math.max(1, configuration.getPollingBatchSize());
+        this.bytes = Math.max(1, configuration.getPollingBatchBytes());
+        this.maxScale = Math.max(1, configuration.getPollingBatchMaxBytes() / bytes);
+        this.latencyTarget = TimeUnit.MILLISECONDS.toNanos(configuration.getPollingLatencyTarget());
+    }
+
+    void onPoll(long time) {
+        if (!adaptive || lastResponseTime == 0) {
+            return;
+        }
+
+        if (time - lastResponseTime <= latencyTarget) {
+            if (backlog) {
+                scale = Math.min(scale * 2, maxScale);
+            }
+        } else {
+            scale = Math.max(scale / 2, 1);
+        }
+    }
+
+    /**
+     * @param time - response time
+     * @param backlog - <code>true</code> if packets are left in queue
+     */
+    void onResponse(long time, boolean backlog) {
+        this.backlog = backlog;
+        this.lastResponseTime = time;
+    }
+
+    int getSize() {
+        return (int) Math.min((long) size * scale, Integer.MAX_VALUE);
+    }
+
+    int getBytes() {
+        return bytes * scale;
+    }
+
+}
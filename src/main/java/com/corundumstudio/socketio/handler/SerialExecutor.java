@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs submitted tasks one by one in submission order.
+ * Each task may be given its own executor, the queue moves to it
+ * once previous tasks are done. Only one task of this executor
+ * occupies a thread at a time.
+ */
+public class SerialExecutor implements Executor, Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(SerialExecutor.class);
+
+    // tasks executed per delegate run, the rest is resubmitted
+    // so busy client doesn't hold pool thread forever
+    private static final int MAX_TASKS_PER_RUN = 16;
+
+    private static final class Task {
+
+        final Runnable runnable;
+        final Executor executor;
+
+        Task(Runnable runnable, Executor executor) {
+            this.runnable = runnable;
+            this.executor = executor;
+        }
+
+    }
+
+    private final Queue<Task> tasks = new ConcurrentLinkedQueue<Task>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Executor delegate;
+
+    // executor of current run, guarded by scheduled flag
+    private Executor current;
+
+    public SerialExecutor(Executor delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        execute(task, delegate);
+    }
+
+    /**
+     * Runs task using <code>executor</code> after all previously submitted tasks
+     *
+     * @param task - task
+     * @param executor - executor to run task with
+     */
+    public void execute(Runnable task, Executor executor) {
+        tasks.add(new Task(task, executor));
+        schedule();
+    }
+
+    private void schedule() {
+        while (scheduled.compareAndSet(false, true)) {
+            Task next = tasks.peek();
+            if (next != null) {
+                current = next.executor;
+                try {
+                    current.execute(this);
+                } catch (RuntimeException e) {
+                    scheduled.set(false);
+                    throw e;
+                }
+                return;
+            }
+            // tasks were drained by previous run
+            scheduled.set(false);
+            if (tasks.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (int i = 0; i < MAX_TASKS_PER_RUN; i++) {
+                Task task = tasks.peek();
+                if (task == null || task.executor != current) {
+                    break;
+                }
+                tasks.poll();
+                try {
+                    task.runnable.run();
+                } catch (Exception e) {
+                    log.error("Task execution error", e);
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            if (!tasks.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+}
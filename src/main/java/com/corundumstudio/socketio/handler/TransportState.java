@@ -16,15 +16,18 @@
 package com.corundumstudio.socketio.handler;
 
 import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.corundumstudio.socketio.protocol.Packet;
 
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 
-public class TransportState {
+public class TransportState implements ChannelFutureListener {
 
-    private Queue<Packet> packetsQueue = new ConcurrentLinkedQueue<Packet>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private Queue<Packet> packetsQueue = new PacketsQueue();
     private Channel channel;
 
     public void setPacketsQueue(Queue<Packet> packetsQueue) {
@@ -35,6 +38,15 @@ public class TransportState {
         return packetsQueue;
     }
 
+    public void releasePackets() {
+        for (Packet packet : packetsQueue) {
+            // packet could be polled concurrently by writer
+            if ((packet.isEncoded() || packet.hasRetainedData()) && packetsQueue.remove(packet)) {
+                packet.release();
+            }
+        }
+    }
+
     public Channel getChannel() {
         return channel;
     }
@@ -42,7 +54,35 @@ public class TransportState {
     public Channel update(Channel channel) {
         Channel prevChannel = this.channel;
         this.channel = channel;
+        // drain scheduled on previous channel could be lost
+        drainScheduled.set(false);
         return prevChannel;
     }
 
+    /**
+     * @return <code>true</code> if caller should schedule queue drain,
+     * <code>false</code> if it's already scheduled
+     */
+    boolean scheduleDrain() {
+        return !drainScheduled.get() && drainScheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Invoked by drain before it polls the queue,
+     * so packets added after that schedule a new one
+     */
+    void onDrain() {
+        drainScheduled.set(false);
+    }
+
+    /**
+     * Drain write could fail before reaching encoder
+     */
+    @Override
+    public void operationComplete(ChannelFuture future) {
+        if (!future.isSuccess()) {
+            drainScheduled.set(false);
+        }
+    }
+
 }
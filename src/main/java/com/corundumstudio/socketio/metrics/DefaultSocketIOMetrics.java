@@ -0,0 +1,257 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.metrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.store.pubsub.PubSubType;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * In-memory metrics based on {@link LongAdder} counters
+ * and {@link Histogram}s. Durations of encoding, decoding and
+ * pub/sub publishing are recorded in nanoseconds, ack round-trip in milliseconds.
+ * <p>
+ * Event names are sent by clients, so amount of tracked names is limited,
+ * packets of other events are counted under {@link #OTHER_EVENTS} name.
+ */
+public class DefaultSocketIOMetrics implements SocketIOMetrics {
+
+    /**
+     * Name of packets which aren't events
+     */
+    public static final String NO_EVENT = "";
+
+    public static final String OTHER_EVENTS = "*";
+
+    public static class EventMetrics {
+
+        private final LongAdder packetsReceived = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final LongAdder packetsSent = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+
+        public long getPacketsReceived() {
+            return packetsReceived.sum();
+        }
+
+        public long getBytesReceived() {
+            return bytesReceived.sum();
+        }
+
+        public long getPacketsSent() {
+            return packetsSent.sum();
+        }
+
+        public long getBytesSent() {
+            return bytesSent.sum();
+        }
+
+    }
+
+    private final Map<Transport, LongAdder> transportClients = new EnumMap<Transport, LongAdder>(Transport.class);
+    private final ConcurrentMap<String, LongAdder> namespaceClients = PlatformDependent.newConcurrentHashMap();
+    private final ConcurrentMap<String, EventMetrics> events = PlatformDependent.newConcurrentHashMap();
+    private final int maxEvents;
+
+    private final LongAdder droppedPackets = new LongAdder();
+
+    private final Histogram decodeTime = new Histogram();
+    private final Histogram encodeTime = new Histogram();
+    private final Histogram packetsQueueSize = new Histogram();
+    private final Histogram ackRoundTrip = new Histogram();
+    private final Histogram pubSubPublishTime = new Histogram();
+
+    public DefaultSocketIOMetrics() {
+        this(1000);
+    }
+
+    /**
+     * @param maxEvents - max amount of event names tracked separately
+     */
+    public DefaultSocketIOMetrics(int maxEvents) {
+        this.maxEvents = maxEvents;
+        for (Transport transport : Transport.values()) {
+            transportClients.put(transport, new LongAdder());
+        }
+        events.put(OTHER_EVENTS, new EventMetrics());
+    }
+
+    private EventMetrics event(String event) {
+        if (event == null) {
+            event = NO_EVENT;
+        }
+        EventMetrics metrics = events.get(event);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (events.size() > maxEvents) {
+            return events.get(OTHER_EVENTS);
+        }
+        metrics = new EventMetrics();
+        EventMetrics oldMetrics = events.putIfAbsent(event, metrics);
+        if (oldMetrics != null) {
+            return oldMetrics;
+        }
+        return metrics;
+    }
+
+    private LongAdder namespace(String namespace) {
+        LongAdder counter = namespaceClients.get(namespace);
+        if (counter == null) {
+            counter = new LongAdder();
+            LongAdder oldCounter = namespaceClients.putIfAbsent(namespace, counter);
+            if (oldCounter != null) {
+                counter = oldCounter;
+            }
+        }
+        return counter;
+    }
+
+    @Override
+    public void clientConnected(Transport transport) {
+        transportClients.get(transport).increment();
+    }
+
+    @Override
+    public void clientDisconnected(Transport transport) {
+        transportClients.get(transport).decrement();
+    }
+
+    @Override
+    public void transportUpgraded(Transport from, Transport to) {
+        transportClients.get(from).decrement();
+        transportClients.get(to).increment();
+    }
+
+    @Override
+    public void namespaceClientConnected(String namespace) {
+        namespace(namespace).increment();
+    }
+
+    @Override
+    public void namespaceClientDisconnected(String namespace) {
+        namespace(namespace).decrement();
+    }
+
+    @Override
+    public void packetReceived(String namespace, String event, int bytes) {
+        EventMetrics metrics = event(event);
+        metrics.packetsReceived.increment();
+        metrics.bytesReceived.add(bytes);
+    }
+
+    @Override
+    public void packetSent(String namespace, String event, int bytes) {
+        EventMetrics metrics = event(event);
+        metrics.packetsSent.increment();
+        metrics.bytesSent.add(bytes);
+    }
+
+    @Override
+    public void decodeTime(long nanos) {
+        decodeTime.record(nanos);
+    }
+
+    @Override
+    public void encodeTime(long nanos) {
+        encodeTime.record(nanos);
+    }
+
+    @Override
+    public void packetQueued(int queueSize) {
+        packetsQueueSize.record(queueSize);
+    }
+
+    @Override
+    public void packetDropped() {
+        droppedPackets.increment();
+    }
+
+    @Override
+    public void ackReceived(long millis) {
+        ackRoundTrip.record(millis);
+    }
+
+    @Override
+    public void pubSubPublished(PubSubType type, long nanos) {
+        pubSubPublishTime.record(nanos);
+    }
+
+    public long getConnectedClients(Transport transport) {
+        return transportClients.get(transport).sum();
+    }
+
+    public long getConnectedClients() {
+        long result = 0;
+        for (LongAdder counter : transportClients.values()) {
+            result += counter.sum();
+        }
+        return result;
+    }
+
+    public long getNamespaceClients(String namespace) {
+        LongAdder counter = namespaceClients.get(namespace);
+        if (counter == null) {
+            return 0;
+        }
+        return counter.sum();
+    }
+
+    public Set<String> getEventNames() {
+        return Collections.unmodifiableSet(events.keySet());
+    }
+
+    /**
+     * @param event - event name, {@link #NO_EVENT} or {@link #OTHER_EVENTS}
+     * @return event metrics or <code>null</code> if there were no such packets
+     */
+    public EventMetrics getEventMetrics(String event) {
+        return events.get(event);
+    }
+
+    public long getDroppedPackets() {
+        return droppedPackets.sum();
+    }
+
+    public Histogram getDecodeTime() {
+        return decodeTime;
+    }
+
+    public Histogram getEncodeTime() {
+        return encodeTime;
+    }
+
+    public Histogram getPacketsQueueSize() {
+        return packetsQueueSize;
+    }
+
+    public Histogram getAckRoundTrip() {
+        return ackRoundTrip;
+    }
+
+    public Histogram getPubSubPublishTime() {
+        return pubSubPublishTime;
+    }
+
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.metrics;
+
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.store.pubsub.PubSubType;
+
+/**
+ * Receives server metrics.
+ * <p>
+ * Methods are invoked from event loop threads on the hot path,
+ * so implementation should only update counters and never block.
+ * All methods do nothing by default.
+ *
+ * @see DefaultSocketIOMetrics
+ */
+public interface SocketIOMetrics {
+
+    SocketIOMetrics NOOP = new SocketIOMetrics() {
+    };
+
+    /**
+     * @param transport - transport used by client during handshake
+     */
+    default void clientConnected(Transport transport) {
+    }
+
+    /**
+     * @param transport - current transport of client
+     */
+    default void clientDisconnected(Transport transport) {
+    }
+
+    default void transportUpgraded(Transport from, Transport to) {
+    }
+
+    default void namespaceClientConnected(String namespace) {
+    }
+
+    default void namespaceClientDisconnected(String namespace) {
+    }
+
+    /**
+     * @param namespace - packet namespace
+     * @param event - event name or <code>null</code> if packet isn't an event
+     * @param bytes - encoded packet size
+     */
+    default void packetReceived(String namespace, String event, int bytes) {
+    }
+
+    /**
+     * @param namespace - packet namespace
+     * @param event - event name or <code>null</code> if packet isn't an event
+     * @param bytes - encoded packet size
+     */
+    default void packetSent(String namespace, String event, int bytes) {
+    }
+
+    default void decodeTime(long nanos) {
+    }
+
+    default void encodeTime(long nanos) {
+    }
+
+    /**
+     * Invoked when packet is added to client packets queue
+     *
+     * @param queueSize - queue size including added packet
+     */
+    default void packetQueued(int queueSize) {
+    }
+
+    /**
+     * Invoked when packet is dropped due to packets queue limit
+     */
+    default void packetDropped() {
+    }
+
+    /**
+     * @param millis - time between ack request sending and ack receiving
+     */
+    default void ackReceived(long millis) {
+    }
+
+    default void pubSubPublished(PubSubType type, long nanos) {
+    }
+
+}
@@ -18,11 +18,13 @@ package com.corundumstudio.socketio.namespace;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
+import com.corundumstudio.socketio.EventExecutionMode;
 import com.corundumstudio.socketio.listener.DataListener;
 
 public class EventEntry<T> {
 
     private final Queue<DataListener<T>> listeners = new ConcurrentLinkedQueue<DataListener<T>>();;
+    private volatile EventExecutionMode executionMode;
 
     public EventEntry() {
         super();
@@ -36,4 +38,12 @@ public class EventEntry<T> {
         return listeners;
     }
 
+    public EventExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public void setExecutionMode(EventExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
 }
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.namespace;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.EventExecutionMode;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * Executors of event listeners, created on first use
+ */
+public class EventExecutors {
+
+    private static final Logger log = LoggerFactory.getLogger(EventExecutors.class);
+
+    private final Configuration configuration;
+
+    private volatile ExecutorService pool;
+    private volatile ExecutorService virtualThreads;
+
+    public EventExecutors(Configuration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * @param mode - execution mode, not <code>IO_THREAD</code>
+     * @return executor
+     */
+    public ExecutorService get(EventExecutionMode mode) {
+        ExecutorService executor;
+        if (mode == EventExecutionMode.VIRTUAL_THREADS) {
+            executor = virtualThreads;
+        } else {
+            executor = pool;
+        }
+        if (executor != null) {
+            return executor;
+        }
+        return create(mode);
+    }
+
+    private synchronized ExecutorService create(EventExecutionMode mode) {
+        if (mode == EventExecutionMode.VIRTUAL_THREADS) {
+            if (virtualThreads == null) {
+                ExecutorService executor = createVirtualThreadExecutor();
+                if (executor == null) {
+                    executor = create(EventExecutionMode.POOL);
+                }
+                virtualThreads = executor;
+            }
+            return virtualThreads;
+        }
+
+        if (pool == null) {
+            int threads = configuration.getEventThreads();
+            if (threads <= 0) {
+                threads = Runtime.getRuntime().availableProcessors() * 2;
+            }
+            pool = Executors.newFixedThreadPool(threads, new DefaultThreadFactory("socketio-event"));
+        }
+        return pool;
+    }
+
+    private ExecutorService createVirtualThreadExecutor() {
+        try {
+            // available since java 21
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (Exception e) {
+            log.warn("Virtual threads aren't supported by current runtime, events are executed on thread pool");
+            return null;
+        }
+    }
+
+    public synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        if (virtualThreads != null) {
+            virtualThreads.shutdown();
+            virtualThreads = null;
+        }
+    }
+
+}
@@ -18,8 +18,10 @@ package com.corundumstudio.socketio.namespace;
 import com.corundumstudio.socketio.*;
 import com.corundumstudio.socketio.annotation.ScannerEngine;
 import com.corundumstudio.socketio.listener.*;
+import com.corundumstudio.socketio.metrics.SocketIOMetrics;
 import com.corundumstudio.socketio.protocol.JsonSupport;
 import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketEncoder;
 import com.corundumstudio.socketio.store.StoreFactory;
 import com.corundumstudio.socketio.store.pubsub.BulkJoinLeaveMessage;
 import com.corundumstudio.socketio.store.pubsub.JoinLeaveMessage;
@@ -30,6 +32,8 @@ import io.netty.util.internal.PlatformDependent;
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 /**
  * Hub object for all clients in one namespace.
@@ -53,6 +57,8 @@ public class Namespace implements SocketIONamespace {
 
     private final Map<UUID, SocketIOClient> allClients = PlatformDependent.newConcurrentHashMap();
     private final ConcurrentMap<String, Set<UUID>> roomClients = PlatformDependent.newConcurrentHashMap();
+    // local clients only, roomClients also contains sessions of other nodes
+    private final ConcurrentMap<String, ConcurrentMap<UUID, SocketIOClient>> roomLocalClients = PlatformDependent.newConcurrentHashMap();
     private final ConcurrentMap<UUID, Set<String>> clientRooms = PlatformDependent.newConcurrentHashMap();
 
     private final String name;
@@ -60,18 +66,53 @@ public class Namespace implements SocketIONamespace {
     private final JsonSupport jsonSupport;
     private final StoreFactory storeFactory;
     private final ExceptionListener exceptionListener;
-
+    private final PacketBroadcaster broadcaster;
+    private final SocketIOMetrics metrics;
+    private final EventExecutionMode eventExecutionMode;
+    private final EventExecutors eventExecutors;
+
+    /**
+     * Creates namespace without event executors,
+     * so event listeners are invoked on I/O thread
+     * whatever execution mode is set
+     *
+     * @param name - namespace name
+     * @param configuration - server configuration
+     */
     public Namespace(String name, Configuration configuration) {
+        this(name, configuration, null);
+    }
+
+    /**
+     * @param name - namespace name
+     * @param configuration - server configuration
+     * @param eventExecutors - executors of offloaded event listeners,
+     *                         owned and shut down by caller
+     */
+    public Namespace(String name, Configuration configuration, EventExecutors eventExecutors) {
         super();
         this.name = name;
         this.jsonSupport = configuration.getJsonSupport();
         this.storeFactory = configuration.getStoreFactory();
         this.exceptionListener = configuration.getExceptionListener();
         this.ackMode = configuration.getAckMode();
+        this.metrics = configuration.getMetrics();
+        this.eventExecutionMode = configuration.getEventExecutionMode();
+        this.eventExecutors = eventExecutors;
+        this.broadcaster = new PacketBroadcaster(name, new PacketEncoder(configuration, jsonSupport));
     }
 
     public void addClient(SocketIOClient client) {
-        allClients.put(client.getSessionId(), client);
+        if (allClients.put(client.getSessionId(), client) == null) {
+            metrics.namespaceClientConnected(name);
+        }
+
+        Set<String> rooms = clientRooms.get(client.getSessionId());
+        if (rooms != null) {
+            for (String room : rooms) {
+                joinLocal(room, client);
+            }
+        }
     }
 
     @Override
@@ -82,14 +123,7 @@ public class Namespace implements SocketIONamespace {
     @Override
     public void addMultiTypeEventListener(String eventName, MultiTypeEventListener listener,
             Class<?>... eventClass) {
-        EventEntry entry = eventListeners.get(eventName);
-        if (entry == null) {
-            entry = new EventEntry();
-            EventEntry<?> oldEntry = eventListeners.putIfAbsent(eventName, entry);
-            if (oldEntry != null) {
-                entry = oldEntry;
-            }
-        }
+        EventEntry entry = getOrCreateEventEntry(eventName);
         entry.addListener(listener);
         jsonSupport.addEventMapping(name, eventName, eventClass);
     }
@@ -105,16 +139,26 @@ public class Namespace implements SocketIONamespace {
     @Override
     @SuppressWarnings({"unchecked", "rawtypes"})
     public <T> void addEventListener(String eventName, Class<T> eventClass, DataListener<T> listener) {
-        EventEntry entry = eventListeners.get(eventName);
+        EventEntry entry = getOrCreateEventEntry(eventName);
+        entry.addListener(listener);
+        jsonSupport.addEventMapping(name, eventName, eventClass);
+    }
+
+    @Override
+    public void setEventExecutionMode(String eventName, EventExecutionMode mode) {
+        getOrCreateEventEntry(eventName).setExecutionMode(mode);
+    }
+
+    private EventEntry<?> getOrCreateEventEntry(String eventName) {
+        EventEntry<?> entry = eventListeners.get(eventName);
         if (entry == null) {
-            entry = new EventEntry<T>();
+            entry = new EventEntry<Object>();
             EventEntry<?> oldEntry = eventListeners.putIfAbsent(eventName, entry);
             if (oldEntry != null) {
                 entry = oldEntry;
             }
         }
-        entry.addListener(listener);
-        jsonSupport.addEventMapping(name, eventName, eventClass);
+        return entry;
     }
 
     @Override
@@ -129,9 +173,23 @@ public class Namespace implements SocketIONamespace {
             return;
         }
 
+        EventExecutionMode mode = entry.getExecutionMode();
+        if (mode == null) {
+            mode = eventExecutionMode;
+        }
+        if (mode == EventExecutionMode.IO_THREAD || eventExecutors == null) {
+            onEvent(entry, client, eventName, args, ackRequest);
+            return;
+        }
+
+        // offloaded events of the same client are executed one by one, whatever mode
+        Executor executor = eventExecutors.get(mode);
+        client.getBaseClient().getEventExecutor().execute(() -> onEvent(entry, client, eventName, args, ackRequest), executor);
+    }
+
+    private void onEvent(EventEntry<?> entry, NamespaceClient client, String eventName, List<Object> args, AckRequest ackRequest) {
         try {
-            Queue<DataListener> listeners = entry.getListeners();
-            for (DataListener dataListener : listeners) {
+            for (DataListener dataListener : entry.getListeners()) {
                 Object data = getEventData(args, dataListener);
                 dataListener.onData(client, data, ackRequest);
             }
@@ -175,12 +233,15 @@ public class Namespace implements SocketIONamespace {
 
     public void onDisconnect(SocketIOClient client) {
         Set<String> joinedRooms = client.getAllRooms();        
-        allClients.remove(client.getSessionId());
+        if (allClients.remove(client.getSessionId()) != null) {
+            metrics.namespaceClientDisconnected(name);
+        }
         final Set<String> roomsToLeave = new HashSet<>(joinedRooms);
 
         // client must leave all rooms and publish the leave msg one by one on disconnect.
         for (String joinedRoom : joinedRooms) {
             leave(roomClients, joinedRoom, client.getSessionId());
+            leaveLocal(joinedRoom, client.getSessionId());
         }
         clientRooms.remove(client.getSessionId());
         storeFactory.pubSubStore().publish(PubSubType.BULK_LEAVE, new BulkJoinLeaveMessage(client.getSessionId(), roomsToLeave, getName()));
@@ -249,19 +310,19 @@ public class Namespace implements SocketIONamespace {
 
     @Override
     public BroadcastOperations getBroadcastOperations() {
-        return new SingleRoomBroadcastOperations(getName(), getName(), allClients.values(), storeFactory);
+        return new SingleRoomBroadcastOperations(getName(), getName(), allClients.values(), storeFactory, broadcaster);
     }
 
     @Override
     public BroadcastOperations getRoomOperations(String room) {
-        return new SingleRoomBroadcastOperations(getName(), room, getRoomClients(room), storeFactory);
+        return new SingleRoomBroadcastOperations(getName(), room, getRoomClients(room), storeFactory, broadcaster);
     }
 
 	@Override
 	public BroadcastOperations getRoomOperations(String... rooms) {
         List<BroadcastOperations> list = new ArrayList<>();
         for( String room : rooms ) {
-            list.add( new SingleRoomBroadcastOperations(getName(), room, getRoomClients(room), storeFactory) );
+            list.add( new SingleRoomBroadcastOperations(getName(), room, getRoomClients(room), storeFactory, broadcaster) );
         }
         return new MultiRoomBroadcastOperations( list );
     }
@@ -329,11 +390,7 @@ public class Namespace implements SocketIONamespace {
     }
 
     public void dispatch(String room, Packet packet) {
-        Iterable<SocketIOClient> clients = getRoomClients(room);
-
-        for (SocketIOClient socketIOClient : clients) {
-            socketIOClient.send(packet);
-        }
+        broadcaster.send(getRoomClients(room), packet);
     }
 
     private <K, V> void join(ConcurrentMap<K, Set<V>> map, K key, V value) {
@@ -356,6 +413,39 @@ public class Namespace implements SocketIONamespace {
     public void join(String room, UUID sessionId) {
         join(roomClients, room, sessionId);
         join(clientRooms, sessionId, room);
+
+        SocketIOClient client = allClients.get(sessionId);
+        if (client != null) {
+            joinLocal(room, client);
+        }
+    }
+
+    private void joinLocal(String room, SocketIOClient client) {
+        ConcurrentMap<UUID, SocketIOClient> clients = roomLocalClients.get(room);
+        if (clients == null) {
+            clients = PlatformDependent.newConcurrentHashMap();
+            ConcurrentMap<UUID, SocketIOClient> oldClients = roomLocalClients.putIfAbsent(room, clients);
+            if (oldClients != null) {
+                clients = oldClients;
+            }
+        }
+        clients.put(client.getSessionId(), client);
+        // object may be changed due to other concurrent call
+        if (clients != roomLocalClients.get(room)) {
+            joinLocal(room, client);
+        }
+    }
+
+    private void leaveLocal(String room, UUID sessionId) {
+        ConcurrentMap<UUID, SocketIOClient> clients = roomLocalClients.get(room);
+        if (clients == null) {
+            return;
+        }
+        clients.remove(sessionId);
+
+        if (clients.isEmpty()) {
+            roomLocalClients.remove(room, Collections.emptyMap());
+        }
     }
 
     public void leaveRoom(String room, UUID sessionId) {
@@ -385,6 +475,7 @@ public class Namespace implements SocketIONamespace {
     public void leave(String room, UUID sessionId) {
         leave(roomClients, room, sessionId);
         leave(clientRooms, sessionId, room);
+        leaveLocal(room, sessionId);
     }
 
     public Set<String> getRooms(SocketIOClient client) {
@@ -399,18 +490,53 @@ public class Namespace implements SocketIONamespace {
         return roomClients.keySet();
     }
 
-    public Iterable<SocketIOClient> getRoomClients(String room) {
-        Set<UUID> sessionIds = roomClients.get(room);
+    /**
+     * Returns live view of local room clients.
+     * Room members are resolved on each iteration, without copying.
+     *
+     * @param room - name of room
+     * @return clients
+     */
+    public Iterable<SocketIOClient> getRoomClients(final String room) {
+        return new Iterable<SocketIOClient>() {
+            @Override
+            public Iterator<SocketIOClient> iterator() {
+                Map<UUID, SocketIOClient> clients = roomLocalClients.get(room);
+                if (clients == null) {
+                    return Collections.emptyIterator();
+                }
+                return Collections.unmodifiableCollection(clients.values()).iterator();
+            }
 
-        if (sessionIds == null) {
-            return Collections.emptyList();
+            @Override
+            public void forEach(Consumer<? super SocketIOClient> action) {
+                forEachRoomClient(room, action);
+            }
+        };
+    }
+
+    /**
+     * Invokes <code>action</code> for each local client of room
+     *
+     * @param room - name of room
+     * @param action - action
+     */
+    public void forEachRoomClient(String room, Consumer<? super SocketIOClient> action) {
+        Map<UUID, SocketIOClient> clients = roomLocalClients.get(room);
+        if (clients != null) {
+            clients.values().forEach(action);
         }
+    }
 
-        List<SocketIOClient> result = new ArrayList<SocketIOClient>();
-        for (UUID sessionId : sessionIds) {
-            SocketIOClient client = allClients.get(sessionId);
-            if(client != null) {
-                result.add(client);
+    /**
+     * @return session ids of local clients per room
+     */
+    public Map<String, Set<UUID>> getLocalRooms() {
+        Map<String, Set<UUID>> result = new HashMap<String, Set<UUID>>();
+        for (Map.Entry<String, ConcurrentMap<UUID, SocketIOClient>> entry : roomLocalClients.entrySet()) {
+            Set<UUID> sessionIds = new HashSet<UUID>(entry.getValue().keySet());
+            if (!sessionIds.isEmpty()) {
+                result.put(entry.getKey(), sessionIds);
             }
         }
         return result;
@@ -31,15 +31,17 @@ public class NamespacesHub {
 
     private final ConcurrentMap<String, SocketIONamespace> namespaces = PlatformDependent.newConcurrentHashMap();
     private final Configuration configuration;
+    private final EventExecutors eventExecutors;
 
     public NamespacesHub(Configuration configuration) {
         this.configuration = configuration;
+        this.eventExecutors = new EventExecutors(configuration);
     }
 
     public Namespace create(String name) {
         Namespace namespace = (Namespace) namespaces.get(name);
         if (namespace == null) {
-            namespace = new Namespace(name, configuration);
+            namespace = new Namespace(name, configuration, eventExecutors);
             Namespace oldNamespace = (Namespace) namespaces.putIfAbsent(name, namespace);
             if (oldNamespace != null) {
                 namespace = oldNamespace;
@@ -72,4 +74,11 @@ public class NamespacesHub {
         return namespaces.values();
     }
 
+    /**
+     * Stops event listener executors, queued events are still executed
+     */
+    public void shutdown() {
+        eventExecutors.shutdown();
+    }
+
 }
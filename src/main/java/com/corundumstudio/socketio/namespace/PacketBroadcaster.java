@@ -0,0 +1,192 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.namespace;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.protocol.EngineIOVersion;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketEncoder;
+import com.corundumstudio.socketio.transport.NamespaceClient;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.concurrent.EventExecutor;
+
+/**
+ * Sends the same packet to many clients of namespace.
+ * Packet is encoded only once per engine.io version
+ * and encoded content is shared between all receivers.
+ * Receivers are written by one task per event loop,
+ * or per {@link #MAX_BATCH_SIZE} receivers of large broadcast.
+ */
+public class PacketBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(PacketBroadcaster.class);
+
+    // full batch is submitted right away, so event loop starts writing
+    // while the rest of large room is still iterated
+    static final int MAX_BATCH_SIZE = 128;
+
+    private final String namespace;
+    private final PacketEncoder encoder;
+    private final ByteBufAllocator allocator;
+
+    public PacketBroadcaster(String namespace, PacketEncoder encoder) {
+        this(namespace, encoder, ByteBufAllocator.DEFAULT);
+    }
+
+    public PacketBroadcaster(String namespace, PacketEncoder encoder, ByteBufAllocator allocator) {
+        this.namespace = namespace;
+        this.encoder = encoder;
+        this.allocator = allocator;
+    }
+
+    public void send(Iterable<SocketIOClient> clients, Packet packet) {
+        send(clients, packet, null);
+    }
+
+    public void send(Iterable<SocketIOClient> clients, Packet packet, Predicate<SocketIOClient> excludePredicate) {
+        Map<EngineIOVersion, Packet> sharedPackets = new EnumMap<EngineIOVersion, Packet>(EngineIOVersion.class);
+        Map<EventExecutor, LoopBatch> batches = new HashMap<EventExecutor, LoopBatch>();
+        try {
+            // forEach avoids iterator allocation for room clients
+            clients.forEach(client -> {
+                if (excludePredicate != null && excludePredicate.test(client)) {
+                    return;
+                }
+
+                EngineIOVersion version = client.getEngineIOVersion();
+                Packet sharedPacket = sharedPackets.get(version);
+                if (sharedPacket == null) {
+                    sharedPacket = encode(packet, version);
+                    sharedPackets.put(version, sharedPacket);
+                }
+                send(client, sharedPacket.retainedDuplicate(version), batches);
+            });
+        } catch (UncheckedIOException e) {
+            log.error("Can't encode packet {} for namespace '{}'", packet, namespace, e.getCause());
+        } finally {
+            for (Packet sharedPacket : sharedPackets.values()) {
+                sharedPacket.release();
+            }
+            for (LoopBatch batch : batches.values()) {
+                batch.submit();
+            }
+        }
+    }
+
+    /**
+     * Packet is queued right away to keep order with packets sent after broadcast,
+     * its write is left to event loop batch unless caller is the client's event loop
+     */
+    private void send(SocketIOClient client, Packet packet, Map<EventExecutor, LoopBatch> batches) {
+        if (!(client instanceof NamespaceClient)) {
+            client.send(packet);
+            return;
+        }
+
+        NamespaceClient namespaceClient = (NamespaceClient) client;
+        ClientHead head = namespaceClient.getBaseClient();
+        EventExecutor eventLoop = head.getEventLoop();
+        if (eventLoop == null || eventLoop.inEventLoop()) {
+            client.send(packet);
+            return;
+        }
+
+        Transport transport = namespaceClient.queue(packet);
+        if (transport != null) {
+            LoopBatch batch = batches.get(eventLoop);
+            if (batch == null) {
+                batch = new LoopBatch(eventLoop);
+                batches.put(eventLoop, batch);
+            }
+            batch.add(head, transport);
+            if (batch.size() >= MAX_BATCH_SIZE) {
+                batches.remove(eventLoop);
+                batch.submit();
+            }
+        }
+    }
+
+    /**
+     * Writes queued packets of clients served by the same event loop in a single task
+     */
+    private static class LoopBatch implements Runnable {
+
+        private final EventExecutor eventLoop;
+        private final List<ClientHead> clients = new ArrayList<ClientHead>();
+        private final List<Transport> transports = new ArrayList<Transport>();
+
+        LoopBatch(EventExecutor eventLoop) {
+            this.eventLoop = eventLoop;
+        }
+
+        void add(ClientHead client, Transport transport) {
+            clients.add(client);
+            transports.add(transport);
+        }
+
+        int size() {
+            return clients.size();
+        }
+
+        void submit() {
+            try {
+                eventLoop.execute(this);
+            } catch (RejectedExecutionException e) {
+                // event loop is shutting down, writes fail on their own
+                run();
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < clients.size(); i++) {
+                ClientHead client = clients.get(i);
+                try {
+                    client.drainPackets(transports.get(i));
+                } catch (Exception e) {
+                    // rest of clients shouldn't be left undrained
+                    log.error("Can't write packets of client: {}", client.getSessionId(), e);
+                }
+            }
+        }
+
+    }
+
+    private Packet encode(Packet packet, EngineIOVersion version) {
+        try {
+            return encoder.encodeShared(packet, namespace, version, allocator);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
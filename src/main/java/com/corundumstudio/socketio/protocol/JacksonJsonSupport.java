@@ -19,12 +19,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 
 import org.slf4j.Logger;
@@ -43,6 +44,7 @@ import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.JsonSerializer;
@@ -51,6 +53,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationConfig;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.PrimitiveArrayDeserializers;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.fasterxml.jackson.databind.jsonFormatVisitors.JsonArrayFormatVisitor;
 import com.fasterxml.jackson.databind.jsonFormatVisitors.JsonFormatTypes;
@@ -62,8 +65,11 @@ import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import com.fasterxml.jackson.databind.type.ArrayType;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 import io.netty.util.internal.PlatformDependent;
 
 public class JacksonJsonSupport implements JsonSupport {
@@ -101,7 +107,7 @@ public class JacksonJsonSupport implements JsonSupport {
                     clazz = Object.class;
                 }
 
-                val = mapper.treeToValue(arg, clazz);
+                val = resolvePlaceholders(mapper.treeToValue(arg, clazz));
                 args.add(val);
                 i++;
             }
@@ -193,7 +199,7 @@ public class JacksonJsonSupport implements JsonSupport {
                     break;
                 }
                 Class<?> eventClass = eventClasses.get(i);
-                Object arg = mapper.readValue(jp, eventClass);
+                Object arg = resolvePlaceholders(mapper.readValue(jp, eventClass));
                 eventArgs.add(arg);
                 i++;
             }
@@ -202,6 +208,52 @@ public class JacksonJsonSupport implements JsonSupport {
 
     }
 
+    /**
+     * Reads binary placeholder as bytes of attachment,
+     * other values as base64 string or array of numbers.
+     */
+    protected class ByteArrayDeserializer extends StdDeserializer<byte[]> {
+
+        private static final long serialVersionUID = -4357383581435617340L;
+
+        private final JsonDeserializer<?> delegate = PrimitiveArrayDeserializers.forType(byte.class);
+
+        protected ByteArrayDeserializer() {
+            super(byte[].class);
+        }
+
+        @Override
+        public byte[] deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+            if (jp.currentToken() == JsonToken.START_OBJECT) {
+                return ByteBufUtil.getBytes(readAttachment(jp));
+            }
+            return (byte[]) delegate.deserialize(jp, ctxt);
+        }
+
+    }
+
+    /**
+     * Reads binary placeholder or base64 string as heap buffer.
+     * Attachment is copied since listener may outlive inbound frame.
+     */
+    protected class ByteBufDeserializer extends StdDeserializer<ByteBuf> {
+
+        private static final long serialVersionUID = 2148466238271553826L;
+
+        protected ByteBufDeserializer() {
+            super(ByteBuf.class);
+        }
+
+        @Override
+        public ByteBuf deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+            if (jp.currentToken() == JsonToken.START_OBJECT) {
+                return Unpooled.wrappedBuffer(ByteBufUtil.getBytes(readAttachment(jp)));
+            }
+            return Unpooled.wrappedBuffer(jp.getBinaryValue());
+        }
+
+    }
+
     public static class ByteArraySerializer extends StdSerializer<byte[]>
     {
 
@@ -214,6 +266,13 @@ public class JacksonJsonSupport implements JsonSupport {
             };
         };
 
+        private final ThreadLocal<List<ByteBuf>> attachments = new ThreadLocal<List<ByteBuf>>() {
+            @Override
+            protected List<ByteBuf> initialValue() {
+                return new ArrayList<ByteBuf>();
+            };
+        };
+
         public ByteArraySerializer() {
             super(byte[].class);
         }
@@ -227,11 +286,24 @@ public class JacksonJsonSupport implements JsonSupport {
         public void serialize(byte[] value, JsonGenerator jgen, SerializerProvider provider)
             throws IOException, JsonGenerationException
         {
-            Map<String, Object> map = new HashMap<String, Object>();
-            map.put("num", arrays.get().size());
-            map.put("_placeholder", true);
-            jgen.writeObject(map);
             arrays.get().add(value);
+            writePlaceholder(Unpooled.wrappedBuffer(value), jgen);
+        }
+
+        /**
+         * Writes placeholder of binary value and adds value to attachments
+         *
+         * @param value - binary value
+         * @param jgen - generator
+         * @throws IOException - in case of write error
+         */
+        public void writePlaceholder(ByteBuf value, JsonGenerator jgen) throws IOException {
+            List<ByteBuf> list = attachments.get();
+            jgen.writeStartObject();
+            jgen.writeBooleanField("_placeholder", true);
+            jgen.writeNumberField("num", list.size());
+            jgen.writeEndObject();
+            list.add(value);
         }
 
         @Override
@@ -266,13 +338,61 @@ public class JacksonJsonSupport implements JsonSupport {
             return arrays.get();
         }
 
+        public List<ByteBuf> getAttachments() {
+            return attachments.get();
+        }
+
         public void clear() {
-            arrays.set(new ArrayList<byte[]>());
+            arrays.get().clear();
+            attachments.get().clear();
         }
 
     }
 
 
+    /**
+     * Writes buffer as binary attachment without copying its content.
+     * Reader index of buffer stays untouched.
+     */
+    public static class ByteBufSerializer extends StdSerializer<ByteBuf> {
+
+        private static final long serialVersionUID = -1546218349553186744L;
+
+        private final ByteArraySerializer serializer;
+
+        public ByteBufSerializer(ByteArraySerializer serializer) {
+            super(ByteBuf.class);
+            this.serializer = serializer;
+        }
+
+        @Override
+        public void serialize(ByteBuf value, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+            serializer.writePlaceholder(value, jgen);
+        }
+
+    }
+
+    /**
+     * Writes remaining bytes of buffer as binary attachment without copying them.
+     */
+    public static class ByteBufferSerializer extends StdSerializer<ByteBuffer> {
+
+        private static final long serialVersionUID = 6472840951273045637L;
+
+        private final ByteArraySerializer serializer;
+
+        public ByteBufferSerializer(ByteArraySerializer serializer) {
+            super(ByteBuffer.class);
+            this.serializer = serializer;
+        }
+
+        @Override
+        public void serialize(ByteBuffer value, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+            serializer.writePlaceholder(Unpooled.wrappedBuffer(value.duplicate()), jgen);
+        }
+
+    }
+
     protected static class ExBeanSerializerModifier extends BeanSerializerModifier {
 
         private final ByteArraySerializer serializer = new ByteArraySerializer();
@@ -299,6 +419,7 @@ public class JacksonJsonSupport implements JsonSupport {
     protected final ObjectMapper objectMapper = new ObjectMapper();
     protected final EventDeserializer eventDeserializer = new EventDeserializer();
     protected final AckArgsDeserializer ackArgsDeserializer = new AckArgsDeserializer();
+    protected final ThreadLocal<List<ByteBuf>> currentAttachments = new ThreadLocal<List<ByteBuf>>();
 
     protected static final Logger log = LoggerFactory.getLogger(JacksonJsonSupport.class);
 
@@ -316,8 +437,12 @@ public class JacksonJsonSupport implements JsonSupport {
     protected void init(ObjectMapper objectMapper) {
         SimpleModule module = new SimpleModule();
         module.setSerializerModifier(modifier);
+        module.addSerializer(ByteBuf.class, new ByteBufSerializer(modifier.getSerializer()));
+        module.addSerializer(ByteBuffer.class, new ByteBufferSerializer(modifier.getSerializer()));
         module.addDeserializer(Event.class, eventDeserializer);
         module.addDeserializer(AckArgs.class, ackArgsDeserializer);
+        module.addDeserializer(byte[].class, new ByteArrayDeserializer());
+        module.addDeserializer(ByteBuf.class, new ByteBufDeserializer());
         objectMapper.registerModule(module);
 
         objectMapper.setSerializationInclusion(Include.NON_NULL);
@@ -342,21 +467,144 @@ public class JacksonJsonSupport implements JsonSupport {
         return objectMapper.readValue((InputStream)src, valueType);
     }
 
+    @Override
+    public <T> T readValue(String namespaceName, ByteBuf src, Class<T> valueType) throws IOException {
+        if (!src.hasArray()) {
+            return readValue(namespaceName, new ByteBufInputStream(src), valueType);
+        }
+        namespaceClass.set(namespaceName);
+        // heap buffer is parsed in place by byte array parser
+        T value = objectMapper.readValue(src.array(), src.arrayOffset() + src.readerIndex(), src.readableBytes(), valueType);
+        src.skipBytes(src.readableBytes());
+        return value;
+    }
+
     @Override
     public AckArgs readAckArgs(ByteBufInputStream src, AckCallback<?> callback) throws IOException {
         currentAckClass.set(callback);
         return objectMapper.readValue((InputStream)src, AckArgs.class);
     }
 
+    @Override
+    public AckArgs readAckArgs(ByteBuf src, AckCallback<?> callback) throws IOException {
+        if (!src.hasArray()) {
+            return readAckArgs(new ByteBufInputStream(src), callback);
+        }
+        currentAckClass.set(callback);
+        AckArgs args = objectMapper.readValue(src.array(), src.arrayOffset() + src.readerIndex(), src.readableBytes(), AckArgs.class);
+        src.skipBytes(src.readableBytes());
+        return args;
+    }
+
+    @Override
+    public <T> T readValue(String namespaceName, ByteBuf src, Class<T> valueType, List<ByteBuf> attachments) throws IOException {
+        if (attachments.isEmpty()) {
+            return readValue(namespaceName, src, valueType);
+        }
+        currentAttachments.set(attachments);
+        try {
+            return readValue(namespaceName, src, valueType);
+        } finally {
+            currentAttachments.remove();
+        }
+    }
+
+    @Override
+    public AckArgs readAckArgs(ByteBuf src, AckCallback<?> callback, List<ByteBuf> attachments) throws IOException {
+        if (attachments.isEmpty()) {
+            return readAckArgs(src, callback);
+        }
+        currentAttachments.set(attachments);
+        try {
+            return readAckArgs(src, callback);
+        } finally {
+            currentAttachments.remove();
+        }
+    }
+
+    /**
+     * Reads fields of placeholder object <code>{"_placeholder":true,"num":n}</code>
+     * and returns attachment it refers to.
+     */
+    protected ByteBuf readAttachment(JsonParser jp) throws IOException {
+        boolean placeholder = false;
+        int num = -1;
+        JsonToken token = jp.nextToken();
+        for (; token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+            String field = jp.currentName();
+            jp.nextToken();
+            if ("num".equals(field)) {
+                num = jp.getValueAsInt(-1);
+            } else if ("_placeholder".equals(field)) {
+                placeholder = jp.getValueAsBoolean();
+            } else {
+                jp.skipChildren();
+            }
+        }
+
+        List<ByteBuf> attachments = currentAttachments.get();
+        if (!placeholder || attachments == null || num < 0 || num >= attachments.size()) {
+            throw new JsonMappingException(jp, "Can't find attachment by index: " + num);
+        }
+        return attachments.get(num);
+    }
+
+    /**
+     * Replaces placeholders read into untyped maps with attachment bytes.
+     */
+    @SuppressWarnings("unchecked")
+    protected Object resolvePlaceholders(Object value) {
+        List<ByteBuf> attachments = currentAttachments.get();
+        if (attachments == null) {
+            return value;
+        }
+
+        if (value instanceof Map) {
+            Map<Object, Object> map = (Map<Object, Object>) value;
+            Object num = map.get("num");
+            if (map.size() == 2 && Boolean.TRUE.equals(map.get("_placeholder"))
+                    && num instanceof Integer && (Integer) num >= 0 && (Integer) num < attachments.size()) {
+                return ByteBufUtil.getBytes(attachments.get((Integer) num));
+            }
+            for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                entry.setValue(resolvePlaceholders(entry.getValue()));
+            }
+        } else if (value instanceof List) {
+            ListIterator<Object> iterator = ((List<Object>) value).listIterator();
+            while (iterator.hasNext()) {
+                iterator.set(resolvePlaceholders(iterator.next()));
+            }
+        }
+        return value;
+    }
+
     @Override
     public void writeValue(ByteBufOutputStream out, Object value) throws IOException {
         modifier.getSerializer().clear();
         objectMapper.writeValue((OutputStream)out, value);
     }
 
+    @Override
+    public void writeEvent(ByteBufOutputStream out, String name, List<?> args) throws IOException {
+        modifier.getSerializer().clear();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator((OutputStream) out)) {
+            generator.writeStartArray();
+            generator.writeString(name);
+            for (Object arg : args) {
+                objectMapper.writeValue(generator, arg);
+            }
+            generator.writeEndArray();
+        }
+    }
+
     @Override
     public List<byte[]> getArrays() {
         return modifier.getSerializer().getArrays();
     }
 
+    @Override
+    public List<ByteBuf> getAttachments() {
+        return modifier.getSerializer().getAttachments();
+    }
+
 }
@@ -15,10 +15,13 @@
  */
 package com.corundumstudio.socketio.protocol;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import com.corundumstudio.socketio.AckCallback;
@@ -35,12 +38,83 @@ public interface JsonSupport {
 
     <T> T readValue(String namespaceName, ByteBufInputStream src, Class<T> valueType) throws IOException;
 
+    /**
+     * Reads value from readable bytes of buffer.
+     * Implementations may parse buffer content in place, without stream.
+     *
+     * @param namespaceName - namespace name
+     * @param src - source buffer
+     * @param valueType - value type
+     * @param <T> - value type
+     * @return value
+     * @throws IOException - in case of parse error
+     */
+    default <T> T readValue(String namespaceName, ByteBuf src, Class<T> valueType) throws IOException {
+        return readValue(namespaceName, new ByteBufInputStream(src), valueType);
+    }
+
+    default AckArgs readAckArgs(ByteBuf src, AckCallback<?> callback) throws IOException {
+        return readAckArgs(new ByteBufInputStream(src), callback);
+    }
+
+    /**
+     * Reads value from readable bytes of buffer.
+     * Binary placeholders <code>{"_placeholder":true,"num":n}</code>
+     * are resolved to attachment with index <code>n</code>.
+     * Attachments are valid only during this call.
+     *
+     * @param namespaceName - namespace name
+     * @param src - source buffer
+     * @param valueType - value type
+     * @param attachments - binary attachments of packet
+     * @param <T> - value type
+     * @return value
+     * @throws IOException - in case of parse error
+     */
+    default <T> T readValue(String namespaceName, ByteBuf src, Class<T> valueType, List<ByteBuf> attachments) throws IOException {
+        return readValue(namespaceName, PacketDecoder.inlineAttachments(src, attachments), valueType);
+    }
+
+    default AckArgs readAckArgs(ByteBuf src, AckCallback<?> callback, List<ByteBuf> attachments) throws IOException {
+        return readAckArgs(PacketDecoder.inlineAttachments(src, attachments), callback);
+    }
+
     void writeValue(ByteBufOutputStream out, Object value) throws IOException;
 
+    /**
+     * Writes event as JSON array of event name followed by its arguments
+     *
+     * @param out - output
+     * @param name - event name
+     * @param args - event arguments
+     * @throws IOException - in case of write error
+     */
+    default void writeEvent(ByteBufOutputStream out, String name, List<?> args) throws IOException {
+        List<Object> values = new ArrayList<Object>(args.size() + 1);
+        values.add(name);
+        values.addAll(args);
+        writeValue(out, values);
+    }
+
     void addEventMapping(String namespaceName, String eventName, Class<?> ... eventClass);
 
     void removeEventMapping(String namespaceName, String eventName);
 
     List<byte[]> getArrays();
 
+    /**
+     * Binary values found by last write operation,
+     * in order of their placeholders. Buffers aren't retained.
+     *
+     * @return binary values
+     */
+    default List<ByteBuf> getAttachments() {
+        List<byte[]> arrays = getArrays();
+        List<ByteBuf> result = new ArrayList<ByteBuf>(arrays.size());
+        for (byte[] array : arrays) {
+            result.add(Unpooled.wrappedBuffer(array));
+        }
+        return result;
+    }
+
 }
@@ -16,11 +16,13 @@
 package com.corundumstudio.socketio.protocol;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCounted;
 
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import com.corundumstudio.socketio.namespace.Namespace;
 
@@ -40,6 +42,12 @@ public class Packet implements Serializable {
     private int attachmentsCount;
     private List<ByteBuf> attachments = Collections.emptyList();
 
+    private transient ByteBuf encoded;
+    private transient volatile int dataRefs;
+
+    private static final AtomicIntegerFieldUpdater<Packet> DATA_REFS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(Packet.class, "dataRefs");
+
     protected Packet() {
     }
 
@@ -96,17 +104,50 @@ public class Packet implements Serializable {
         if (this.nsp.equalsIgnoreCase(namespace)) {
             return this;
         } else {
-            Packet newPacket = new Packet(this.type, engineIOVersion);
-            newPacket.setAckId(this.ackId);
-            newPacket.setData(this.data);
-            newPacket.setDataSource(this.dataSource);
-            newPacket.setName(this.name);
-            newPacket.setSubType(this.subType);
-            newPacket.setNsp(namespace);
-            newPacket.attachments = this.attachments;
-            newPacket.attachmentsCount = this.attachmentsCount;
-            return newPacket;
+            return copy(namespace, engineIOVersion);
+        }
+    }
+
+    /**
+     * Creates a copy of #{@link Packet} with namespace and engine.io version set.
+     * Encoded content of packet isn't copied.
+     *
+     * @param namespace
+     * @param engineIOVersion
+     * @return packet
+     */
+    public Packet copy(String namespace, EngineIOVersion engineIOVersion) {
+        Packet newPacket = new Packet(this.type, engineIOVersion);
+        newPacket.setAckId(this.ackId);
+        newPacket.setData(this.data);
+        newPacket.setDataSource(this.dataSource);
+        newPacket.setName(this.name);
+        newPacket.setSubType(this.subType);
+        newPacket.setNsp(namespace);
+        newPacket.attachments = this.attachments;
+        newPacket.attachmentsCount = this.attachmentsCount;
+        return newPacket;
+    }
+
+    /**
+     * Creates a copy of #{@link Packet} which shares encoded content, data source and attachments
+     * with this packet. Copy holds its own references to them,
+     * so it should be released by the one who consumes the copy.
+     *
+     * @param engineIOVersion
+     * @return packet
+     */
+    public Packet retainedDuplicate(EngineIOVersion engineIOVersion) {
+        Packet newPacket = copy(this.nsp, engineIOVersion);
+        newPacket.encoded = this.encoded.retainedDuplicate();
+        // data source and attachments list are shared, reader indexes of attachments are never changed
+        if (this.dataSource != null) {
+            this.dataSource.retain();
         }
+        for (ByteBuf attachment : this.attachments) {
+            attachment.retain();
+        }
+        return newPacket;
     }
 
     public void setNsp(String endpoint) {
@@ -167,6 +208,103 @@ public class Packet implements Serializable {
         this.dataSource = dataSource;
     }
 
+    /**
+     * Packet content already encoded with {@link PacketEncoder}
+     * or <code>null</code> if packet should be encoded on write.
+     *
+     * @return encoded content
+     */
+    public ByteBuf getEncoded() {
+        return encoded;
+    }
+    public void setEncoded(ByteBuf encoded) {
+        this.encoded = encoded;
+    }
+    public boolean isEncoded() {
+        return encoded != null;
+    }
+
+    /**
+     * Releases data source and attachments buffers
+     * once they are resolved into packet data.
+     */
+    public void releaseAttachments() {
+        if (dataSource != null) {
+            dataSource.release();
+            dataSource = null;
+        }
+        for (ByteBuf attachment : attachments) {
+            attachment.release();
+        }
+        attachments = Collections.emptyList();
+        attachmentsCount = 0;
+    }
+
+    /**
+     * Retains reference counted arguments of packet data,
+     * so the sender may release them right after send.
+     * Retained arguments are released by {@link #releaseData()}.
+     */
+    public void retainData() {
+        if (!(data instanceof List)) {
+            return;
+        }
+        boolean retained = false;
+        for (Object arg : (List<?>) data) {
+            if (arg instanceof ReferenceCounted) {
+                ((ReferenceCounted) arg).retain();
+                retained = true;
+            }
+        }
+        if (retained) {
+            DATA_REFS_UPDATER.incrementAndGet(this);
+        }
+    }
+
+    /**
+     * Releases arguments retained by {@link #retainData()}
+     * once packet is encoded or discarded.
+     */
+    public void releaseData() {
+        int refs;
+        do {
+            refs = dataRefs;
+            if (refs == 0) {
+                return;
+            }
+        } while (!DATA_REFS_UPDATER.compareAndSet(this, refs, refs - 1));
+
+        for (Object arg : (List<?>) data) {
+            if (arg instanceof ReferenceCounted) {
+                ((ReferenceCounted) arg).release();
+            }
+        }
+    }
+
+    public boolean hasRetainedData() {
+        return dataRefs > 0;
+    }
+
+    /**
+     * Releases encoded content after it has been written
+     */
+    public void releaseEncoded() {
+        if (encoded != null) {
+            encoded.release();
+            encoded = null;
+        }
+    }
+
+    /**
+     * Releases encoded content, attachments and retained data
+     * if packet is discarded without been written
+     */
+    public void release() {
+        releaseEncoded();
+        releaseAttachments();
+        releaseData();
+    }
+
     public EngineIOVersion getEngineIOVersion() {
         return engineIOVersion;
     }
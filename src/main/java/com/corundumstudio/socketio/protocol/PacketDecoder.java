@@ -20,20 +20,26 @@ import com.corundumstudio.socketio.ack.AckManager;
 import com.corundumstudio.socketio.handler.ClientHead;
 import com.corundumstudio.socketio.namespace.Namespace;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
-import io.netty.handler.codec.base64.Base64;
 import io.netty.util.CharsetUtil;
 import java.io.IOException;
 import java.net.URLDecoder;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
 import java.util.Map;
 
 public class PacketDecoder {
 
+    private static final int NAMESPACE_CACHE_SIZE = 64;
+
     private final UTF8CharsScanner utf8scanner = new UTF8CharsScanner();
 
-    private final ByteBuf QUOTES = Unpooled.copiedBuffer("\"", CharsetUtil.UTF_8);
+    // namespace names decoded from packet headers, indexed by hash
+    private final String[] namespaceCache = new String[NAMESPACE_CACHE_SIZE];
+
+    private static final ByteBuf QUOTES = Unpooled.unreleasableBuffer(Unpooled.copiedBuffer("\"", CharsetUtil.UTF_8));
 
     private final JsonSupport jsonSupport;
     private final AckManager ackManager;
@@ -71,11 +77,7 @@ public class PacketDecoder {
     private long readLong(ByteBuf chars, int length) {
         long result = 0;
         for (int i = chars.readerIndex(); i < chars.readerIndex() + length; i++) {
-            int digit = ((int)chars.getByte(i) & 0xF);
-            for (int j = 0; j < chars.readerIndex() + length-1-i; j++) {
-                digit *= 10;
-            }
-            result += digit;
+            result = result * 10 + (chars.getByte(i) & 0xF);
         }
         chars.readerIndex(chars.readerIndex() + length);
         return result;
@@ -142,6 +144,43 @@ public class PacketDecoder {
         return new String(bytes, CharsetUtil.UTF_8);
     }
 
+    /**
+     * Reads namespace name, ascii names are taken from cache
+     * to avoid string allocation per packet.
+     */
+    private String readNamespaceName(ByteBuf frame, int length) {
+        int start = frame.readerIndex();
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            byte b = frame.getByte(i);
+            if (b < 0) {
+                return readString(frame, length);
+            }
+            hash = 31 * hash + b;
+        }
+
+        int index = hash & (NAMESPACE_CACHE_SIZE - 1);
+        String name = namespaceCache[index];
+        if (name == null || name.hashCode() != hash || !equalsAscii(name, frame, start, length)) {
+            name = frame.toString(start, length, CharsetUtil.US_ASCII);
+            namespaceCache[index] = name;
+        }
+        frame.skipBytes(length);
+        return name;
+    }
+
+    private boolean equalsAscii(String str, ByteBuf buf, int index, int length) {
+        if (str.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (str.charAt(i) != buf.getByte(index + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private Packet decode(ClientHead head, ByteBuf frame) throws IOException {
 
         Packet lastPacket = head.getLastBinaryPacket();
@@ -155,9 +194,9 @@ public class PacketDecoder {
         final int separatorPos = frame.bytesBefore((byte) 0x1E);
         final ByteBuf packetBuf;
         if (separatorPos > 0) {
-            // Multiple packets in one, copy out the next packet to parse
-            packetBuf = frame.copy(frame.readerIndex(), separatorPos);
-            frame.skipBytes(separatorPos + 1);
+            // Multiple packets in one, slice out the next packet to parse
+            packetBuf = frame.readSlice(separatorPos);
+            frame.skipBytes(1);
         } else {
             packetBuf = frame;
         }
@@ -202,16 +241,13 @@ public class PacketDecoder {
             return;
         }
 
-        // TODO optimize
-        boolean hasNsp = frame.bytesBefore(endIndex, (byte)',') != -1;
-        if (hasNsp) {
-            String nspAckId = readString(frame, endIndex);
-            String[] parts = nspAckId.split(",");
-            String nsp = parts[0];
-            packet.setNsp(nsp);
-            if (parts.length > 1) {
-                String ackId = parts[1];
-                packet.setAckId(Long.valueOf(ackId));
+        int nspEndIndex = frame.bytesBefore(endIndex, (byte)',');
+        if (nspEndIndex != -1) {
+            packet.setNsp(readNamespaceName(frame, nspEndIndex));
+            frame.skipBytes(1);
+            int ackIdLength = endIndex - nspEndIndex - 1;
+            if (ackIdLength > 0) {
+                packet.setAckId(readLong(frame, ackIdLength));
             }
         } else {
             long ackId = readLong(frame, endIndex);
@@ -220,42 +256,55 @@ public class PacketDecoder {
     }
 
     private Packet addAttachment(ClientHead head, ByteBuf frame, Packet binaryPacket) throws IOException {
-        ByteBuf attachBuf = Base64.encode(frame);
-        binaryPacket.addAttachment(Unpooled.copiedBuffer(attachBuf));
-        attachBuf.release();
+        // frame is released after decoding, so attachment keeps it by retained slice
+        binaryPacket.addAttachment(frame.retainedSlice());
         frame.skipBytes(frame.readableBytes());
 
         if (binaryPacket.isAttachmentsLoaded()) {
-            LinkedList<ByteBuf> slices = new LinkedList<ByteBuf>();
-            ByteBuf source = binaryPacket.getDataSource();
-            for (int i = 0; i < binaryPacket.getAttachments().size(); i++) {
-                ByteBuf attachment = binaryPacket.getAttachments().get(i);
-                ByteBuf scanValue = Unpooled.copiedBuffer("{\"_placeholder\":true,\"num\":" + i + "}", CharsetUtil.UTF_8);
-                int pos = PacketEncoder.find(source, scanValue);
-                if (pos == -1) {
-                    scanValue = Unpooled.copiedBuffer("{\"num\":" + i + ",\"_placeholder\":true}", CharsetUtil.UTF_8);
-                    pos = PacketEncoder.find(source, scanValue);
-                    if (pos == -1) {
-                        throw new IllegalStateException("Can't find attachment by index: " + i + " in packet source");
-                    }
-                }
+            head.setLastBinaryPacket(null);
+            try {
+                parseBody(head, binaryPacket.getDataSource(), binaryPacket);
+            } finally {
+                binaryPacket.releaseAttachments();
+            }
+            return binaryPacket;
+        }
+        return new Packet(PacketType.MESSAGE, head.getEngineIOVersion());
+    }
 
-                ByteBuf prefixBuf = source.slice(source.readerIndex(), pos - source.readerIndex());
-                slices.add(prefixBuf);
-                slices.add(QUOTES);
-                slices.add(attachment);
-                slices.add(QUOTES);
+    /**
+     * Replaces attachment placeholders in JSON source with base64 strings.
+     * Used by {@link JsonSupport} implementations which don't resolve placeholders during parsing.
+     */
+    static ByteBuf inlineAttachments(ByteBuf source, List<ByteBuf> attachments) {
+        if (attachments.isEmpty()) {
+            return source;
+        }
 
-                source.readerIndex(pos + scanValue.readableBytes());
+        List<ByteBuf> slices = new ArrayList<ByteBuf>(attachments.size() * 4 + 1);
+        for (int i = 0; i < attachments.size(); i++) {
+            ByteBuf scanValue = Unpooled.copiedBuffer("{\"_placeholder\":true,\"num\":" + i + "}", CharsetUtil.UTF_8);
+            int pos = PacketEncoder.find(source, scanValue);
+            if (pos == -1) {
+                scanValue = Unpooled.copiedBuffer("{\"num\":" + i + ",\"_placeholder\":true}", CharsetUtil.UTF_8);
+                pos = PacketEncoder.find(source, scanValue);
+                if (pos == -1) {
+                    throw new IllegalStateException("Can't find attachment by index: " + i + " in packet source");
+                }
             }
-            slices.add(source.slice());
 
-            ByteBuf compositeBuf = Unpooled.wrappedBuffer(slices.toArray(new ByteBuf[0]));
-            parseBody(head, compositeBuf, binaryPacket);
-            head.setLastBinaryPacket(null);
-            return binaryPacket;
+            byte[] encoded = Base64.getEncoder().encode(ByteBufUtil.getBytes(attachments.get(i)));
+            slices.add(source.slice(source.readerIndex(), pos - source.readerIndex()));
+            slices.add(QUOTES.duplicate());
+            slices.add(Unpooled.wrappedBuffer(encoded));
+            slices.add(QUOTES.duplicate());
+
+            source.readerIndex(pos + scanValue.readableBytes());
         }
-        return new Packet(PacketType.MESSAGE, head.getEngineIOVersion());
+        slices.add(source.slice());
+        source.skipBytes(source.readableBytes());
+
+        return Unpooled.wrappedBuffer(slices.toArray(new ByteBuf[0]));
     }
 
     private void parseBody(ClientHead head, ByteBuf frame, Packet packet) throws IOException {
@@ -264,13 +313,13 @@ public class PacketDecoder {
                     || packet.getSubType() == PacketType.DISCONNECT) {
                 packet.setNsp(readNamespace(frame, false));
                 if (packet.getSubType() == PacketType.CONNECT && frame.readableBytes() > 0) {
-                    final Object authArgs = jsonSupport.readValue(packet.getNsp(), new ByteBufInputStream(frame), Map.class);
+                    final Object authArgs = jsonSupport.readValue(packet.getNsp(), frame, Map.class);
                     packet.setData(authArgs);
                 }
             }
 
             if (packet.hasAttachments() && !packet.isAttachmentsLoaded()) {
-                packet.setDataSource(Unpooled.copiedBuffer(frame));
+                packet.setDataSource(frame.retainedSlice());
                 frame.skipBytes(frame.readableBytes());
                 head.setLastBinaryPacket(packet);
                 return;
@@ -278,10 +327,9 @@ public class PacketDecoder {
 
             if (packet.getSubType() == PacketType.ACK
                     || packet.getSubType() == PacketType.BINARY_ACK) {
-                AckCallback<?> callback = ackManager.getCallback(head.getSessionId(), packet.getAckId());
+                AckCallback<?> callback = ackManager.getCallback(head, packet.getAckId());
                 if (callback != null) {
-                    ByteBufInputStream in = new ByteBufInputStream(frame);
-                    AckArgs args = jsonSupport.readAckArgs(in, callback);
+                    AckArgs args = jsonSupport.readAckArgs(frame, callback, packet.getAttachments());
                     packet.setData(args.getArgs());
                 }else {
                     frame.clear();
@@ -290,8 +338,7 @@ public class PacketDecoder {
 
             if (packet.getSubType() == PacketType.EVENT
                     || packet.getSubType() == PacketType.BINARY_EVENT) {
-                ByteBufInputStream in = new ByteBufInputStream(frame);
-                Event event = jsonSupport.readValue(packet.getNsp(), in, Event.class);
+                Event event = jsonSupport.readValue(packet.getNsp(), frame, Event.class, packet.getAttachments());
                 packet.setName(event.getName());
                 packet.setData(event.getArgs());
             }
@@ -324,7 +371,7 @@ public class PacketDecoder {
             namespaceEndIndex = namespaceFieldEndIndex;
         }
 
-        String namespace = readString(buffer, namespaceEndIndex);
+        String namespace = readNamespaceName(buffer, namespaceEndIndex);
         if (namespace.startsWith("/")) {
             frame.skipBytes(namespaceFieldEndIndex + (withSpecialChar ? 1 : 0));
             return namespace;
@@ -16,17 +16,17 @@
 package com.corundumstudio.socketio.protocol;
 
 import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.metrics.SocketIOMetrics;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufOutputStream;
-import io.netty.buffer.Unpooled;
-import io.netty.handler.codec.base64.Base64;
-import io.netty.handler.codec.base64.Base64Dialect;
+import io.netty.util.ByteProcessor;
 import io.netty.util.CharsetUtil;
+import io.netty.util.internal.PlatformDependent;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 
 public class PacketEncoder {
@@ -37,12 +37,17 @@ public class PacketEncoder {
     private static final byte[] JSONP_START = "]('".getBytes(CharsetUtil.UTF_8);
     private static final byte[] JSONP_END = "');".getBytes(CharsetUtil.UTF_8);
 
+    private static final int NAMESPACE_CACHE_SIZE = 256;
+
     private final JsonSupport jsonSupport;
     private final Configuration configuration;
+    private final SocketIOMetrics metrics;
+    private final Map<String, byte[]> namespaceBytes = PlatformDependent.newConcurrentHashMap();
 
     public PacketEncoder(Configuration configuration, JsonSupport jsonSupport) {
         this.jsonSupport = jsonSupport;
         this.configuration = configuration;
+        this.metrics = configuration.getMetrics();
     }
 
     public JsonSupport getJsonSupport() {
@@ -57,74 +62,172 @@ public class PacketEncoder {
         return allocator.heapBuffer();
     }
 
+    /**
+     * Encodes packets as string payload for base64 and JSONP polling.
+     * Payload is written straight to <code>out</code>, packet content is written
+     * as UTF-8 encoded latin-1 chars, so length prefix is its size in bytes.
+     */
     public void encodeJsonP(Integer jsonpIndex, Queue<Packet> packets, ByteBuf out, ByteBufAllocator allocator, int limit) throws IOException {
-        boolean jsonpMode = jsonpIndex != null;
-
-        ByteBuf buf = allocateBuffer(allocator);
+        encodeJsonP(jsonpIndex, packets, out, allocator, limit, Integer.MAX_VALUE);
+    }
 
-        int i = 0;
-        while (true) {
-            Packet packet = packets.poll();
-            if (packet == null || i == limit) {
-                break;
-            }
+    /**
+     * Encodes packets until <code>limit</code> packets are written
+     * or payload size reaches <code>maxBytes</code>.
+     * At least one packet is written.
+     */
+    public void encodeJsonP(Integer jsonpIndex, Queue<Packet> packets, ByteBuf out, ByteBufAllocator allocator,
+                            int limit, int maxBytes) throws IOException {
+        boolean jsonpMode = jsonpIndex != null;
+        int start = out.writerIndex();
 
-            ByteBuf packetBuf = allocateBuffer(allocator);
-            encodePacket(packet, packetBuf, allocator, true);
+        if (jsonpMode) {
+            out.writeBytes(JSONP_HEAD);
+            writeDigits(out, jsonpIndex, true);
+            out.writeBytes(JSONP_START);
+        }
 
-            int packetSize = packetBuf.writerIndex();
-            buf.writeBytes(toChars(packetSize));
-            buf.writeBytes(B64_DELIMITER);
-            buf.writeBytes(packetBuf);
+        // reused by packets which aren't encoded yet
+        ByteBuf packetBuf = null;
+        try {
+            for (int i = 0; i < limit; i++) {
+                Packet packet = packets.poll();
+                if (packet == null) {
+                    break;
+                }
 
-            packetBuf.release();
+                ByteBuf content;
+                if (packet.isEncoded()) {
+                    content = packet.getEncoded();
+                } else {
+                    if (packetBuf == null) {
+                        packetBuf = allocateBuffer(allocator);
+                    } else {
+                        packetBuf.clear();
+                    }
+                    encodePacket(packet, packetBuf, allocator, true);
+                    content = packetBuf;
+                }
 
-            i++;
+                int packetSize = content.readableBytes();
+                metrics.packetSent(packet.getNsp(), packet.getName(), packetSize);
+                writeDigits(out, packetSize, true);
+                out.writeBytes(B64_DELIMITER);
+                writeUtf8(content, out, jsonpMode);
+                packet.releaseEncoded();
+
+                for (ByteBuf attachment : packet.getAttachments()) {
+                    writeDigits(out, base64Length(attachment.readableBytes()) + BINARY_HEADER.length, true);
+                    out.writeBytes(B64_DELIMITER);
+                    out.writeBytes(BINARY_HEADER);
+                    writeBase64(attachment, out);
+                }
+                packet.releaseAttachments();
+                packet.releaseData();
 
-            for (ByteBuf attachment : packet.getAttachments()) {
-                ByteBuf encodedBuf = Base64.encode(attachment, Base64Dialect.URL_SAFE);
-                buf.writeBytes(toChars(encodedBuf.readableBytes() + 2));
-                buf.writeBytes(B64_DELIMITER);
-                buf.writeBytes(BINARY_HEADER);
-                buf.writeBytes(encodedBuf);
+                if (out.writerIndex() - start >= maxBytes) {
+                    break;
+                }
+            }
+        } finally {
+            if (packetBuf != null) {
+                packetBuf.release();
             }
         }
 
-        if (jsonpMode) {
-            out.writeBytes(JSONP_HEAD);
-            out.writeBytes(toChars(jsonpIndex));
-            out.writeBytes(JSONP_START);
-        }
-
-        processUtf8(buf, out, jsonpMode);
-        buf.release();
-
         if (jsonpMode) {
             out.writeBytes(JSONP_END);
         }
     }
 
-    private void processUtf8(ByteBuf in, ByteBuf out, boolean jsonpMode) {
-        while (in.isReadable()) {
-            short value = (short) (in.readByte() & 0xFF);
+    private static final ByteProcessor FIND_NON_ASCII = value -> value >= 0;
+
+    private static final ByteProcessor FIND_JSONP_ESCAPED = value -> value >= 0 && value != '\\' && value != '\'';
+
+    /**
+     * Writes each byte as UTF-8 encoded latin-1 char.
+     * Ascii runs are copied as is, in JSONP mode quotes and backslashes are escaped.
+     */
+    static void writeUtf8(ByteBuf in, ByteBuf out, boolean jsonpMode) {
+        ByteProcessor processor = jsonpMode ? FIND_JSONP_ESCAPED : FIND_NON_ASCII;
+        int index = in.readerIndex();
+        int end = in.writerIndex();
+        while (index < end) {
+            int found = in.forEachByte(index, end - index, processor);
+            if (found == -1) {
+                out.writeBytes(in, index, end - index);
+                return;
+            }
+            out.writeBytes(in, index, found - index);
+
+            int value = in.getByte(found) & 0xFF;
             if (value >>> 7 == 0) {
-                if (jsonpMode && (value == '\\' || value == '\'')) {
-                    out.writeByte('\\');
-                }
+                out.writeByte('\\');
                 out.writeByte(value);
             } else {
-                out.writeByte(((value >>> 6) | 0xC0));
-                out.writeByte(((value & 0x3F) | 0x80));
+                out.writeByte((value >>> 6) | 0xC0);
+                out.writeByte((value & 0x3F) | 0x80);
             }
+            index = found + 1;
+        }
+    }
+
+    private static final byte[] BASE64_URL_SAFE = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+                                                    .getBytes(CharsetUtil.US_ASCII);
+
+    static int base64Length(int length) {
+        return (length + 2) / 3 * 4;
+    }
+
+    /**
+     * Writes readable bytes of buffer as padded url safe base64,
+     * reader index stays untouched since attachments could be shared between packets.
+     */
+    static void writeBase64(ByteBuf in, ByteBuf out) {
+        int index = in.readerIndex();
+        int end = in.writerIndex();
+        out.ensureWritable(base64Length(end - index));
+        for (; end - index >= 3; index += 3) {
+            int bits = in.getUnsignedMedium(index);
+            out.writeInt(BASE64_URL_SAFE[bits >>> 18] << 24
+                            | BASE64_URL_SAFE[(bits >>> 12) & 0x3F] << 16
+                            | BASE64_URL_SAFE[(bits >>> 6) & 0x3F] << 8
+                            | BASE64_URL_SAFE[bits & 0x3F]);
+        }
+
+        int remaining = end - index;
+        if (remaining > 0) {
+            int bits = (in.getByte(index) & 0xFF) << 16;
+            if (remaining == 2) {
+                bits |= (in.getByte(index + 1) & 0xFF) << 8;
+            }
+            out.writeByte(BASE64_URL_SAFE[bits >>> 18]);
+            out.writeByte(BASE64_URL_SAFE[(bits >>> 12) & 0x3F]);
+            out.writeByte(remaining == 2 ? BASE64_URL_SAFE[(bits >>> 6) & 0x3F] : '=');
+            out.writeByte('=');
         }
     }
 
     public void encodePackets(Queue<Packet> packets, ByteBuf buffer, ByteBufAllocator allocator, int limit) throws IOException {
+        encodePackets(packets, buffer, allocator, limit, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Encodes packets until <code>limit</code> packets are written
+     * or payload size reaches <code>maxBytes</code>.
+     * At least one packet is written.
+     */
+    public void encodePackets(Queue<Packet> packets, ByteBuf buffer, ByteBufAllocator allocator,
+                              int limit, int maxBytes) throws IOException {
+        int payloadStart = buffer.writerIndex();
         int i = 0;
         boolean hasPrecedingPacket = false;
         while (true) {
+            if (i == limit) {
+                break;
+            }
             Packet packet = packets.poll();
-            if (packet == null || i == limit) {
+            if (packet == null) {
                 break;
             }
             // Multiple packets are separated by 0x1e from protocol version 3 on
@@ -134,18 +237,105 @@ public class PacketEncoder {
             if (hasPrecedingPacket && isV3OrNewer) {
                 buffer.writeByte(0x1e);
             }
+            int start = buffer.writerIndex();
             encodePacket(packet, buffer, allocator, false);
+            metrics.packetSent(packet.getNsp(), packet.getName(), buffer.writerIndex() - start);
 
             i++;
 
             for (ByteBuf attachment : packet.getAttachments()) {
                 buffer.writeByte(1);
-                buffer.writeBytes(longToBytes(attachment.readableBytes() + 1));
+                writeDigits(buffer, attachment.readableBytes() + 1, false);
                 buffer.writeByte(0xff);
                 buffer.writeByte(4);
-                buffer.writeBytes(attachment);
+                buffer.writeBytes(attachment, attachment.readerIndex(), attachment.readableBytes());
             }
+            packet.releaseAttachments();
+            packet.releaseData();
             hasPrecedingPacket = true;
+
+            if (buffer.writerIndex() - payloadStart >= maxBytes) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Encodes packets as binary payload split into chunks.
+     * Content of already encoded packets is added as separate chunk without copy,
+     * chunk takes ownership of the packet's reference. Everything else
+     * between such packets is written to a single chunk.
+     * At least one packet is written.
+     */
+    public void encodePacketChunks(Queue<Packet> packets, List<ByteBuf> chunks, ByteBufAllocator allocator,
+                                   int limit, int maxBytes) throws IOException {
+        ByteBuf buffer = null;
+        int size = 0;
+        boolean hasPrecedingPacket = false;
+        try {
+            for (int i = 0; i < limit && size < maxBytes; i++) {
+                Packet packet = packets.poll();
+                if (packet == null) {
+                    break;
+                }
+                if (buffer == null) {
+                    buffer = allocateBuffer(allocator);
+                }
+                int start = buffer.writerIndex();
+                final boolean isV3OrNewer = EngineIOVersion.V4.equals(packet.getEngineIOVersion()) ||
+                    EngineIOVersion.V3.equals(packet.getEngineIOVersion());
+                if (hasPrecedingPacket && isV3OrNewer) {
+                    buffer.writeByte(0x1e);
+                }
+
+                int packetStart = buffer.writerIndex();
+                if (packet.isEncoded()) {
+                    ByteBuf encoded = packet.getEncoded();
+                    if (!EngineIOVersion.V4.equals(packet.getEngineIOVersion())) {
+                        buffer.writeByte(0);
+                        writeDigits(buffer, encoded.readableBytes(), false);
+                        buffer.writeByte(0xff);
+                    }
+                    int packetSize = buffer.writerIndex() - packetStart + encoded.readableBytes();
+                    metrics.packetSent(packet.getNsp(), packet.getName(), packetSize);
+                    size += buffer.writerIndex() - start + encoded.readableBytes();
+
+                    if (buffer.isReadable()) {
+                        chunks.add(buffer);
+                    } else {
+                        buffer.release();
+                    }
+                    chunks.add(encoded);
+                    packet.setEncoded(null);
+
+                    buffer = allocateBuffer(allocator);
+                    start = buffer.writerIndex();
+                } else {
+                    encodePacket(packet, buffer, allocator, false);
+                    metrics.packetSent(packet.getNsp(), packet.getName(), buffer.writerIndex() - packetStart);
+                }
+
+                for (ByteBuf attachment : packet.getAttachments()) {
+                    buffer.writeByte(1);
+                    writeDigits(buffer, attachment.readableBytes() + 1, false);
+                    buffer.writeByte(0xff);
+                    buffer.writeByte(4);
+                    buffer.writeBytes(attachment, attachment.readerIndex(), attachment.readableBytes());
+                }
+                packet.releaseAttachments();
+                packet.releaseData();
+                hasPrecedingPacket = true;
+
+                size += buffer.writerIndex() - start;
+            }
+        } finally {
+            if (buffer != null) {
+                if (buffer.isReadable()) {
+                    chunks.add(buffer);
+                } else {
+                    buffer.release();
+                }
+            }
         }
     }
 
@@ -224,8 +414,10 @@ public class PacketEncoder {
     }
 
     public static byte[] longToBytes(long number) {
-        // TODO optimize
-        int length = (int)(Math.log10(number)+1);
+        int length = 1;
+        for (long n = number / 10; n > 0; n /= 10) {
+            length++;
+        }
         byte[] res = new byte[length];
         int i = length;
         while (number > 0) {
@@ -235,11 +427,90 @@ public class PacketEncoder {
         return res;
     }
 
+    /**
+     * Writes decimal digits of non-negative number
+     *
+     * @param buf - destination
+     * @param number - number
+     * @param ascii - <code>true</code> to write digit chars,
+     *                <code>false</code> to write digit values as in {@link #longToBytes(long)}
+     */
+    static void writeDigits(ByteBuf buf, long number, boolean ascii) {
+        int mask = ascii ? 0x30 : 0;
+        int start = buf.writerIndex();
+        do {
+            buf.writeByte((int) (number % 10) | mask);
+            number /= 10;
+        } while (number > 0);
+
+        // digits are written in reverse order
+        for (int i = start, j = buf.writerIndex() - 1; i < j; i++, j--) {
+            byte b = buf.getByte(i);
+            buf.setByte(i, buf.getByte(j));
+            buf.setByte(j, b);
+        }
+    }
+
+    private byte[] getNamespaceBytes(String namespace) {
+        byte[] bytes = namespaceBytes.get(namespace);
+        if (bytes == null) {
+            bytes = namespace.getBytes(CharsetUtil.UTF_8);
+            if (namespaceBytes.size() < NAMESPACE_CACHE_SIZE) {
+                namespaceBytes.put(namespace, bytes);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Encodes packet once so its content could be shared between many clients
+     * through {@link Packet#retainedDuplicate(EngineIOVersion)}.
+     * Passed packet stays unchanged.
+     *
+     * @param packet - packet to encode
+     * @param namespace - namespace of receivers
+     * @param engineIOVersion - engine.io version of receivers
+     * @param allocator - allocator
+     * @return packet with encoded content, should be released after use
+     * @throws IOException
+     */
+    public Packet encodeShared(Packet packet, String namespace, EngineIOVersion engineIOVersion, ByteBufAllocator allocator) throws IOException {
+        Packet sharedPacket = packet.copy(namespace, engineIOVersion);
+        ByteBuf buf = allocateBuffer(allocator);
+        try {
+            encodePacket(sharedPacket, buf, allocator, true);
+        } catch (IOException | RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+        sharedPacket.setEncoded(buf);
+        return sharedPacket;
+    }
+
+    private void writeEncoded(Packet packet, ByteBuf buffer, boolean binary) {
+        ByteBuf encoded = packet.getEncoded();
+        try {
+            if (!binary && !EngineIOVersion.V4.equals(packet.getEngineIOVersion())) {
+                buffer.writeByte(0);
+                writeDigits(buffer, encoded.readableBytes(), false);
+                buffer.writeByte(0xff);
+            }
+            buffer.writeBytes(encoded, encoded.readerIndex(), encoded.readableBytes());
+        } finally {
+            packet.releaseEncoded();
+        }
+    }
+
     public void encodePacket(Packet packet, ByteBuf buffer, ByteBufAllocator allocator, boolean binary) throws IOException {
-        ByteBuf buf = buffer;
-        if (!binary) {
-            buf = allocateBuffer(allocator);
+        if (packet.isEncoded()) {
+            writeEncoded(packet, buffer, binary);
+            return;
         }
+
+        // only old protocol versions need length header before packet content
+        boolean lengthHeader = !binary && !EngineIOVersion.V4.equals(packet.getEngineIOVersion());
+        ByteBuf buf = buffer;
+        int start = buf.writerIndex();
         byte type = toChar(packet.getType().getValue());
         buf.writeByte(type);
 
@@ -247,7 +518,7 @@ public class PacketEncoder {
             switch (packet.getType()) {
 
                 case PONG: {
-                    buf.writeBytes(packet.getData().toString().getBytes(CharsetUtil.UTF_8));
+                    buf.writeCharSequence(packet.getData().toString(), CharsetUtil.UTF_8);
                     break;
                 }
 
@@ -258,53 +529,18 @@ public class PacketEncoder {
                 }
 
                 case MESSAGE: {
-
-                    ByteBuf encBuf = null;
-
-                    if (packet.getSubType() == PacketType.ERROR) {
-                        encBuf = allocateBuffer(allocator);
-
-                        ByteBufOutputStream out = new ByteBufOutputStream(encBuf);
-                        jsonSupport.writeValue(out, packet.getData());
-                    }
-
-                    if (packet.getSubType() == PacketType.EVENT
-                            || packet.getSubType() == PacketType.ACK) {
-
-                        List<Object> values = new ArrayList<Object>();
-                        if (packet.getSubType() == PacketType.EVENT) {
-                            values.add(packet.getName());
-                        }
-
-                        encBuf = allocateBuffer(allocator);
-
-                        List<Object> args = packet.getData();
-                        values.addAll(args);
-                        ByteBufOutputStream out = new ByteBufOutputStream(encBuf);
-                        jsonSupport.writeValue(out, values);
-
-                        if (!jsonSupport.getArrays().isEmpty()) {
-                            packet.initAttachments(jsonSupport.getArrays().size());
-                            for (byte[] array : jsonSupport.getArrays()) {
-                                packet.addAttachment(Unpooled.wrappedBuffer(array));
-                            }
-                            packet.setSubType(packet.getSubType() == PacketType.ACK
-                                    ? PacketType.BINARY_ACK : PacketType.BINARY_EVENT);
-                        }
-                    }
-
+                    int subTypeIndex = buf.writerIndex();
                     byte subType = toChar(packet.getSubType().getValue());
                     buf.writeByte(subType);
 
                     if (packet.hasAttachments()) {
-                        byte[] ackId = toChars(packet.getAttachments().size());
-                        buf.writeBytes(ackId);
+                        writeDigits(buf, packet.getAttachments().size(), true);
                         buf.writeByte('-');
                     }
 
                     if (packet.getSubType() == PacketType.CONNECT) {
                         if (!packet.getNsp().isEmpty()) {
-                            buf.writeBytes(packet.getNsp().getBytes(CharsetUtil.UTF_8));
+                            buf.writeBytes(getNamespaceBytes(packet.getNsp()));
                         }
                         //:TODO lyjnew tmp change V4 add “,”
                         if (EngineIOVersion.V4.equals(packet.getEngineIOVersion())
@@ -318,19 +554,41 @@ public class PacketEncoder {
                         }
                     } else {
                         if (!packet.getNsp().isEmpty()) {
-                            buf.writeBytes(packet.getNsp().getBytes(CharsetUtil.UTF_8));
+                            buf.writeBytes(getNamespaceBytes(packet.getNsp()));
                             buf.writeByte(',');
                         }
                     }
 
                     if (packet.getAckId() != null) {
-                        byte[] ackId = toChars(packet.getAckId());
-                        buf.writeBytes(ackId);
+                        writeDigits(buf, packet.getAckId(), true);
                     }
 
-                    if (encBuf != null) {
-                        buf.writeBytes(encBuf);
-                        encBuf.release();
+                    if (packet.getSubType() == PacketType.ERROR) {
+                        ByteBufOutputStream out = new ByteBufOutputStream(buf);
+                        jsonSupport.writeValue(out, packet.getData());
+                    }
+
+                    if (packet.getSubType() == PacketType.EVENT
+                            || packet.getSubType() == PacketType.ACK) {
+
+                        ByteBufOutputStream out = new ByteBufOutputStream(buf);
+                        if (packet.getSubType() == PacketType.EVENT) {
+                            jsonSupport.writeEvent(out, packet.getName(), packet.getData());
+                        } else {
+                            jsonSupport.writeValue(out, packet.getData());
+                        }
+
+                        List<ByteBuf> attachments = jsonSupport.getAttachments();
+                        if (!attachments.isEmpty()) {
+                            packet.initAttachments(attachments.size());
+                            for (ByteBuf attachment : attachments) {
+                                // packet holds its own reference, so sender may release argument after send
+                                packet.addAttachment(attachment.retainedDuplicate());
+                            }
+                            packet.setSubType(packet.getSubType() == PacketType.ACK
+                                    ? PacketType.BINARY_ACK : PacketType.BINARY_EVENT);
+                            writeAttachmentsHeader(packet, buf, subTypeIndex);
+                        }
                     }
 
                     break;
@@ -338,20 +596,70 @@ public class PacketEncoder {
             }
         } finally {
             // we need to write a buffer in any case
-            if (!binary) {
-                if (!EngineIOVersion.V4.equals(packet.getEngineIOVersion())){
-                    buffer.writeByte(0);
-                    int length = buf.writerIndex();
-                    buffer.writeBytes(longToBytes(length));
-                    buffer.writeByte(0xff);
-                }
-                buffer.writeBytes(buf);
-
-                buf.release();
+            if (lengthHeader) {
+                // length is known only after content is written,
+                // so content is shifted to make room for the header
+                int length = buf.writerIndex() - start;
+                int digits = stringSize(length);
+                shiftRight(buf, start, digits + 2);
+                buf.setByte(start, 0);
+                setDigits(buf, start + 1, digits, length, false);
+                buf.setByte(start + 1 + digits, 0xff);
             }
         }
     }
 
+    /**
+     * Attachments are found only during body serialization,
+     * so header after packet type is rewritten with binary sub type and attachments count.
+     */
+    private void writeAttachmentsHeader(Packet packet, ByteBuf buf, int subTypeIndex) {
+        int tailIndex = subTypeIndex + 1;
+        int count = packet.getAttachments().size();
+        int digits = stringSize(count);
+        shiftRight(buf, tailIndex, digits + 1);
+        buf.setByte(subTypeIndex, toChar(packet.getSubType().getValue()));
+        setDigits(buf, tailIndex, digits, count, true);
+        buf.setByte(tailIndex + digits, '-');
+    }
+
+    /**
+     * Moves bytes from <code>index</code> up to writer index
+     * by <code>shift</code> bytes forward, in place
+     */
+    private static void shiftRight(ByteBuf buf, int index, int shift) {
+        int end = buf.writerIndex();
+        buf.ensureWritable(shift);
+        // copied from the end, so source bytes aren't overwritten before they are read
+        int i = end;
+        while (i - index >= Long.BYTES) {
+            i -= Long.BYTES;
+            buf.setLong(i + shift, buf.getLong(i));
+        }
+        while (i > index) {
+            i--;
+            buf.setByte(i + shift, buf.getByte(i));
+        }
+        buf.writerIndex(end + shift);
+    }
+
+    /**
+     * Sets decimal digits of non-negative number starting from <code>index</code>
+     *
+     * @param buf - destination
+     * @param index - index of first digit
+     * @param digits - digits amount, see {@link #stringSize(long)}
+     * @param number - number
+     * @param ascii - <code>true</code> to set digit chars, <code>false</code> to set digit values
+     */
+    private static void setDigits(ByteBuf buf, int index, int digits, long number, boolean ascii) {
+        int mask = ascii ? 0x30 : 0;
+        for (int i = index + digits - 1; i >= index; i--) {
+            buf.setByte(i, (int) (number % 10) | mask);
+            number /= 10;
+        }
+    }
+
     public static int find(ByteBuf buffer, ByteBuf searchValue) {
         for (int i = buffer.readerIndex(); i < buffer.readerIndex() + buffer.readableBytes(); i++) {
             if (isValueFound(buffer, i, searchValue)) {
@@ -0,0 +1,519 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.corundumstudio.socketio.AckCallback;
+import com.corundumstudio.socketio.MultiTypeAckCallback;
+import com.corundumstudio.socketio.namespace.Namespace;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * JSON support which reads and writes socket.io packets
+ * with Jackson streaming parser and generator.
+ * <p>
+ * Event envelope, ack arguments, scalar and untyped values are handled
+ * without data binding and tree model. Data binding is used only
+ * for arguments of bean types. Namespace and binary attachments
+ * are passed as arguments instead of thread locals.
+ */
+public class StreamingJsonSupport implements JsonSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingJsonSupport.class);
+
+    private static final String ATTACHMENTS = "socketio.attachments";
+
+    /**
+     * Writes binary value as placeholder, value is added to attachments of current write.
+     */
+    private static class BinarySerializer<T> extends StdSerializer<T> {
+
+        private static final long serialVersionUID = -5419813472540867145L;
+
+        BinarySerializer(Class<T> clazz) {
+            super(clazz);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void serialize(T value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            List<ByteBuf> attachments = (List<ByteBuf>) provider.getAttribute(ATTACHMENTS);
+            if (attachments == null) {
+                throw JsonMappingException.from(provider, "Binary value is written outside of packet");
+            }
+            writePlaceholder(gen, toBuffer(value), attachments);
+        }
+
+    }
+
+    /**
+     * Reads binary placeholder of bean property, other values are read as base64 string.
+     */
+    private static class BinaryDeserializer<T> extends StdDeserializer<T> {
+
+        private static final long serialVersionUID = 3270592684210467093L;
+
+        BinaryDeserializer(Class<T> clazz) {
+            super(clazz);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T deserialize(JsonParser parser, DeserializationContext ctxt) throws IOException {
+            List<ByteBuf> attachments = (List<ByteBuf>) ctxt.getAttribute(ATTACHMENTS);
+            return (T) readBinary(parser, (Class<?>) handledType(), attachments);
+        }
+
+    }
+
+    private final Map<String, Map<String, List<Class<?>>>> eventMapping = PlatformDependent.newConcurrentHashMap();
+    private final ThreadLocal<List<ByteBuf>> lastAttachments = new ThreadLocal<List<ByteBuf>>();
+
+    protected final ObjectMapper objectMapper = new ObjectMapper();
+    protected final JsonFactory jsonFactory;
+
+    public StreamingJsonSupport() {
+        this(new Module[] {});
+    }
+
+    public StreamingJsonSupport(Module... modules) {
+        if (modules != null && modules.length > 0) {
+            objectMapper.registerModules(modules);
+        }
+        init(objectMapper);
+        jsonFactory = objectMapper.getFactory();
+    }
+
+    protected void init(ObjectMapper objectMapper) {
+        SimpleModule module = new SimpleModule();
+        module.addSerializer(byte[].class, new BinarySerializer<byte[]>(byte[].class));
+        module.addSerializer(ByteBuf.class, new BinarySerializer<ByteBuf>(ByteBuf.class));
+        module.addSerializer(ByteBuffer.class, new BinarySerializer<ByteBuffer>(ByteBuffer.class));
+        module.addDeserializer(byte[].class, new BinaryDeserializer<byte[]>(byte[].class));
+        module.addDeserializer(ByteBuf.class, new BinaryDeserializer<ByteBuf>(ByteBuf.class));
+        objectMapper.registerModule(module);
+
+        objectMapper.setSerializationInclusion(Include.NON_NULL);
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        objectMapper.configure(SerializationFeature.WRITE_BIGDECIMAL_AS_PLAIN, true);
+        objectMapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+    }
+
+    @Override
+    public void addEventMapping(String namespaceName, String eventName, Class<?>... eventClass) {
+        eventMapping.computeIfAbsent(namespaceName, k -> PlatformDependent.<String, List<Class<?>>>newConcurrentHashMap())
+                        .put(eventName, Arrays.asList(eventClass));
+    }
+
+    @Override
+    public void removeEventMapping(String namespaceName, String eventName) {
+        Map<String, List<Class<?>>> events = eventMapping.get(namespaceName);
+        if (events != null) {
+            events.remove(eventName);
+        }
+    }
+
+    private List<Class<?>> getEventClasses(String namespaceName, String eventName) {
+        if (eventName == null) {
+            return null;
+        }
+        Map<String, List<Class<?>>> events = eventMapping.get(namespaceName);
+        if (events != null) {
+            List<Class<?>> classes = events.get(eventName);
+            if (classes != null) {
+                return classes;
+            }
+        }
+        events = eventMapping.get(Namespace.DEFAULT_NAME);
+        if (events != null) {
+            return events.get(eventName);
+        }
+        return null;
+    }
+
+    private JsonParser createParser(ByteBuf src) throws IOException {
+        if (src.hasArray()) {
+            // heap buffer is parsed in place
+            JsonParser parser = jsonFactory.createParser(src.array(), src.arrayOffset() + src.readerIndex(), src.readableBytes());
+            src.skipBytes(src.readableBytes());
+            return parser;
+        }
+        return jsonFactory.createParser((InputStream) new ByteBufInputStream(src));
+    }
+
+    @Override
+    public <T> T readValue(String namespaceName, ByteBufInputStream src, Class<T> valueType) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser((InputStream) src)) {
+            return parseValue(namespaceName, parser, valueType, Collections.<ByteBuf>emptyList());
+        }
+    }
+
+    @Override
+    public <T> T readValue(String namespaceName, ByteBuf src, Class<T> valueType) throws IOException {
+        return readValue(namespaceName, src, valueType, Collections.<ByteBuf>emptyList());
+    }
+
+    @Override
+    public <T> T readValue(String namespaceName, ByteBuf src, Class<T> valueType, List<ByteBuf> attachments) throws IOException {
+        try (JsonParser parser = createParser(src)) {
+            return parseValue(namespaceName, parser, valueType, attachments);
+        }
+    }
+
+    private <T> T parseValue(String namespaceName, JsonParser parser, Class<T> valueType, List<ByteBuf> attachments) throws IOException {
+        if (parser.nextToken() == null) {
+            throw new JsonParseException(parser, "No content to read");
+        }
+        if (valueType == Event.class) {
+            return valueType.cast(readEvent(namespaceName, parser, attachments));
+        }
+        return valueType.cast(readArg(parser, valueType, attachments));
+    }
+
+    private Event readEvent(String namespaceName, JsonParser parser, List<ByteBuf> attachments) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new JsonParseException(parser, "Event should be an array");
+        }
+        String eventName = parser.nextTextValue();
+
+        List<Class<?>> eventClasses = getEventClasses(namespaceName, eventName);
+        if (eventClasses == null) {
+            return new Event(eventName, Collections.emptyList());
+        }
+
+        List<Object> eventArgs = new ArrayList<Object>(eventClasses.size());
+        for (int i = 0; parser.nextToken() != JsonToken.END_ARRAY; i++) {
+            if (i == eventClasses.size()) {
+                log.debug("Event {} has more args than declared in handler", eventName);
+                break;
+            }
+            eventArgs.add(readArg(parser, eventClasses.get(i), attachments));
+        }
+        return new Event(eventName, eventArgs);
+    }
+
+    @Override
+    public AckArgs readAckArgs(ByteBufInputStream src, AckCallback<?> callback) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser((InputStream) src)) {
+            return parseAckArgs(parser, callback, Collections.<ByteBuf>emptyList());
+        }
+    }
+
+    @Override
+    public AckArgs readAckArgs(ByteBuf src, AckCallback<?> callback) throws IOException {
+        return readAckArgs(src, callback, Collections.<ByteBuf>emptyList());
+    }
+
+    @Override
+    public AckArgs readAckArgs(ByteBuf src, AckCallback<?> callback, List<ByteBuf> attachments) throws IOException {
+        try (JsonParser parser = createParser(src)) {
+            return parseAckArgs(parser, callback, attachments);
+        }
+    }
+
+    private AckArgs parseAckArgs(JsonParser parser, AckCallback<?> callback, List<ByteBuf> attachments) throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new JsonParseException(parser, "Ack args should be an array");
+        }
+
+        Class<?>[] resultClasses = null;
+        if (callback instanceof MultiTypeAckCallback) {
+            resultClasses = ((MultiTypeAckCallback) callback).getResultClasses();
+        }
+
+        List<Object> args = new ArrayList<Object>();
+        for (int i = 0; parser.nextToken() != JsonToken.END_ARRAY; i++) {
+            Class<?> clazz = callback.getResultClass();
+            if (resultClasses != null) {
+                clazz = i < resultClasses.length ? resultClasses[i] : Object.class;
+            }
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.VALUE_STRING || token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+                // strings and booleans are returned as is
+                clazz = Object.class;
+            }
+            args.add(readArg(parser, clazz, attachments));
+        }
+        return new AckArgs(args);
+    }
+
+    /**
+     * Reads value starting at current token of parser
+     */
+    protected Object readArg(JsonParser parser, Class<?> clazz, List<ByteBuf> attachments) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (clazz == Object.class
+                || (clazz == Map.class && token == JsonToken.START_OBJECT)
+                || (clazz == List.class && token == JsonToken.START_ARRAY)) {
+            return readUntyped(parser, attachments);
+        }
+        if (token == JsonToken.VALUE_NULL && !clazz.isPrimitive()) {
+            return null;
+        }
+        if (clazz == String.class) {
+            if (token == JsonToken.VALUE_STRING) {
+                return parser.getText();
+            }
+        } else if (clazz == Integer.class || clazz == int.class) {
+            if (token == JsonToken.VALUE_NUMBER_INT) {
+                return parser.getIntValue();
+            }
+        } else if (clazz == Long.class || clazz == long.class) {
+            if (token == JsonToken.VALUE_NUMBER_INT) {
+                return parser.getLongValue();
+            }
+        } else if (clazz == Double.class || clazz == double.class) {
+            if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                return parser.getDoubleValue();
+            }
+        } else if (clazz == Boolean.class || clazz == boolean.class) {
+            if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+                return token == JsonToken.VALUE_TRUE;
+            }
+        } else if (clazz == byte[].class || clazz == ByteBuf.class) {
+            return readBinary(parser, clazz, attachments);
+        }
+
+        if (attachments.isEmpty()) {
+            return objectMapper.readValue(parser, clazz);
+        }
+        return objectMapper.readerFor(clazz).withAttribute(ATTACHMENTS, attachments).readValue(parser);
+    }
+
+    private Object readUntyped(JsonParser parser, List<ByteBuf> attachments) throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT: {
+                Map<String, Object> map = new LinkedHashMap<String, Object>();
+                for (String field = parser.nextFieldName(); field != null; field = parser.nextFieldName()) {
+                    parser.nextToken();
+                    map.put(field, readUntyped(parser, attachments));
+                }
+                ByteBuf attachment = getAttachment(map, attachments);
+                if (attachment != null) {
+                    return ByteBufUtil.getBytes(attachment);
+                }
+                return map;
+            }
+            case START_ARRAY: {
+                List<Object> list = new ArrayList<Object>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(readUntyped(parser, attachments));
+                }
+                return list;
+            }
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                return parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            case VALUE_EMBEDDED_OBJECT:
+                return parser.getEmbeddedObject();
+            default:
+                throw new JsonParseException(parser, "Unexpected token: " + parser.currentToken());
+        }
+    }
+
+    private static ByteBuf getAttachment(Map<String, Object> map, List<ByteBuf> attachments) {
+        if (attachments == null || attachments.isEmpty() || map.size() != 2
+                || !Boolean.TRUE.equals(map.get("_placeholder"))) {
+            return null;
+        }
+        Object num = map.get("num");
+        if (num instanceof Integer && (Integer) num >= 0 && (Integer) num < attachments.size()) {
+            return attachments.get((Integer) num);
+        }
+        return null;
+    }
+
+    private static Object readBinary(JsonParser parser, Class<?> clazz, List<ByteBuf> attachments) throws IOException {
+        byte[] bytes;
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            boolean placeholder = false;
+            int num = -1;
+            for (String field = parser.nextFieldName(); field != null; field = parser.nextFieldName()) {
+                JsonToken token = parser.nextToken();
+                if ("num".equals(field)) {
+                    num = parser.getValueAsInt(-1);
+                } else if ("_placeholder".equals(field)) {
+                    placeholder = token == JsonToken.VALUE_TRUE;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (!placeholder || attachments == null || num < 0 || num >= attachments.size()) {
+                throw new JsonParseException(parser, "Can't find attachment by index: " + num);
+            }
+            // listener may outlive inbound frame
+            bytes = ByteBufUtil.getBytes(attachments.get(num));
+        } else {
+            bytes = parser.getBinaryValue();
+        }
+
+        if (clazz == ByteBuf.class) {
+            return Unpooled.wrappedBuffer(bytes);
+        }
+        return bytes;
+    }
+
+    @Override
+    public void writeValue(ByteBufOutputStream out, Object value) throws IOException {
+        List<ByteBuf> attachments = new ArrayList<ByteBuf>(0);
+        try (JsonGenerator generator = jsonFactory.createGenerator((OutputStream) out)) {
+            writeAny(generator, value, attachments);
+        } finally {
+            lastAttachments.set(attachments);
+        }
+    }
+
+    @Override
+    public void writeEvent(ByteBufOutputStream out, String name, List<?> args) throws IOException {
+        List<ByteBuf> attachments = new ArrayList<ByteBuf>(0);
+        try (JsonGenerator generator = jsonFactory.createGenerator((OutputStream) out)) {
+            generator.writeStartArray();
+            generator.writeString(name);
+            for (Object arg : args) {
+                writeAny(generator, arg, attachments);
+            }
+            generator.writeEndArray();
+        } finally {
+            lastAttachments.set(attachments);
+        }
+    }
+
+    /**
+     * Writes value, common types are written without data binding
+     */
+    protected void writeAny(JsonGenerator generator, Object value, List<ByteBuf> attachments) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Integer || value instanceof Long
+                    || value instanceof Short || value instanceof Byte) {
+            generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            generator.writeNumber((Double) value);
+        } else if (value instanceof Float) {
+            generator.writeNumber((Float) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof byte[] || value instanceof ByteBuf || value instanceof ByteBuffer) {
+            writePlaceholder(generator, toBuffer(value), attachments);
+        } else if (value instanceof Map) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                writeAny(generator, entry.getValue(), attachments);
+            }
+            generator.writeEndObject();
+        } else if (value instanceof Collection) {
+            generator.writeStartArray();
+            for (Object item : (Collection<?>) value) {
+                writeAny(generator, item, attachments);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Object[]) {
+            generator.writeStartArray();
+            for (Object item : (Object[]) value) {
+                writeAny(generator, item, attachments);
+            }
+            generator.writeEndArray();
+        } else {
+            objectMapper.writer().withAttribute(ATTACHMENTS, attachments).writeValue(generator, value);
+        }
+    }
+
+    private static ByteBuf toBuffer(Object value) {
+        if (value instanceof byte[]) {
+            return Unpooled.wrappedBuffer((byte[]) value);
+        }
+        if (value instanceof ByteBuffer) {
+            return Unpooled.wrappedBuffer(((ByteBuffer) value).duplicate());
+        }
+        return (ByteBuf) value;
+    }
+
+    private static void writePlaceholder(JsonGenerator generator, ByteBuf value, List<ByteBuf> attachments) throws IOException {
+        generator.writeStartObject();
+        generator.writeBooleanField("_placeholder", true);
+        generator.writeNumberField("num", attachments.size());
+        generator.writeEndObject();
+        attachments.add(value);
+    }
+
+    @Override
+    public List<ByteBuf> getAttachments() {
+        List<ByteBuf> attachments = lastAttachments.get();
+        if (attachments == null) {
+            return Collections.emptyList();
+        }
+        return attachments;
+    }
+
+    @Override
+    public List<byte[]> getArrays() {
+        List<ByteBuf> attachments = getAttachments();
+        List<byte[]> arrays = new ArrayList<byte[]>(attachments.size());
+        for (ByteBuf attachment : attachments) {
+            arrays.add(ByteBufUtil.getBytes(attachment));
+        }
+        return arrays;
+    }
+
+}
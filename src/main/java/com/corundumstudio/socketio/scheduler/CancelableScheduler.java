@@ -16,6 +16,7 @@
 package com.corundumstudio.socketio.scheduler;
 
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.concurrent.EventExecutor;
 
 import java.util.concurrent.TimeUnit;
 
@@ -31,6 +32,34 @@ public interface CancelableScheduler {
 
     void schedule(SchedulerKey key, Runnable runnable, long delay, TimeUnit unit);
 
+    /**
+     * Schedules task which should be run by executor of channel it belongs to.
+     * Implementations may ignore executor and run task on their own thread.
+     *
+     * @param executor - channel executor or <code>null</code> if unknown
+     * @param key - task key
+     * @param runnable - task
+     * @param delay - delay
+     * @param unit - delay unit
+     */
+    default void schedule(EventExecutor executor, SchedulerKey key, Runnable runnable, long delay, TimeUnit unit) {
+        schedule(key, runnable, delay, unit);
+    }
+
+    /**
+     * Same as {@link #schedule(EventExecutor, SchedulerKey, Runnable, long, TimeUnit)},
+     * but task is always run by executor and never by scheduler thread.
+     *
+     * @param executor - channel executor or <code>null</code> if unknown
+     * @param key - task key
+     * @param runnable - task
+     * @param delay - delay
+     * @param unit - delay unit
+     */
+    default void scheduleCallback(EventExecutor executor, SchedulerKey key, Runnable runnable, long delay, TimeUnit unit) {
+        scheduleCallback(key, runnable, delay, unit);
+    }
+
     void shutdown();
 
 }
@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.scheduler;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.MathUtil;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Schedules tasks directly on event loop of the channel they belong to,
+ * so there is no timer thread and no hop to another event loop on expiration.
+ * <p>
+ * Keyed tasks are kept in maps striped by key hash, because task may be
+ * cancelled from other event loop than it was scheduled on
+ * (e.g. ack of polling client received by another channel).
+ * Tasks scheduled without executor run on executor of context passed to {@link #update(ChannelHandlerContext)}.
+ */
+public class EventLoopScheduler implements CancelableScheduler {
+
+    private final ConcurrentMap<SchedulerKey, KeyedTask>[] scheduledTasks;
+    private final int mask;
+
+    private volatile ChannelHandlerContext ctx;
+
+    public EventLoopScheduler() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    @SuppressWarnings("unchecked")
+    public EventLoopScheduler(int stripes) {
+        int size = MathUtil.findNextPositivePowerOfTwo(Math.max(1, stripes));
+        scheduledTasks = new ConcurrentMap[size];
+        for (int i = 0; i < size; i++) {
+            scheduledTasks[i] = PlatformDependent.newConcurrentHashMap();
+        }
+        mask = size - 1;
+    }
+
+    private ConcurrentMap<SchedulerKey, KeyedTask> stripe(SchedulerKey key) {
+        int h = key.hashCode();
+        return scheduledTasks[(h ^ (h >>> 16)) & mask];
+    }
+
+    private EventExecutor defaultExecutor() {
+        ChannelHandlerContext c = ctx;
+        if (c != null) {
+            return c.executor();
+        }
+        return GlobalEventExecutor.INSTANCE;
+    }
+
+    @Override
+    public void update(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void cancel(SchedulerKey key) {
+        KeyedTask task = stripe(key).remove(key);
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    @Override
+    public void schedule(Runnable runnable, long delay, TimeUnit unit) {
+        defaultExecutor().schedule(runnable, delay, unit);
+    }
+
+    @Override
+    public void scheduleCallback(SchedulerKey key, Runnable runnable, long delay, TimeUnit unit) {
+        schedule(null, key, runnable, delay, unit);
+    }
+
+    @Override
+    public void schedule(SchedulerKey key, Runnable runnable, long delay, TimeUnit unit) {
+        schedule(null, key, runnable, delay, unit);
+    }
+
+    @Override
+    public void scheduleCallback(EventExecutor executor, SchedulerKey key, Runnable runnable, long delay, TimeUnit unit) {
+        schedule(executor, key, runnable, delay, unit);
+    }
+
+    @Override
+    public void schedule(EventExecutor executor, SchedulerKey key, Runnable runnable, long delay, TimeUnit unit) {
+        if (executor == null) {
+            executor = defaultExecutor();
+        }
+
+        ConcurrentMap<SchedulerKey, KeyedTask> tasks = stripe(key);
+        KeyedTask task = new KeyedTask(key, runnable, tasks);
+        KeyedTask oldTask = tasks.put(key, task);
+        if (oldTask != null) {
+            oldTask.cancel();
+        }
+        task.setFuture(executor.schedule(task, delay, unit));
+    }
+
+    @Override
+    public void shutdown() {
+        for (ConcurrentMap<SchedulerKey, KeyedTask> tasks : scheduledTasks) {
+            for (KeyedTask task : tasks.values()) {
+                task.cancel();
+            }
+            tasks.clear();
+        }
+    }
+
+    /**
+     * Removes itself from its stripe only if it is still the task mapped to the key,
+     * so a task rescheduled under the same key is never dropped by the expiring one.
+     */
+    private static final class KeyedTask implements Runnable {
+
+        private final SchedulerKey key;
+        private final Runnable runnable;
+        private final ConcurrentMap<SchedulerKey, KeyedTask> tasks;
+
+        private volatile ScheduledFuture<?> future;
+        private volatile boolean cancelled;
+
+        KeyedTask(SchedulerKey key, Runnable runnable, ConcurrentMap<SchedulerKey, KeyedTask> tasks) {
+            this.key = key;
+            this.runnable = runnable;
+            this.tasks = tasks;
+        }
+
+        void setFuture(ScheduledFuture<?> future) {
+            this.future = future;
+            if (cancelled) {
+                // cancelled before it was handed to executor
+                future.cancel(false);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> f = future;
+            if (f != null) {
+                f.cancel(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            tasks.remove(key, this);
+            if (!cancelled) {
+                runnable.run();
+            }
+        }
+
+    }
+
+}
@@ -15,13 +15,18 @@
  */
 package com.corundumstudio.socketio.store;
 
+import com.corundumstudio.socketio.store.pubsub.PubSubCodec;
 import com.corundumstudio.socketio.store.pubsub.PubSubListener;
 import com.corundumstudio.socketio.store.pubsub.PubSubMessage;
 import com.corundumstudio.socketio.store.pubsub.PubSubStore;
 import com.corundumstudio.socketio.store.pubsub.PubSubType;
 import com.hazelcast.core.HazelcastInstance;
 import io.netty.util.internal.PlatformDependent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
@@ -44,12 +49,26 @@ import java.util.function.Consumer;
  */
 public class HazelcastPubSubStore implements PubSubStore {
 
+    private static final Logger log = LoggerFactory.getLogger(HazelcastPubSubStore.class);
+
     private final HazelcastInstance hazelcastPub;
     private final HazelcastInstance hazelcastSub;
     private final Long nodeId;
+    private final PubSubCodec codec;
     private final ConcurrentMap<String, Queue<String>> listenerRegistrations = PlatformDependent.newConcurrentHashMap();
 
     public HazelcastPubSubStore(HazelcastInstance hazelcastPub, HazelcastInstance hazelcastSub, Long nodeId) {
+        this(hazelcastPub, hazelcastSub, nodeId, null);
+    }
+
+    /**
+     * @param hazelcastPub - instance used to publish
+     * @param hazelcastSub - instance used to subscribe
+     * @param nodeId - local node id
+     * @param codec - codec of messages or <code>null</code> to publish messages as objects
+     */
+    public HazelcastPubSubStore(HazelcastInstance hazelcastPub, HazelcastInstance hazelcastSub, Long nodeId, PubSubCodec codec) {
+        this.codec = codec;
         this.hazelcastPub = Objects.requireNonNull(hazelcastPub, "hazelcastPub must not be null");
         this.hazelcastSub = Objects.requireNonNull(hazelcastSub, "hazelcastSub must not be null");
         this.nodeId = Objects.requireNonNull(nodeId, "nodeId must not be null");
@@ -57,18 +76,44 @@ public class HazelcastPubSubStore implements PubSubStore {
 
     @Override
     public void publish(PubSubType type, PubSubMessage message) {
+        publish(type.toString(), message);
+    }
+
+    @Override
+    public void publish(Long nodeId, PubSubType type, PubSubMessage message) {
+        publish(type.toString(nodeId), message);
+    }
+
+    private void publish(String topicName, PubSubMessage message) {
         message.setNodeId(nodeId);
-        Object topic = HazelcastMethodHandles.getTopic(hazelcastPub, type.toString());
-        HazelcastMethodHandles.publish(topic, message);
+        Object topic = HazelcastMethodHandles.getTopic(hazelcastPub, topicName);
+        if (codec == null) {
+            HazelcastMethodHandles.publish(topic, message);
+            return;
+        }
+
+        try {
+            HazelcastMethodHandles.publish(topic, codec.encode(message));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't encode message " + message, e);
+        }
     }
 
     @Override
     public <T extends PubSubMessage> void subscribe(PubSubType type, PubSubListener<T> listener, Class<T> clazz) {
-        String topicName = type.toString();
+        subscribe(type.toString(), listener);
+    }
+
+    @Override
+    public <T extends PubSubMessage> void subscribe(Long nodeId, PubSubType type, PubSubListener<T> listener, Class<T> clazz) {
+        subscribe(type.toString(nodeId), listener);
+    }
+
+    private <T extends PubSubMessage> void subscribe(String topicName, PubSubListener<T> listener) {
         Object topic = HazelcastMethodHandles.getTopic(hazelcastSub, topicName);
 
         Object hazelcastListener = HazelcastMethodHandles.createMessageListener(
-                new FilteredMessageHandler<>(nodeId, listener)
+                new FilteredMessageHandler<>(nodeId, codec, listener)
         );
 
         String registrationId = HazelcastMethodHandles.addMessageListener(topic, hazelcastListener);
@@ -82,7 +127,11 @@ public class HazelcastPubSubStore implements PubSubStore {
     public void unsubscribe(PubSubType type) {
         Objects.requireNonNull(type, "type must not be null");
 
-        String topicName = type.toString();
+        unsubscribe(type.toString());
+        unsubscribe(type.toString(nodeId));
+    }
+
+    private void unsubscribe(String topicName) {
         Queue<String> registrationIds = listenerRegistrations.remove(topicName);
 
         if (registrationIds == null || registrationIds.isEmpty()) {
@@ -102,20 +151,34 @@ public class HazelcastPubSubStore implements PubSubStore {
     /**
      * Message handler that filters out messages from the same node.
      */
-    private static final class FilteredMessageHandler<T extends PubSubMessage> implements Consumer<T> {
+    private static final class FilteredMessageHandler<T extends PubSubMessage> implements Consumer<Object> {
 
         private final Long localNodeId;
+        private final PubSubCodec codec;
         private final PubSubListener<T> delegate;
 
-        FilteredMessageHandler(Long localNodeId, PubSubListener<T> delegate) {
+        FilteredMessageHandler(Long localNodeId, PubSubCodec codec, PubSubListener<T> delegate) {
             this.localNodeId = localNodeId;
+            this.codec = codec;
             this.delegate = delegate;
         }
 
         @Override
-        public void accept(T message) {
+        @SuppressWarnings("unchecked")
+        public void accept(Object messageObject) {
+            PubSubMessage message;
+            if (codec == null) {
+                message = (PubSubMessage) messageObject;
+            } else {
+                try {
+                    message = codec.decode((byte[]) messageObject);
+                } catch (IOException | RuntimeException e) {
+                    log.error("Can't decode message", e);
+                    return;
+                }
+            }
             if (!localNodeId.equals(message.getNodeId())) {
-                delegate.onMessage(message);
+                delegate.onMessage((T) message);
             }
         }
     }
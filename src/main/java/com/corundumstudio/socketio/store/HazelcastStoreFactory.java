@@ -19,6 +19,7 @@ import java.util.Map;
 import java.util.UUID;
 
 import com.corundumstudio.socketio.store.pubsub.BaseStoreFactory;
+import com.corundumstudio.socketio.store.pubsub.PubSubCodec;
 import com.corundumstudio.socketio.store.pubsub.PubSubStore;
 import com.hazelcast.client.HazelcastClient;
 import com.hazelcast.core.HazelcastInstance;
@@ -33,7 +34,7 @@ public class HazelcastStoreFactory extends BaseStoreFactory {
     private final HazelcastInstance hazelcastPub;
     private final HazelcastInstance hazelcastSub;
 
-    private final PubSubStore pubSubStore;
+    private PubSubStore pubSubStore;
 
     public HazelcastStoreFactory() {
         this(HazelcastClient.newHazelcastClient());
@@ -62,14 +63,23 @@ public class HazelcastStoreFactory extends BaseStoreFactory {
 
     @Override
     public void shutdown() {
+        super.shutdown();
+        pubSubStore().shutdown();
         hazelcastClient.shutdown();
         hazelcastPub.shutdown();
         hazelcastSub.shutdown();
     }
 
+    @Override
+    public void setPubSubCodec(PubSubCodec pubSubCodec) {
+        this.pubSubStore = new HazelcastPubSubStore(hazelcastPub, hazelcastSub, getNodeId(), pubSubCodec);
+        // drops wrapper of previous store
+        super.setPubSubCodec(pubSubCodec);
+    }
+
     @Override
     public PubSubStore pubSubStore() {
-        return pubSubStore;
+        return batching(pubSubStore);
     }
 
     @Override
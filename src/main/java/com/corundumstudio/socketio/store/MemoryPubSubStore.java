@@ -34,6 +34,14 @@ public class MemoryPubSubStore implements PubSubStore {
     public void unsubscribe(PubSubType type) {
     }
 
+    @Override
+    public void publish(Long nodeId, PubSubType type, PubSubMessage msg) {
+    }
+
+    @Override
+    public <T extends PubSubMessage> void subscribe(Long nodeId, PubSubType type, PubSubListener<T> listener, Class<T> clazz) {
+    }
+
     @Override
     public void shutdown() {
     }
@@ -39,6 +39,7 @@ public class MemoryStoreFactory extends BaseStoreFactory {
 
     @Override
     public void shutdown() {
+        super.shutdown();
     }
 
     @Override
@@ -15,6 +15,8 @@
  */
 package com.corundumstudio.socketio.store;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
@@ -22,7 +24,11 @@ import java.util.concurrent.ConcurrentMap;
 import org.redisson.api.RTopic;
 import org.redisson.api.RedissonClient;
 import org.redisson.api.listener.MessageListener;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.corundumstudio.socketio.store.pubsub.PubSubCodec;
 import com.corundumstudio.socketio.store.pubsub.PubSubListener;
 import com.corundumstudio.socketio.store.pubsub.PubSubMessage;
 import com.corundumstudio.socketio.store.pubsub.PubSubStore;
@@ -32,36 +38,104 @@ import io.netty.util.internal.PlatformDependent;
 
 public class RedissonPubSubStore implements PubSubStore {
 
+    private static final Logger log = LoggerFactory.getLogger(RedissonPubSubStore.class);
+
     private final RedissonClient redissonPub;
     private final RedissonClient redissonSub;
     private final Long nodeId;
+    private final PubSubCodec codec;
 
     private final ConcurrentMap<String, Queue<Integer>> map = PlatformDependent.newConcurrentHashMap();
 
     public RedissonPubSubStore(RedissonClient redissonPub, RedissonClient redissonSub, Long nodeId) {
+        this(redissonPub, redissonSub, nodeId, null);
+    }
+
+    /**
+     * @param redissonPub - client used to publish
+     * @param redissonSub - client used to subscribe
+     * @param nodeId - local node id
+     * @param codec - codec of messages or <code>null</code> to use codec of Redisson client
+     */
+    public RedissonPubSubStore(RedissonClient redissonPub, RedissonClient redissonSub, Long nodeId, PubSubCodec codec) {
         this.redissonPub = redissonPub;
         this.redissonSub = redissonSub;
         this.nodeId = nodeId;
+        this.codec = codec;
     }
 
     @Override
     public void publish(PubSubType type, PubSubMessage msg) {
+        publish(type.toString(), msg);
+    }
+
+    @Override
+    public void publish(Long nodeId, PubSubType type, PubSubMessage msg) {
+        publish(type.toString(nodeId), msg);
+    }
+
+    private void publish(String name, PubSubMessage msg) {
         msg.setNodeId(nodeId);
-        redissonPub.getTopic(type.toString()).publish(msg);
+        if (codec == null) {
+            redissonPub.getTopic(name).publish(msg);
+            return;
+        }
+
+        byte[] data;
+        try {
+            data = codec.encode(msg);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't encode message " + msg, e);
+        }
+        getTopic(redissonPub, name).publish(data);
+    }
+
+    private RTopic getTopic(RedissonClient redisson, String name) {
+        if (codec == null) {
+            return redisson.getTopic(name);
+        }
+        return redisson.getTopic(name, ByteArrayCodec.INSTANCE);
     }
 
     @Override
     public <T extends PubSubMessage> void subscribe(PubSubType type, final PubSubListener<T> listener, Class<T> clazz) {
-        String name = type.toString();
-        RTopic topic = redissonSub.getTopic(name);
-        int regId = topic.addListener(PubSubMessage.class, new MessageListener<PubSubMessage>() {
-            @Override
-            public void onMessage(CharSequence channel, PubSubMessage msg) {
-                if (!nodeId.equals(msg.getNodeId())) {
-                    listener.onMessage((T)msg);
+        subscribe(type.toString(), listener);
+    }
+
+    @Override
+    public <T extends PubSubMessage> void subscribe(Long nodeId, PubSubType type, PubSubListener<T> listener, Class<T> clazz) {
+        subscribe(type.toString(nodeId), listener);
+    }
+
+    private <T extends PubSubMessage> void subscribe(String name, final PubSubListener<T> listener) {
+        RTopic topic = getTopic(redissonSub, name);
+        int regId;
+        if (codec == null) {
+            regId = topic.addListener(PubSubMessage.class, new MessageListener<PubSubMessage>() {
+                @Override
+                public void onMessage(CharSequence channel, PubSubMessage msg) {
+                    if (!nodeId.equals(msg.getNodeId())) {
+                        listener.onMessage((T)msg);
+                    }
                 }
-            }
-        });
+            });
+        } else {
+            regId = topic.addListener(byte[].class, new MessageListener<byte[]>() {
+                @Override
+                public void onMessage(CharSequence channel, byte[] data) {
+                    PubSubMessage msg;
+                    try {
+                        msg = codec.decode(data);
+                    } catch (IOException | RuntimeException e) {
+                        log.error("Can't decode message from channel {}", channel, e);
+                        return;
+                    }
+                    if (!nodeId.equals(msg.getNodeId())) {
+                        listener.onMessage((T)msg);
+                    }
+                }
+            });
+        }
 
         Queue<Integer> list = map.get(name);
         if (list == null) {
@@ -76,9 +150,16 @@ public class RedissonPubSubStore implements PubSubStore {
 
     @Override
     public void unsubscribe(PubSubType type) {
-        String name = type.toString();
+        unsubscribe(type.toString());
+        unsubscribe(type.toString(nodeId));
+    }
+
+    private void unsubscribe(String name) {
         Queue<Integer> regIds = map.remove(name);
-        RTopic topic = redissonSub.getTopic(name);
+        if (regIds == null) {
+            return;
+        }
+        RTopic topic = getTopic(redissonSub, name);
         for (Integer id : regIds) {
             topic.removeListener(id);
         }
@@ -22,6 +22,7 @@ import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
 
 import com.corundumstudio.socketio.store.pubsub.BaseStoreFactory;
+import com.corundumstudio.socketio.store.pubsub.PubSubCodec;
 import com.corundumstudio.socketio.store.pubsub.PubSubStore;
 
 public class RedissonStoreFactory extends BaseStoreFactory {
@@ -30,7 +31,7 @@ public class RedissonStoreFactory extends BaseStoreFactory {
     private final RedissonClient redisPub;
     private final RedissonClient redisSub;
 
-    private final PubSubStore pubSubStore;
+    private PubSubStore pubSubStore;
 
     public RedissonStoreFactory() {
         this(Redisson.create());
@@ -57,13 +58,22 @@ public class RedissonStoreFactory extends BaseStoreFactory {
         return new RedissonStore(sessionId, redisClient);
     }
 
+    @Override
+    public void setPubSubCodec(PubSubCodec pubSubCodec) {
+        this.pubSubStore = new RedissonPubSubStore(redisPub, redisSub, getNodeId(), pubSubCodec);
+        // drops wrapper of previous store
+        super.setPubSubCodec(pubSubCodec);
+    }
+
     @Override
     public PubSubStore pubSubStore() {
-        return pubSubStore;
+        return batching(pubSubStore);
     }
 
     @Override
     public void shutdown() {
+        super.shutdown();
+        pubSubStore().shutdown();
         redisClient.shutdown();
         redisPub.shutdown();
         redisSub.shutdown();
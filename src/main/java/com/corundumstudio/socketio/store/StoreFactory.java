@@ -22,7 +22,9 @@ import com.corundumstudio.socketio.Disconnectable;
 import com.corundumstudio.socketio.handler.AuthorizeHandler;
 import com.corundumstudio.socketio.namespace.NamespacesHub;
 import com.corundumstudio.socketio.protocol.JsonSupport;
+import com.corundumstudio.socketio.store.pubsub.DispatchMessage;
 import com.corundumstudio.socketio.store.pubsub.PubSubStore;
+import com.corundumstudio.socketio.store.pubsub.PubSubType;
 
 /**
  *
@@ -39,6 +41,15 @@ public interface StoreFactory extends Disconnectable {
 
     void init(NamespacesHub namespacesHub, AuthorizeHandler authorizeHandler, JsonSupport jsonSupport);
 
+    /**
+     * Sends room packet to other nodes
+     *
+     * @param message - dispatch message
+     */
+    default void dispatch(DispatchMessage message) {
+        pubSubStore().publish(PubSubType.DISPATCH, message);
+    }
+
     void shutdown();
 
 }
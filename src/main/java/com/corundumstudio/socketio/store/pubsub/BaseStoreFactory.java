@@ -15,14 +15,25 @@
  */
 package com.corundumstudio.socketio.store.pubsub;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import com.corundumstudio.socketio.namespace.Namespace;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.internal.PlatformDependent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.corundumstudio.socketio.SocketIONamespace;
 import com.corundumstudio.socketio.handler.AuthorizeHandler;
 import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.metrics.SocketIOMetrics;
 import com.corundumstudio.socketio.namespace.NamespacesHub;
 import com.corundumstudio.socketio.protocol.JsonSupport;
 import com.corundumstudio.socketio.store.StoreFactory;
@@ -33,20 +44,203 @@ public abstract class BaseStoreFactory implements StoreFactory {
 
     private Long nodeId = (long) (Math.random() * 1000000);
 
+    private final RoomNodesRegistry roomNodes = new RoomNodesRegistry();
+
+    private volatile boolean roomRouting;
+
+    private long nodeAliveInterval = 10000;
+
+    private volatile ScheduledExecutorService roomRoutingExecutor;
+
+    private final ConcurrentMap<PubSubType, PubSubListener<PubSubMessage>> batchListeners = PlatformDependent.newConcurrentHashMap();
+
+    private int pubSubBatchSize;
+
+    private long pubSubBatchInterval = 20;
+
+    private volatile PubSubStore wrappedPubSubStore;
+
+    private PubSubCodec pubSubCodec;
+
+    private SocketIOMetrics metrics = SocketIOMetrics.NOOP;
+
     protected Long getNodeId() {
         return nodeId;
     }
 
+    public boolean isRoomRouting() {
+        return roomRouting;
+    }
+
+    /**
+     * Publish room packets only to nodes which have members of that room
+     * instead of broadcasting them to whole cluster.
+     * Should be enabled on all nodes and set before server start.
+     *
+     * Default is <code>false</code>
+     *
+     * @param roomRouting - <code>true</code> to enable routing
+     */
+    public void setRoomRouting(boolean roomRouting) {
+        this.roomRouting = roomRouting;
+    }
+
+    public long getNodeAliveInterval() {
+        return nodeAliveInterval;
+    }
+
+    /**
+     * Interval in milliseconds of alive messages published by node when room routing is enabled.
+     * Rooms of node which sent nothing for three intervals are forgotten,
+     * so packets aren't published to stopped nodes anymore.
+     *
+     * Default is <code>10000</code>
+     *
+     * @param nodeAliveInterval - interval in milliseconds
+     */
+    public void setNodeAliveInterval(long nodeAliveInterval) {
+        this.nodeAliveInterval = nodeAliveInterval;
+    }
+
+    public int getPubSubBatchSize() {
+        return pubSubBatchSize;
+    }
+
+    /**
+     * Max amount of disconnect, join and leave messages
+     * published as single batch message. Batching is disabled when
+     * value is less than 2. Should be set before server start.
+     * Join messages aren't batched when room routing is enabled,
+     * since room packets are routed by them.
+     *
+     * Default is <code>0</code>
+     *
+     * @param pubSubBatchSize - max batch size
+     * @see BatchingPubSubStore
+     */
+    public void setPubSubBatchSize(int pubSubBatchSize) {
+        this.pubSubBatchSize = pubSubBatchSize;
+    }
+
+    public long getPubSubBatchInterval() {
+        return pubSubBatchInterval;
+    }
+
+    /**
+     * Max time in milliseconds message waits in batch before publishing
+     *
+     * Default is <code>20</code>
+     *
+     * @param pubSubBatchInterval - interval in milliseconds
+     */
+    public void setPubSubBatchInterval(long pubSubBatchInterval) {
+        this.pubSubBatchInterval = pubSubBatchInterval;
+    }
+
+    public PubSubCodec getPubSubCodec() {
+        return pubSubCodec;
+    }
+
+    /**
+     * Codec of messages published to cluster. Should be the same
+     * on all nodes and set before server start.
+     *
+     * Default is <code>null</code>, which means codec of distributed store client is used
+     *
+     * @param pubSubCodec - codec
+     * @see BinaryPubSubCodec
+     */
+    public void setPubSubCodec(PubSubCodec pubSubCodec) {
+        this.pubSubCodec = pubSubCodec;
+        resetPubSubStore();
+    }
+
+    /**
+     * Shuts down batching and metrics wrappers of previous store,
+     * so {@link #batching(PubSubStore)} wraps the current one.
+     * Should be invoked when subclass replaces its store.
+     */
+    protected void resetPubSubStore() {
+        PubSubStore store;
+        synchronized (this) {
+            store = wrappedPubSubStore;
+            wrappedPubSubStore = null;
+        }
+        if (store != null) {
+            store.shutdown();
+        }
+    }
+
+    public SocketIOMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Receiver of publishing time metrics.
+     * Set from {@link com.corundumstudio.socketio.Configuration#getMetrics()} on server start.
+     *
+     * @param metrics - metrics receiver
+     */
+    public void setMetrics(SocketIOMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Wraps store with {@link BatchingPubSubStore} if batching is enabled
+     * and measures publishing time if metrics are set
+     *
+     * @param pubSubStore - store to wrap
+     * @return store used to publish messages
+     */
+    protected PubSubStore batching(PubSubStore pubSubStore) {
+        if (pubSubBatchSize < 2 && metrics == SocketIOMetrics.NOOP) {
+            return pubSubStore;
+        }
+        PubSubStore store = wrappedPubSubStore;
+        if (store == null) {
+            synchronized (this) {
+                store = wrappedPubSubStore;
+                if (store == null) {
+                    store = pubSubStore;
+                    if (metrics != SocketIOMetrics.NOOP) {
+                        store = new MeteredPubSubStore(store, metrics);
+                    }
+                    if (pubSubBatchSize >= 2) {
+                        store = new BatchingPubSubStore(store, pubSubBatchSize, pubSubBatchInterval, !roomRouting);
+                    }
+                    wrappedPubSubStore = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    @Override
+    public void dispatch(DispatchMessage message) {
+        if (!roomRouting) {
+            pubSubStore().publish(PubSubType.DISPATCH, message);
+            return;
+        }
+
+        for (Long node : roomNodes.getNodes(message.getNamespace(), message.getRoom())) {
+            pubSubStore().publish(node, PubSubType.DISPATCH, message);
+        }
+    }
+
     @Override
     public void init(final NamespacesHub namespacesHub, final AuthorizeHandler authorizeHandler, JsonSupport jsonSupport) {
-        pubSubStore().subscribe(PubSubType.DISCONNECT, new PubSubListener<DisconnectMessage>() {
+        if (pubSubCodec != null) {
+            pubSubCodec.init(jsonSupport);
+        }
+
+        subscribe(PubSubType.DISCONNECT, new PubSubListener<DisconnectMessage>() {
             @Override
             public void onMessage(DisconnectMessage msg) {
                 log.debug("{} sessionId: {}", PubSubType.DISCONNECT, msg.getSessionId());
             }
         }, DisconnectMessage.class);
 
-        pubSubStore().subscribe(PubSubType.CONNECT, new PubSubListener<ConnectMessage>() {
+        subscribe(PubSubType.CONNECT, new PubSubListener<ConnectMessage>() {
             @Override
             public void onMessage(ConnectMessage msg) {
                 authorizeHandler.connect(msg.getSessionId());
@@ -54,7 +248,7 @@ public abstract class BaseStoreFactory implements StoreFactory {
             }
         }, ConnectMessage.class);
 
-        pubSubStore().subscribe(PubSubType.DISPATCH, new PubSubListener<DispatchMessage>() {
+        PubSubListener<DispatchMessage> dispatchListener = new PubSubListener<DispatchMessage>() {
             @Override
             public void onMessage(DispatchMessage msg) {
                 String name = msg.getRoom();
@@ -65,9 +259,10 @@ public abstract class BaseStoreFactory implements StoreFactory {
                 }
                 log.debug("{} packet: {}", PubSubType.DISPATCH, msg.getPacket());
             }
-        }, DispatchMessage.class);
+        };
+        pubSubStore().subscribe(PubSubType.DISPATCH, dispatchListener, DispatchMessage.class);
 
-        pubSubStore().subscribe(PubSubType.JOIN, new PubSubListener<JoinLeaveMessage>() {
+        subscribe(PubSubType.JOIN, new PubSubListener<JoinLeaveMessage>() {
             @Override
             public void onMessage(JoinLeaveMessage msg) {
                 String name = msg.getRoom();
@@ -76,11 +271,14 @@ public abstract class BaseStoreFactory implements StoreFactory {
                 if (n != null) {
                     n.join(name, msg.getSessionId());
                 }
+                if (roomRouting) {
+                    roomNodes.join(msg.getNodeId(), msg.getNamespace(), name, msg.getSessionId());
+                }
                 log.debug("{} sessionId: {}", PubSubType.JOIN, msg.getSessionId());
             }
         }, JoinLeaveMessage.class);
 
-        pubSubStore().subscribe(PubSubType.BULK_JOIN, new PubSubListener<BulkJoinLeaveMessage>() {
+        subscribe(PubSubType.BULK_JOIN, new PubSubListener<BulkJoinLeaveMessage>() {
             @Override
             public void onMessage(BulkJoinLeaveMessage msg) {
                 Set<String> rooms = msg.getRooms();
@@ -90,12 +288,15 @@ public abstract class BaseStoreFactory implements StoreFactory {
                     if (n != null) {
                         n.join(room, msg.getSessionId());
                     }
+                    if (roomRouting) {
+                        roomNodes.join(msg.getNodeId(), msg.getNamespace(), room, msg.getSessionId());
+                    }
                 }
                 log.debug("{} sessionId: {}", PubSubType.BULK_JOIN, msg.getSessionId());
             }
         }, BulkJoinLeaveMessage.class);
 
-        pubSubStore().subscribe(PubSubType.LEAVE, new PubSubListener<JoinLeaveMessage>() {
+        subscribe(PubSubType.LEAVE, new PubSubListener<JoinLeaveMessage>() {
             @Override
             public void onMessage(JoinLeaveMessage msg) {
                 String name = msg.getRoom();
@@ -104,11 +305,14 @@ public abstract class BaseStoreFactory implements StoreFactory {
                 if (n != null) {
                     n.leave(name, msg.getSessionId());
                 }
+                if (roomRouting) {
+                    roomNodes.leave(msg.getNodeId(), msg.getNamespace(), name, msg.getSessionId());
+                }
                 log.debug("{} sessionId: {}", PubSubType.LEAVE, msg.getSessionId());
             }
         }, JoinLeaveMessage.class);
 
-        pubSubStore().subscribe(PubSubType.BULK_LEAVE, new PubSubListener<BulkJoinLeaveMessage>() {
+        subscribe(PubSubType.BULK_LEAVE, new PubSubListener<BulkJoinLeaveMessage>() {
             @Override
             public void onMessage(BulkJoinLeaveMessage msg) {
                 Set<String> rooms = msg.getRooms();
@@ -118,10 +322,115 @@ public abstract class BaseStoreFactory implements StoreFactory {
                     if (n != null) {
                         n.leave(room, msg.getSessionId());
                     }
+                    if (roomRouting) {
+                        roomNodes.leave(msg.getNodeId(), msg.getNamespace(), room, msg.getSessionId());
+                    }
                 }
                 log.debug("{} sessionId: {}", PubSubType.BULK_LEAVE, msg.getSessionId());
             }
         }, BulkJoinLeaveMessage.class);
+
+        pubSubStore().subscribe(PubSubType.BATCH, new PubSubListener<BatchMessage>() {
+            @Override
+            public void onMessage(BatchMessage msg) {
+                for (BatchMessage.Entry entry : msg.getEntries()) {
+                    PubSubListener<PubSubMessage> listener = batchListeners.get(entry.getType());
+                    if (listener != null) {
+                        entry.getMessage().setNodeId(msg.getNodeId());
+                        listener.onMessage(entry.getMessage());
+                    }
+                }
+                log.debug("{} size: {}", PubSubType.BATCH, msg.getEntries().size());
+            }
+        }, BatchMessage.class);
+
+        if (roomRouting) {
+            subscribeRoomRouting(namespacesHub, dispatchListener);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends PubSubMessage> void subscribe(PubSubType type, PubSubListener<T> listener, Class<T> clazz) {
+        batchListeners.put(type, (PubSubListener<PubSubMessage>) listener);
+        pubSubStore().subscribe(type, listener, clazz);
+    }
+
+    private void subscribeRoomRouting(final NamespacesHub namespacesHub, PubSubListener<DispatchMessage> dispatchListener) {
+        pubSubStore().subscribe(nodeId, PubSubType.DISPATCH, dispatchListener, DispatchMessage.class);
+
+        pubSubStore().subscribe(PubSubType.NODE_ROOMS_REQUEST, new PubSubListener<NodeRoomsRequestMessage>() {
+            @Override
+            public void onMessage(NodeRoomsRequestMessage msg) {
+                Map<String, Map<String, Set<UUID>>> rooms = new HashMap<String, Map<String, Set<UUID>>>();
+                for (SocketIONamespace namespace : namespacesHub.getAllNamespaces()) {
+                    Namespace n = namespacesHub.get(namespace.getName());
+                    if (n == null) {
+                        continue;
+                    }
+                    Map<String, Set<UUID>> localRooms = n.getLocalRooms();
+                    if (!localRooms.isEmpty()) {
+                        rooms.put(n.getName(), localRooms);
+                    }
+                }
+                pubSubStore().publish(msg.getNodeId(), PubSubType.NODE_ROOMS, new NodeRoomsMessage(rooms));
+                log.debug("{} nodeId: {}", PubSubType.NODE_ROOMS_REQUEST, msg.getNodeId());
+            }
+        }, NodeRoomsRequestMessage.class);
+
+        pubSubStore().subscribe(nodeId, PubSubType.NODE_ROOMS, new PubSubListener<NodeRoomsMessage>() {
+            @Override
+            public void onMessage(NodeRoomsMessage msg) {
+                for (Map.Entry<String, Map<String, Set<UUID>>> nsEntry : msg.getRooms().entrySet()) {
+                    Namespace n = namespacesHub.get(nsEntry.getKey());
+                    for (Map.Entry<String, Set<UUID>> roomEntry : nsEntry.getValue().entrySet()) {
+                        for (UUID sessionId : roomEntry.getValue()) {
+                            roomNodes.join(msg.getNodeId(), nsEntry.getKey(), roomEntry.getKey(), sessionId);
+                            if (n != null) {
+                                n.join(roomEntry.getKey(), sessionId);
+                            }
+                        }
+                    }
+                }
+                log.debug("{} nodeId: {}", PubSubType.NODE_ROOMS, msg.getNodeId());
+            }
+        }, NodeRoomsMessage.class);
+
+        pubSubStore().subscribe(PubSubType.NODE_ALIVE, new PubSubListener<NodeAliveMessage>() {
+            @Override
+            public void onMessage(NodeAliveMessage msg) {
+                roomNodes.touch(msg.getNodeId(), System.currentTimeMillis());
+            }
+        }, NodeAliveMessage.class);
+
+        pubSubStore().publish(PubSubType.NODE_ROOMS_REQUEST, new NodeRoomsRequestMessage());
+
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("socketio-room-routing", true));
+        executor.scheduleAtFixedRate(this::checkNodes, nodeAliveInterval, nodeAliveInterval, TimeUnit.MILLISECONDS);
+        roomRoutingExecutor = executor;
+    }
+
+    private void checkNodes() {
+        try {
+            pubSubStore().publish(PubSubType.NODE_ALIVE, new NodeAliveMessage());
+
+            for (Long node : roomNodes.removeStaleNodes(System.currentTimeMillis() - nodeAliveInterval * 3)) {
+                log.debug("Node {} removed from room routing, no messages received", node);
+            }
+        } catch (Exception e) {
+            log.error("Can't check nodes of room routing", e);
+        }
+    }
+
+    /**
+     * Stops room routing tasks. Subclasses should call it on shutdown.
+     */
+    @Override
+    public void shutdown() {
+        ScheduledExecutorService executor = roomRoutingExecutor;
+        if (executor != null) {
+            executor.shutdownNow();
+            roomRoutingExecutor = null;
+        }
     }
 
     @Override
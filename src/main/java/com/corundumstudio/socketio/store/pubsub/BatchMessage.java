@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.store.pubsub;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Several pub/sub messages published at once by {@link BatchingPubSubStore}
+ */
+public class BatchMessage extends PubSubMessage {
+
+    private static final long serialVersionUID = -2309475839461520187L;
+
+    private List<Entry> entries;
+
+    public BatchMessage() {
+    }
+
+    public BatchMessage(List<Entry> entries) {
+        super();
+        this.entries = entries;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public static class Entry implements Serializable {
+
+        private static final long serialVersionUID = 6203757341170259034L;
+
+        private PubSubType type;
+        private PubSubMessage message;
+
+        public Entry() {
+        }
+
+        public Entry(PubSubType type, PubSubMessage message) {
+            this.type = type;
+            this.message = message;
+        }
+
+        public PubSubType getType() {
+            return type;
+        }
+
+        public PubSubMessage getMessage() {
+            return message;
+        }
+
+    }
+
+}
@@ -0,0 +1,274 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.store.pubsub;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * Collects disconnect, join and leave messages for a short interval
+ * and publishes them as single {@link PubSubType#BATCH} message.
+ * <p>
+ * Batch is compacted before publishing: only the last join or leave per
+ * session and room is kept, and room operations of one session are merged
+ * into bulk messages.
+ * <p>
+ * Other message types, including connect which drives authorization
+ * on other nodes, are published immediately, so they can overtake
+ * pending batch up to batch interval.
+ * <p>
+ * Full batch is published by batch executor, not by the thread
+ * which added the last message.
+ */
+public class BatchingPubSubStore implements PubSubStore {
+
+    private static final Set<PubSubType> BATCHED_TYPES = EnumSet.of(PubSubType.DISCONNECT,
+            PubSubType.JOIN, PubSubType.BULK_JOIN, PubSubType.LEAVE, PubSubType.BULK_LEAVE);
+
+    private final Set<PubSubType> batchedTypes;
+    private final PubSubStore delegate;
+    private final int maxBatchSize;
+    private final long batchInterval;
+    private final ScheduledExecutorService executor;
+
+    private final Object lock = new Object();
+    private final Object publishLock = new Object();
+    private Batch batch = new Batch();
+    private boolean flushScheduled;
+    private boolean flushSubmitted;
+
+    /**
+     * @param delegate - store used to publish messages
+     * @param maxBatchSize - batch is published once it has this amount of messages
+     * @param batchInterval - max time in milliseconds message waits in batch
+     */
+    public BatchingPubSubStore(PubSubStore delegate, int maxBatchSize, long batchInterval) {
+        this(delegate, maxBatchSize, batchInterval, true);
+    }
+
+    /**
+     * @param delegate - store used to publish messages
+     * @param maxBatchSize - batch is published once it has this amount of messages
+     * @param batchInterval - max time in milliseconds message waits in batch
+     * @param batchJoins - <code>false</code> to publish join messages immediately,
+     *                     e.g. when room routing relies on them
+     */
+    public BatchingPubSubStore(PubSubStore delegate, int maxBatchSize, long batchInterval, boolean batchJoins) {
+        Set<PubSubType> types = EnumSet.copyOf(BATCHED_TYPES);
+        if (!batchJoins) {
+            types.remove(PubSubType.JOIN);
+            types.remove(PubSubType.BULK_JOIN);
+        }
+        this.batchedTypes = types;
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.batchInterval = batchInterval;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("socketio-pubsub-batch", true));
+    }
+
+    @Override
+    public void publish(PubSubType type, PubSubMessage msg) {
+        if (!batchedTypes.contains(type)) {
+            if (type == PubSubType.JOIN || type == PubSubType.BULK_JOIN) {
+                synchronized (publishLock) {
+                    // pending leave of the same room shouldn't be published after this join
+                    synchronized (lock) {
+                        batch.remove(msg);
+                    }
+                    delegate.publish(type, msg);
+                }
+                return;
+            }
+            delegate.publish(type, msg);
+            return;
+        }
+
+        synchronized (lock) {
+            batch.add(type, msg);
+            if (batch.size() >= maxBatchSize) {
+                if (!flushSubmitted) {
+                    flushSubmitted = true;
+                    executor.execute(this::flush);
+                }
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                executor.schedule(this::flush, batchInterval, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Publishes pending messages
+     */
+    public void flush() {
+        synchronized (publishLock) {
+            Batch current;
+            synchronized (lock) {
+                current = batch;
+                batch = new Batch();
+                flushScheduled = false;
+                flushSubmitted = false;
+            }
+
+            List<BatchMessage.Entry> entries = current.toEntries();
+            if (entries.isEmpty()) {
+                return;
+            }
+            if (entries.size() == 1) {
+                BatchMessage.Entry entry = entries.get(0);
+                delegate.publish(entry.getType(), entry.getMessage());
+                return;
+            }
+            delegate.publish(PubSubType.BATCH, new BatchMessage(entries));
+        }
+    }
+
+    @Override
+    public <T extends PubSubMessage> void subscribe(PubSubType type, PubSubListener<T> listener, Class<T> clazz) {
+        delegate.subscribe(type, listener, clazz);
+    }
+
+    @Override
+    public void unsubscribe(PubSubType type) {
+        delegate.unsubscribe(type);
+    }
+
+    @Override
+    public void publish(Long nodeId, PubSubType type, PubSubMessage msg) {
+        delegate.publish(nodeId, type, msg);
+    }
+
+    @Override
+    public <T extends PubSubMessage> void subscribe(Long nodeId, PubSubType type, PubSubListener<T> listener, Class<T> clazz) {
+        delegate.subscribe(nodeId, type, listener, clazz);
+    }
+
+    @Override
+    public void shutdown() {
+        flush();
+        executor.shutdown();
+        delegate.shutdown();
+    }
+
+    static final class Batch {
+
+        // [sessionId, namespace, room] -> JOIN or LEAVE
+        private final Map<List<Object>, PubSubType> rooms = new LinkedHashMap<>();
+        private final Map<UUID, DisconnectMessage> disconnects = new LinkedHashMap<>();
+
+        void add(PubSubType type, PubSubMessage msg) {
+            switch (type) {
+                case DISCONNECT: {
+                    DisconnectMessage m = (DisconnectMessage) msg;
+                    disconnects.put(m.getSessionId(), m);
+                    break;
+                }
+                case JOIN:
+                case LEAVE: {
+                    JoinLeaveMessage m = (JoinLeaveMessage) msg;
+                    addRoom(type, m.getSessionId(), m.getNamespace(), m.getRoom());
+                    break;
+                }
+                case BULK_JOIN:
+                case BULK_LEAVE: {
+                    BulkJoinLeaveMessage m = (BulkJoinLeaveMessage) msg;
+                    PubSubType roomType = type == PubSubType.BULK_JOIN ? PubSubType.JOIN : PubSubType.LEAVE;
+                    for (String room : m.getRooms()) {
+                        addRoom(roomType, m.getSessionId(), m.getNamespace(), room);
+                    }
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unsupported message type: " + type);
+            }
+        }
+
+        private void addRoom(PubSubType type, UUID sessionId, String namespace, String room) {
+            List<Object> key = Arrays.<Object>asList(sessionId, namespace, room);
+            // re-added to keep order of operations
+            rooms.remove(key);
+            rooms.put(key, type);
+        }
+
+        /**
+         * Removes pending room operations of join or leave message
+         */
+        void remove(PubSubMessage msg) {
+            if (msg instanceof JoinLeaveMessage) {
+                JoinLeaveMessage m = (JoinLeaveMessage) msg;
+                rooms.remove(Arrays.<Object>asList(m.getSessionId(), m.getNamespace(), m.getRoom()));
+            } else if (msg instanceof BulkJoinLeaveMessage) {
+                BulkJoinLeaveMessage m = (BulkJoinLeaveMessage) msg;
+                for (String room : m.getRooms()) {
+                    rooms.remove(Arrays.<Object>asList(m.getSessionId(), m.getNamespace(), room));
+                }
+            }
+        }
+
+        int size() {
+            return rooms.size() + disconnects.size();
+        }
+
+        List<BatchMessage.Entry> toEntries() {
+            if (size() == 0) {
+                return Collections.emptyList();
+            }
+
+            List<BatchMessage.Entry> entries = new ArrayList<>(size());
+
+            // [type, sessionId, namespace] -> rooms
+            Map<List<Object>, Set<String>> groups = new LinkedHashMap<>();
+            for (Map.Entry<List<Object>, PubSubType> entry : rooms.entrySet()) {
+                List<Object> key = entry.getKey();
+                groups.computeIfAbsent(Arrays.<Object>asList(entry.getValue(), key.get(0), key.get(1)), k -> new LinkedHashSet<>())
+                        .add((String) key.get(2));
+            }
+            for (Map.Entry<List<Object>, Set<String>> entry : groups.entrySet()) {
+                PubSubType type = (PubSubType) entry.getKey().get(0);
+                UUID sessionId = (UUID) entry.getKey().get(1);
+                String namespace = (String) entry.getKey().get(2);
+                Set<String> groupRooms = entry.getValue();
+                if (groupRooms.size() == 1) {
+                    String room = groupRooms.iterator().next();
+                    entries.add(new BatchMessage.Entry(type, new JoinLeaveMessage(sessionId, room, namespace)));
+                } else {
+                    PubSubType bulkType = type == PubSubType.JOIN ? PubSubType.BULK_JOIN : PubSubType.BULK_LEAVE;
+                    entries.add(new BatchMessage.Entry(bulkType, new BulkJoinLeaveMessage(sessionId, groupRooms, namespace)));
+                }
+            }
+
+            for (DisconnectMessage m : disconnects.values()) {
+                entries.add(new BatchMessage.Entry(PubSubType.DISCONNECT, m));
+            }
+            return entries;
+        }
+
+    }
+
+}
@@ -0,0 +1,466 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.store.pubsub;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.corundumstudio.socketio.protocol.EngineIOVersion;
+import com.corundumstudio.socketio.protocol.JsonSupport;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketType;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Compact binary format of cluster messages.
+ * <p>
+ * Session ids are written as two longs, each distinct namespace
+ * or room name is written once per message and referenced by index afterwards.
+ * Packet data of {@link DispatchMessage} is written as JSON produced by {@link JsonSupport}
+ * followed by length-prefixed binary attachments referenced by its placeholders.
+ * Java serialization is used only for unknown message classes.
+ * <p>
+ * Should be used by all nodes of cluster.
+ */
+public class BinaryPubSubCodec implements PubSubCodec {
+
+    private static final byte VERSION = 1;
+
+    private static final byte SERIALIZED = 0;
+    private static final byte CONNECT = 1;
+    private static final byte DISCONNECT = 2;
+    private static final byte JOIN_LEAVE = 3;
+    private static final byte BULK_JOIN_LEAVE = 4;
+    private static final byte DISPATCH = 5;
+    private static final byte NODE_ROOMS_REQUEST = 6;
+    private static final byte NODE_ROOMS = 7;
+    private static final byte BATCH = 8;
+    private static final byte NODE_ALIVE = 9;
+
+    private static final byte DATA_NULL = 0;
+    private static final byte DATA_JSON = 1;
+
+    private static final PacketType[] PACKET_TYPES = PacketType.values();
+    private static final EngineIOVersion[] ENGINE_IO_VERSIONS = EngineIOVersion.values();
+    private static final PubSubType[] PUB_SUB_TYPES = PubSubType.values();
+
+    private volatile JsonSupport jsonSupport;
+
+    @Override
+    public void init(JsonSupport jsonSupport) {
+        this.jsonSupport = jsonSupport;
+    }
+
+    @Override
+    public byte[] encode(PubSubMessage msg) throws IOException {
+        if (msg instanceof DispatchMessage) {
+            // the same message is published to each node with room members
+            DispatchMessage dispatchMessage = (DispatchMessage) msg;
+            byte[] encoded = dispatchMessage.getEncoded();
+            if (encoded == null) {
+                encoded = doEncode(msg);
+                dispatchMessage.setEncoded(encoded);
+            }
+            return encoded;
+        }
+        return doEncode(msg);
+    }
+
+    private byte[] doEncode(PubSubMessage msg) throws IOException {
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            buf.writeByte(VERSION);
+            if (msg.getNodeId() == null) {
+                buf.writeBoolean(false);
+            } else {
+                buf.writeBoolean(true);
+                buf.writeLong(msg.getNodeId());
+            }
+            writeMessage(buf, msg, new HashMap<String, Integer>());
+            return ByteBufUtil.getBytes(buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Override
+    public PubSubMessage decode(byte[] data) throws IOException {
+        ByteBuf buf = Unpooled.wrappedBuffer(data);
+        byte version = buf.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported message format version: " + version);
+        }
+        Long nodeId = null;
+        if (buf.readBoolean()) {
+            nodeId = buf.readLong();
+        }
+        PubSubMessage msg = readMessage(buf, new ArrayList<String>());
+        msg.setNodeId(nodeId);
+        return msg;
+    }
+
+    private void writeMessage(ByteBuf buf, PubSubMessage msg, Map<String, Integer> strings) throws IOException {
+        if (msg instanceof ConnectMessage) {
+            buf.writeByte(CONNECT);
+            writeUUID(buf, ((ConnectMessage) msg).getSessionId());
+        } else if (msg instanceof DisconnectMessage) {
+            buf.writeByte(DISCONNECT);
+            writeUUID(buf, ((DisconnectMessage) msg).getSessionId());
+        } else if (msg instanceof JoinLeaveMessage) {
+            JoinLeaveMessage m = (JoinLeaveMessage) msg;
+            buf.writeByte(JOIN_LEAVE);
+            writeUUID(buf, m.getSessionId());
+            writeString(buf, m.getNamespace(), strings);
+            writeString(buf, m.getRoom(), strings);
+        } else if (msg instanceof BulkJoinLeaveMessage) {
+            BulkJoinLeaveMessage m = (BulkJoinLeaveMessage) msg;
+            buf.writeByte(BULK_JOIN_LEAVE);
+            writeUUID(buf, m.getSessionId());
+            writeString(buf, m.getNamespace(), strings);
+            writeVarInt(buf, m.getRooms().size());
+            for (String room : m.getRooms()) {
+                writeString(buf, room, strings);
+            }
+        } else if (msg instanceof DispatchMessage) {
+            DispatchMessage m = (DispatchMessage) msg;
+            buf.writeByte(DISPATCH);
+            writeString(buf, m.getNamespace(), strings);
+            writeString(buf, m.getRoom(), strings);
+            writePacket(buf, m.getPacket(), strings);
+        } else if (msg instanceof NodeRoomsRequestMessage) {
+            buf.writeByte(NODE_ROOMS_REQUEST);
+        } else if (msg instanceof NodeAliveMessage) {
+            buf.writeByte(NODE_ALIVE);
+        } else if (msg instanceof NodeRoomsMessage) {
+            buf.writeByte(NODE_ROOMS);
+            Map<String, Map<String, Set<UUID>>> rooms = ((NodeRoomsMessage) msg).getRooms();
+            writeVarInt(buf, rooms.size());
+            for (Map.Entry<String, Map<String, Set<UUID>>> nsEntry : rooms.entrySet()) {
+                writeString(buf, nsEntry.getKey(), strings);
+                writeVarInt(buf, nsEntry.getValue().size());
+                for (Map.Entry<String, Set<UUID>> roomEntry : nsEntry.getValue().entrySet()) {
+                    writeString(buf, roomEntry.getKey(), strings);
+                    writeVarInt(buf, roomEntry.getValue().size());
+                    for (UUID sessionId : roomEntry.getValue()) {
+                        writeUUID(buf, sessionId);
+                    }
+                }
+            }
+        } else if (msg instanceof BatchMessage) {
+            buf.writeByte(BATCH);
+            List<BatchMessage.Entry> entries = ((BatchMessage) msg).getEntries();
+            writeVarInt(buf, entries.size());
+            for (BatchMessage.Entry entry : entries) {
+                buf.writeByte(entry.getType().ordinal());
+                writeMessage(buf, entry.getMessage(), strings);
+            }
+        } else {
+            buf.writeByte(SERIALIZED);
+            writeSerialized(buf, msg);
+        }
+    }
+
+    private PubSubMessage readMessage(ByteBuf buf, List<String> strings) throws IOException {
+        byte tag = buf.readByte();
+        switch (tag) {
+            case CONNECT:
+                return new ConnectMessage(readUUID(buf));
+            case DISCONNECT:
+                return new DisconnectMessage(readUUID(buf));
+            case JOIN_LEAVE: {
+                UUID sessionId = readUUID(buf);
+                String namespace = readString(buf, strings);
+                String room = readString(buf, strings);
+                return new JoinLeaveMessage(sessionId, room, namespace);
+            }
+            case BULK_JOIN_LEAVE: {
+                UUID sessionId = readUUID(buf);
+                String namespace = readString(buf, strings);
+                int size = readVarInt(buf);
+                Set<String> rooms = new LinkedHashSet<String>(size * 2);
+                for (int i = 0; i < size; i++) {
+                    rooms.add(readString(buf, strings));
+                }
+                return new BulkJoinLeaveMessage(sessionId, rooms, namespace);
+            }
+            case DISPATCH: {
+                String namespace = readString(buf, strings);
+                String room = readString(buf, strings);
+                Packet packet = readPacket(buf, strings);
+                return new DispatchMessage(room, packet, namespace);
+            }
+            case NODE_ROOMS_REQUEST:
+                return new NodeRoomsRequestMessage();
+            case NODE_ALIVE:
+                return new NodeAliveMessage();
+            case NODE_ROOMS: {
+                int nsSize = readVarInt(buf);
+                Map<String, Map<String, Set<UUID>>> rooms = new HashMap<String, Map<String, Set<UUID>>>(nsSize * 2);
+                for (int i = 0; i < nsSize; i++) {
+                    String namespace = readString(buf, strings);
+                    int roomsSize = readVarInt(buf);
+                    Map<String, Set<UUID>> nsRooms = new HashMap<String, Set<UUID>>(roomsSize * 2);
+                    for (int j = 0; j < roomsSize; j++) {
+                        String room = readString(buf, strings);
+                        int sessionsSize = readVarInt(buf);
+                        Set<UUID> sessionIds = new LinkedHashSet<UUID>(sessionsSize * 2);
+                        for (int k = 0; k < sessionsSize; k++) {
+                            sessionIds.add(readUUID(buf));
+                        }
+                        nsRooms.put(room, sessionIds);
+                    }
+                    rooms.put(namespace, nsRooms);
+                }
+                return new NodeRoomsMessage(rooms);
+            }
+            case BATCH: {
+                int size = readVarInt(buf);
+                List<BatchMessage.Entry> entries = new ArrayList<BatchMessage.Entry>(size);
+                for (int i = 0; i < size; i++) {
+                    PubSubType type = PUB_SUB_TYPES[buf.readByte()];
+                    entries.add(new BatchMessage.Entry(type, readMessage(buf, strings)));
+                }
+                return new BatchMessage(entries);
+            }
+            case SERIALIZED:
+                return (PubSubMessage) readSerialized(buf);
+            default:
+                throw new IOException("Unknown message tag: " + tag);
+        }
+    }
+
+    private void writePacket(ByteBuf buf, Packet packet, Map<String, Integer> strings) throws IOException {
+        buf.writeByte(packet.getType().ordinal());
+        writeOrdinal(buf, packet.getSubType());
+        writeOrdinal(buf, packet.getEngineIOVersion());
+        if (packet.getAckId() == null) {
+            buf.writeBoolean(false);
+        } else {
+            buf.writeBoolean(true);
+            buf.writeLong(packet.getAckId());
+        }
+        writeString(buf, packet.getName(), strings);
+        writeString(buf, packet.getNsp(), strings);
+        writeData(buf, packet.getData());
+    }
+
+    private Packet readPacket(ByteBuf buf, List<String> strings) throws IOException {
+        PacketType type = PACKET_TYPES[buf.readByte()];
+        int subType = buf.readByte();
+        int engineIOVersion = buf.readByte();
+        Packet packet = new Packet(type, engineIOVersion == 0 ? null : ENGINE_IO_VERSIONS[engineIOVersion - 1]);
+        if (subType != 0) {
+            packet.setSubType(PACKET_TYPES[subType - 1]);
+        }
+        if (buf.readBoolean()) {
+            packet.setAckId(buf.readLong());
+        }
+        packet.setName(readString(buf, strings));
+        String nsp = readString(buf, strings);
+        if (nsp != null) {
+            packet.setNsp(nsp);
+        }
+        packet.setData(readData(buf, nsp));
+        return packet;
+    }
+
+    private void writeData(ByteBuf buf, Object data) throws IOException {
+        if (data == null) {
+            buf.writeByte(DATA_NULL);
+            return;
+        }
+
+        JsonSupport json = getJsonSupport();
+        buf.writeByte(DATA_JSON);
+        int lengthIndex = buf.writerIndex();
+        buf.writeInt(0);
+        json.writeValue(new ByteBufOutputStream(buf), data);
+        buf.setInt(lengthIndex, buf.writerIndex() - lengthIndex - 4);
+
+        // binary values, including ByteBuf and ByteBuffer, are replaced by placeholders in JSON
+        List<ByteBuf> attachments = json.getAttachments();
+        writeVarInt(buf, attachments.size());
+        for (ByteBuf attachment : attachments) {
+            int length = attachment.readableBytes();
+            writeVarInt(buf, length);
+            buf.writeBytes(attachment, attachment.readerIndex(), length);
+        }
+    }
+
+    private Object readData(ByteBuf buf, String nsp) throws IOException {
+        byte type = buf.readByte();
+        switch (type) {
+            case DATA_NULL:
+                return null;
+            case DATA_JSON: {
+                int length = buf.readInt();
+                ByteBuf slice = buf.readSlice(length);
+                Object data = getJsonSupport().readValue(nsp, slice, Object.class);
+
+                int size = readVarInt(buf);
+                if (size == 0) {
+                    return data;
+                }
+                List<byte[]> arrays = new ArrayList<byte[]>(size);
+                for (int i = 0; i < size; i++) {
+                    byte[] array = new byte[readVarInt(buf)];
+                    buf.readBytes(array);
+                    arrays.add(array);
+                }
+                return resolvePlaceholders(data, arrays);
+            }
+            default:
+                throw new IOException("Unknown data type: " + type);
+        }
+    }
+
+    private JsonSupport getJsonSupport() throws IOException {
+        JsonSupport json = jsonSupport;
+        if (json == null) {
+            throw new IOException("JsonSupport isn't initialized");
+        }
+        return json;
+    }
+
+    /**
+     * Replaces placeholders of binary attachments in parsed JSON by attachments
+     */
+    @SuppressWarnings("unchecked")
+    private Object resolvePlaceholders(Object value, List<byte[]> arrays) throws IOException {
+        if (value instanceof List) {
+            for (ListIterator<Object> iterator = ((List<Object>) value).listIterator(); iterator.hasNext();) {
+                iterator.set(resolvePlaceholders(iterator.next(), arrays));
+            }
+        } else if (value instanceof Map) {
+            Map<Object, Object> map = (Map<Object, Object>) value;
+            if (Boolean.TRUE.equals(map.get("_placeholder")) && map.get("num") instanceof Number) {
+                int num = ((Number) map.get("num")).intValue();
+                if (num < 0 || num >= arrays.size()) {
+                    throw new IOException("Unknown attachment index: " + num);
+                }
+                return arrays.get(num);
+            }
+            for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                entry.setValue(resolvePlaceholders(entry.getValue(), arrays));
+            }
+        }
+        return value;
+    }
+
+    private void writeSerialized(ByteBuf buf, Object value) throws IOException {
+        int lengthIndex = buf.writerIndex();
+        buf.writeInt(0);
+        try (ObjectOutputStream out = new ObjectOutputStream(new ByteBufOutputStream(buf))) {
+            out.writeObject(value);
+        }
+        buf.setInt(lengthIndex, buf.writerIndex() - lengthIndex - 4);
+    }
+
+    private Object readSerialized(ByteBuf buf) throws IOException {
+        int length = buf.readInt();
+        try (ObjectInputStream in = new ObjectInputStream(new ByteBufInputStream(buf.readSlice(length)))) {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void writeOrdinal(ByteBuf buf, Enum<?> value) {
+        buf.writeByte(value == null ? 0 : value.ordinal() + 1);
+    }
+
+    private void writeUUID(ByteBuf buf, UUID uuid) {
+        buf.writeLong(uuid.getMostSignificantBits());
+        buf.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private UUID readUUID(ByteBuf buf) {
+        return new UUID(buf.readLong(), buf.readLong());
+    }
+
+    /**
+     * Writes 0 for null, index + 2 for already written string,
+     * or 1 followed by length and UTF-8 bytes for a new one.
+     */
+    private void writeString(ByteBuf buf, String value, Map<String, Integer> strings) {
+        if (value == null) {
+            writeVarInt(buf, 0);
+            return;
+        }
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeVarInt(buf, index + 2);
+            return;
+        }
+        strings.put(value, strings.size());
+        writeVarInt(buf, 1);
+        writeVarInt(buf, ByteBufUtil.utf8Bytes(value));
+        buf.writeCharSequence(value, CharsetUtil.UTF_8);
+    }
+
+    private String readString(ByteBuf buf, List<String> strings) throws IOException {
+        int ref = readVarInt(buf);
+        if (ref == 0) {
+            return null;
+        }
+        if (ref > 1) {
+            if (ref - 2 >= strings.size()) {
+                throw new IOException("Unknown string reference: " + ref);
+            }
+            return strings.get(ref - 2);
+        }
+        int length = readVarInt(buf);
+        String value = buf.readCharSequence(length, CharsetUtil.UTF_8).toString();
+        strings.add(value);
+        return value;
+    }
+
+    private void writeVarInt(ByteBuf buf, int value) {
+        while ((value & ~0x7F) != 0) {
+            buf.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf.writeByte(value);
+    }
+
+    private int readVarInt(ByteBuf buf) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buf.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+}
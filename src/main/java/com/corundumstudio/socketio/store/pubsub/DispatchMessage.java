@@ -25,6 +25,8 @@ public class DispatchMessage extends PubSubMessage {
     private String namespace;
     private Packet packet;
 
+    private transient volatile byte[] encoded;
+
     public DispatchMessage() {
     }
 
@@ -46,4 +48,12 @@ public class DispatchMessage extends PubSubMessage {
         return room;
     }
 
+    byte[] getEncoded() {
+        return encoded;
+    }
+
+    void setEncoded(byte[] encoded) {
+        this.encoded = encoded;
+    }
+
 }
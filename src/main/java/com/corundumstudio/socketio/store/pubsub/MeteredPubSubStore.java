@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.store.pubsub;
+
+import com.corundumstudio.socketio.metrics.SocketIOMetrics;
+
+/**
+ * Reports time spent in publishing to underlying store
+ */
+final class MeteredPubSubStore implements PubSubStore {
+
+    private final PubSubStore delegate;
+    private final SocketIOMetrics metrics;
+
+    MeteredPubSubStore(PubSubStore delegate, SocketIOMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void publish(PubSubType type, PubSubMessage msg) {
+        long start = System.nanoTime();
+        delegate.publish(type, msg);
+        metrics.pubSubPublished(type, System.nanoTime() - start);
+    }
+
+    @Override
+    public void publish(Long nodeId, PubSubType type, PubSubMessage msg) {
+        long start = System.nanoTime();
+        delegate.publish(nodeId, type, msg);
+        metrics.pubSubPublished(type, System.nanoTime() - start);
+    }
+
+    @Override
+    public <T extends PubSubMessage> void subscribe(PubSubType type, PubSubListener<T> listener, Class<T> clazz) {
+        delegate.subscribe(type, listener, clazz);
+    }
+
+    @Override
+    public <T extends PubSubMessage> void subscribe(Long nodeId, PubSubType type, PubSubListener<T> listener, Class<T> clazz) {
+        delegate.subscribe(nodeId, type, listener, clazz);
+    }
+
+    @Override
+    public void unsubscribe(PubSubType type) {
+        delegate.unsubscribe(type);
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.store.pubsub;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Local room members of node: namespace -&gt; room -&gt; session ids
+ */
+public class NodeRoomsMessage extends PubSubMessage {
+
+    private static final long serialVersionUID = 4301917430628410863L;
+
+    private Map<String, Map<String, Set<UUID>>> rooms;
+
+    public NodeRoomsMessage() {
+    }
+
+    public NodeRoomsMessage(Map<String, Map<String, Set<UUID>>> rooms) {
+        super();
+        this.rooms = rooms;
+    }
+
+    public Map<String, Map<String, Set<UUID>>> getRooms() {
+        return rooms;
+    }
+
+}
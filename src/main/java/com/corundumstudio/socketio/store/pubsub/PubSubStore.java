@@ -24,6 +24,26 @@ public interface PubSubStore {
 
     void unsubscribe(PubSubType type);
 
+    /**
+     * Publishes message to single node only
+     *
+     * @param nodeId - receiver node id
+     * @param type - message type
+     * @param msg - message
+     */
+    void publish(Long nodeId, PubSubType type, PubSubMessage msg);
+
+    /**
+     * Subscribes to messages addressed to node
+     *
+     * @param nodeId - local node id
+     * @param type - message type
+     * @param listener - listener
+     * @param clazz - message class
+     * @param <T> - message type
+     */
+    <T extends PubSubMessage> void subscribe(Long nodeId, PubSubType type, PubSubListener<T> listener, Class<T> clazz);
+
     void shutdown();
 
 }
@@ -17,11 +17,19 @@ package com.corundumstudio.socketio.store.pubsub;
 
 public enum PubSubType {
 
-    CONNECT, DISCONNECT, JOIN, BULK_JOIN, LEAVE, BULK_LEAVE, DISPATCH;
+    CONNECT, DISCONNECT, JOIN, BULK_JOIN, LEAVE, BULK_LEAVE, DISPATCH, NODE_ROOMS_REQUEST, NODE_ROOMS, NODE_ALIVE, BATCH;
 
     @Override
     public String toString() {
         return name().toLowerCase();
     }
 
+    /**
+     * @param nodeId - node id
+     * @return name of topic addressed to single node
+     */
+    public String toString(Long nodeId) {
+        return toString() + ":" + nodeId;
+    }
+
 }
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.store.pubsub;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Nodes which have members of room, collected from join/leave messages of other nodes.
+ * Nodes which stopped sending messages are removed by {@link #removeStaleNodes(long)}.
+ */
+public class RoomNodesRegistry {
+
+    private final ConcurrentMap<RoomKey, ConcurrentMap<Long, Set<UUID>>> roomNodes = PlatformDependent.newConcurrentHashMap();
+
+    private final ConcurrentMap<Long, Long> lastSeen = PlatformDependent.newConcurrentHashMap();
+
+    public void join(Long nodeId, String namespace, String room, UUID sessionId) {
+        touch(nodeId, System.currentTimeMillis());
+        roomNodes.compute(new RoomKey(namespace, room), (key, nodes) -> {
+            if (nodes == null) {
+                nodes = PlatformDependent.newConcurrentHashMap();
+            }
+            nodes.computeIfAbsent(nodeId, id -> Collections.newSetFromMap(PlatformDependent.<UUID, Boolean>newConcurrentHashMap()))
+                    .add(sessionId);
+            return nodes;
+        });
+    }
+
+    public void leave(Long nodeId, String namespace, String room, UUID sessionId) {
+        touch(nodeId, System.currentTimeMillis());
+        roomNodes.computeIfPresent(new RoomKey(namespace, room), (key, nodes) -> {
+            nodes.computeIfPresent(nodeId, (id, sessions) -> {
+                sessions.remove(sessionId);
+                return sessions.isEmpty() ? null : sessions;
+            });
+            return nodes.isEmpty() ? null : nodes;
+        });
+    }
+
+    /**
+     * Marks node as alive
+     *
+     * @param nodeId - node id
+     * @param time - time of last message from node in milliseconds
+     */
+    public void touch(Long nodeId, long time) {
+        lastSeen.put(nodeId, time);
+    }
+
+    /**
+     * Removes node from all rooms
+     *
+     * @param nodeId - node id
+     */
+    public void removeNode(Long nodeId) {
+        lastSeen.remove(nodeId);
+        for (RoomKey key : roomNodes.keySet()) {
+            roomNodes.computeIfPresent(key, (k, nodes) -> {
+                nodes.remove(nodeId);
+                return nodes.isEmpty() ? null : nodes;
+            });
+        }
+    }
+
+    /**
+     * Removes nodes without any message since <code>deadline</code>
+     *
+     * @param deadline - time in milliseconds
+     * @return ids of removed nodes
+     */
+    public Set<Long> removeStaleNodes(long deadline) {
+        Set<Long> removed = Collections.emptySet();
+        for (Map.Entry<Long, Long> entry : lastSeen.entrySet()) {
+            if (entry.getValue() < deadline && lastSeen.remove(entry.getKey(), entry.getValue())) {
+                removeNode(entry.getKey());
+                if (removed.isEmpty()) {
+                    removed = new HashSet<Long>();
+                }
+                removed.add(entry.getKey());
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @param namespace - namespace name
+     * @param room - room name
+     * @return ids of nodes with room members
+     */
+    public Set<Long> getNodes(String namespace, String room) {
+        Map<Long, Set<UUID>> nodes = roomNodes.get(new RoomKey(namespace, room));
+        if (nodes == null) {
+            return Collections.emptySet();
+        }
+        return nodes.keySet();
+    }
+
+    private static final class RoomKey {
+
+        private final String namespace;
+        private final String room;
+
+        RoomKey(String namespace, String room) {
+            this.namespace = namespace;
+            this.room = room;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + ((namespace == null) ? 0 : namespace.hashCode());
+            result = prime * result + ((room == null) ? 0 : room.hashCode());
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null || getClass() != obj.getClass())
+                return false;
+            RoomKey other = (RoomKey) obj;
+            return (namespace == null ? other.namespace == null : namespace.equals(other.namespace))
+                    && (room == null ? other.room == null : room.equals(other.room));
+        }
+
+    }
+
+}
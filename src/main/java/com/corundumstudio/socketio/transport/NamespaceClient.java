@@ -105,7 +105,7 @@ public class NamespaceClient implements SocketIOClient {
             ackCallback.onTimeout();
             return;
         }
-        long index = baseClient.getAckManager().registerAck(getSessionId(), ackCallback);
+        long index = baseClient.getAckManager().registerAck(baseClient, ackCallback);
         packet.setAckId(index);
         send(packet);
     }
@@ -113,12 +113,28 @@ public class NamespaceClient implements SocketIOClient {
     @Override
     public void send(Packet packet) {
         if (!isConnected()) {
+            packet.release();
             return;
         }
 
         baseClient.send(packet.withNsp(namespace.getName(), baseClient.getEngineIOVersion()));
     }
 
+    /**
+     * Queues packet without writing it
+     *
+     * @param packet - packet
+     * @return transport to drain, see {@link ClientHead#queuePacket(Packet)}
+     */
+    public Transport queue(Packet packet) {
+        if (!isConnected()) {
+            packet.release();
+            return null;
+        }
+
+        return baseClient.queuePacket(packet.withNsp(namespace.getName(), baseClient.getEngineIOVersion()));
+    }
+
     public void onDisconnect() {
         disconnected.set(true);
 
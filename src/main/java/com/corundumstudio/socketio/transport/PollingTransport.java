@@ -75,6 +75,7 @@ public class PollingTransport extends ChannelInboundHandlerAdapter {
 
                 String userAgent = req.headers().get(HttpHeaderNames.USER_AGENT);
                 ctx.channel().attr(EncoderHandler.USER_AGENT).set(userAgent);
+                ctx.channel().attr(EncoderHandler.HTTP_KEEP_ALIVE).set(HttpUtil.isKeepAlive(req));
 
                 if (j != null && j.get(0) != null) {
                     Integer index = Integer.valueOf(j.get(0));
@@ -171,6 +172,8 @@ public class PollingTransport extends ChannelInboundHandlerAdapter {
             return;
         }
 
+        // kept alive connection could be reused after previous poll response
+        ctx.channel().attr(EncoderHandler.WRITE_ONCE).set(null);
         client.bindChannel(ctx.channel(), Transport.POLLING);
 
         authorizeHandler.connect(client);
@@ -188,6 +191,9 @@ public class PollingTransport extends ChannelInboundHandlerAdapter {
         if (client != null && client.isTransportChannel(ctx.channel(), Transport.POLLING)) {
             log.debug("channel inactive {}", client.getSessionId());
             client.releasePollingChannel(channel);
+            if (client.isQueueOverflowed() && client.isConnected()) {
+                client.onChannelDisconnect();
+            }
         }
         super.channelInactive(ctx);
     }
@@ -128,6 +128,20 @@ public class WebSocketTransport extends ChannelInboundHandlerAdapter {
         }
     }
 
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        Channel channel = ctx.channel();
+        if (channel.isWritable()) {
+            // resume packets sending paused by EncoderHandler
+            ClientHead client = clientsBox.get(channel);
+            if (client != null && client.isTransportChannel(channel, Transport.WEBSOCKET)
+                    && !client.getPacketsQueue(Transport.WEBSOCKET).isEmpty()) {
+                client.sendPackets(Transport.WEBSOCKET);
+            }
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         final  Channel channel = ctx.channel();
@@ -206,7 +220,7 @@ public class WebSocketTransport extends ChannelInboundHandlerAdapter {
 
         if (client.getCurrentTransport() == Transport.POLLING) {
             SchedulerKey key = new SchedulerKey(SchedulerKey.Type.UPGRADE_TIMEOUT, sessionId);
-            scheduler.schedule(key, new Runnable() {
+            scheduler.schedule(channel.eventLoop(), key, new Runnable() {
                 @Override
                 public void run() {
                     ClientHead clientHead = clientsBox.get(sessionId);
@@ -8,6 +8,7 @@ module netty.socketio {
   exports com.corundumstudio.socketio.misc;
   exports com.corundumstudio.socketio.messages;
   exports com.corundumstudio.socketio.protocol;
+  exports com.corundumstudio.socketio.metrics;
 
   requires static spring.beans;
   requires static spring.core;
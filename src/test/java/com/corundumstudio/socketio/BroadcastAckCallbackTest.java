@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.corundumstudio.socketio.ack.AckRegistry;
+
+import mockit.Mocked;
+
+public class BroadcastAckCallbackTest {
+
+    @Mocked
+    private SocketIOClient client1;
+    @Mocked
+    private SocketIOClient client2;
+
+    private final AtomicInteger allSuccess = new AtomicInteger();
+
+    private BroadcastAckCallback<String> callback(int timeout) {
+        return new BroadcastAckCallback<String>(String.class, timeout) {
+            @Override
+            protected void onAllSuccess() {
+                allSuccess.incrementAndGet();
+            }
+        };
+    }
+
+    @Test
+    public void testAllSuccess() throws Exception {
+        BroadcastAckCallback<String> callback = callback(-1);
+        AckCallback<String> ack1 = callback.createClientCallback(client1);
+        AckCallback<String> ack2 = callback.createClientCallback(client2);
+        callback.loopFinished();
+
+        ack1.onSuccess("1");
+        assertFalse(callback.getFuture().isDone());
+        ack2.onSuccess("2");
+
+        assertEquals(1, allSuccess.get());
+        assertEquals(Collections.emptyList(), callback.getFuture().get());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSharedDeadline() throws Exception {
+        BroadcastAckCallback<String> callback = callback(5);
+        AckRegistry registry1 = new AckRegistry();
+        AckRegistry registry2 = new AckRegistry();
+        long index1 = registry1.register(callback.createClientCallback(client1));
+        Thread.sleep(5);
+        registry2.register(callback.createClientCallback(client2));
+        callback.loopFinished();
+
+        long deadline = registry1.getNextDeadline();
+        assertEquals(deadline, registry2.getNextDeadline());
+
+        ((AckCallback<String>) registry1.remove(index1)).onSuccess("1");
+        assertFalse(callback.getFuture().isDone());
+
+        registry2.expire(deadline);
+        List<SocketIOClient> timedOut = callback.getFuture().get();
+        assertEquals(1, timedOut.size());
+        assertSame(client2, timedOut.get(0));
+        assertEquals(0, allSuccess.get());
+    }
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.ack;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.corundumstudio.socketio.AckCallback;
+
+public class AckRegistryTest {
+
+    private final AtomicInteger timeouts = new AtomicInteger();
+
+    private AckCallback<String> callback(int timeout) {
+        return new AckCallback<String>(String.class, timeout) {
+            @Override
+            public void onSuccess(String result) {
+            }
+
+            @Override
+            public void onTimeout() {
+                timeouts.incrementAndGet();
+            }
+        };
+    }
+
+    @Test
+    public void testRegisterAndRemove() {
+        AckRegistry registry = new AckRegistry();
+        registry.initAckIndex(10);
+        AckCallback<String> callback = callback(-1);
+        long index = registry.register(callback);
+
+        assertEquals(11, index);
+        assertSame(callback, registry.getCallback(index));
+        assertSame(callback, registry.remove(index));
+        assertNull(registry.getCallback(index));
+        assertEquals(Long.MAX_VALUE, registry.getNextDeadline());
+    }
+
+    @Test
+    public void testExpire() {
+        AckRegistry registry = new AckRegistry();
+        long first = registry.register(callback(1));
+        long second = registry.register(callback(60));
+        long deadline = registry.getNextDeadline();
+
+        registry.expire(deadline - 1);
+        assertEquals(0, timeouts.get());
+
+        registry.expire(deadline);
+        assertEquals(1, timeouts.get());
+        assertNull(registry.getCallback(first));
+        assertEquals(deadline + 59000, registry.getNextDeadline(), 1000);
+
+        registry.clear();
+        assertEquals(2, timeouts.get());
+        assertNull(registry.getCallback(second));
+    }
+
+    @Test
+    public void testFailingCallbackDoesNotStopOthers() {
+        AckCallback<String> failing = new AckCallback<String>(String.class, 1) {
+            @Override
+            public void onSuccess(String result) {
+            }
+
+            @Override
+            public void onTimeout() {
+                throw new IllegalStateException("test");
+            }
+        };
+        AckRegistry registry = new AckRegistry();
+        registry.register(failing);
+        registry.register(callback(1));
+        registry.register(failing);
+        registry.register(callback(60));
+
+        // covers all one second callbacks even if registered in different milliseconds
+        registry.expire(registry.getNextDeadline() + 1000);
+        assertEquals(1, timeouts.get());
+
+        registry.register(failing);
+        registry.clear();
+        assertEquals(2, timeouts.get());
+    }
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.annotation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.corundumstudio.socketio.AckRequest;
+import com.corundumstudio.socketio.MultiTypeArgs;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.handler.SocketIOException;
+
+import mockit.Mocked;
+
+public class MethodInvokerTest {
+
+    @Mocked
+    private SocketIOClient client;
+    @Mocked
+    private AckRequest ackRequest;
+
+    public static class Listener {
+
+        SocketIOClient client;
+        AckRequest ackRequest;
+        Object data;
+
+        private void onPrivate(AckRequest ackRequest, int value, SocketIOClient client) {
+            this.ackRequest = ackRequest;
+            this.data = value;
+            this.client = client;
+        }
+
+        public String onPublic(String value) {
+            this.data = value;
+            return value;
+        }
+
+        public void onMany(String a, int b, SocketIOClient client, long c, Object d) {
+            this.client = client;
+            this.data = a + b + c + d;
+        }
+
+        public void onError() {
+            throw new IllegalStateException();
+        }
+
+    }
+
+    private MethodInvoker invoker(Listener listener, String name, int... params) {
+        for (Method method : Listener.class.getDeclaredMethods()) {
+            if (method.getName().equals(name)) {
+                method.setAccessible(true);
+                return new MethodInvoker(listener, method, params);
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    @Test
+    public void testArguments() {
+        Listener listener = new Listener();
+        invoker(listener, "onPrivate", MethodInvoker.ACK_REQUEST, 0, MethodInvoker.CLIENT)
+                .invoke(client, ackRequest, (Object) 42);
+
+        assertSame(client, listener.client);
+        assertSame(ackRequest, listener.ackRequest);
+        assertEquals(42, listener.data);
+
+        invoker(listener, "onPublic", 0).invoke(client, ackRequest, (Object) "test");
+        assertEquals("test", listener.data);
+    }
+
+    @Test
+    public void testMultiTypeArgs() {
+        Listener listener = new Listener();
+        MultiTypeArgs args = new MultiTypeArgs(Arrays.<Object>asList("a", 1, 2L, "d"));
+        invoker(listener, "onMany", 0, 1, MethodInvoker.CLIENT, 2, 3).invoke(client, ackRequest, args);
+
+        assertSame(client, listener.client);
+        assertEquals("a12d", listener.data);
+    }
+
+    @Test
+    public void testException() {
+        try {
+            invoker(new Listener(), "onError").invoke(client, ackRequest, (Object) null);
+            fail();
+        } catch (SocketIOException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.messages.OutPacketMessage;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketEncoder;
+import com.corundumstudio.socketio.protocol.PacketType;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import mockit.Expectations;
+import mockit.Mocked;
+
+public class EncoderHandlerTest {
+
+    @Mocked
+    private ClientHead clientHead;
+
+    private final Queue<Packet> queue = new ConcurrentLinkedQueue<Packet>();
+
+    private final Configuration configuration = new Configuration();
+
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUp() throws Exception {
+        channel = new EmbeddedChannel(new EncoderHandler(configuration, new PacketEncoder(configuration, new JacksonJsonSupport())));
+
+        new Expectations() {{
+            clientHead.getPacketsQueue(Transport.WEBSOCKET); result = queue; minTimes = 0;
+        }};
+    }
+
+    private Packet packet(String name) {
+        Packet packet = new Packet(PacketType.MESSAGE);
+        packet.setSubType(PacketType.EVENT);
+        packet.setNsp("");
+        packet.setName(name);
+        packet.setData(Collections.singletonList("data"));
+        return packet;
+    }
+
+    @Test
+    public void testWebsocketPromiseCompletesAfterFlush() {
+        queue.add(packet("first"));
+        queue.add(packet("second"));
+
+        final AtomicInteger flushedOnComplete = new AtomicInteger(-1);
+        ChannelPromise promise = channel.newPromise();
+        promise.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                flushedOnComplete.set(channel.outboundMessages().size());
+            }
+        });
+        channel.write(new OutPacketMessage(clientHead, Transport.WEBSOCKET), promise);
+
+        assertTrue(promise.isSuccess());
+        // both frames had reached the transport when listeners ran
+        assertEquals(2, flushedOnComplete.get());
+
+        TextWebSocketFrame frame = channel.readOutbound();
+        assertTrue(frame.text().contains("first"));
+        frame.release();
+        frame = channel.readOutbound();
+        assertTrue(frame.text().contains("second"));
+        frame.release();
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    public void testWebsocketEmptyQueue() {
+        ChannelPromise promise = channel.newPromise();
+        channel.write(new OutPacketMessage(clientHead, Transport.WEBSOCKET), promise);
+
+        assertTrue(promise.isSuccess());
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    public void testWebsocketEncodeFailureReleasesData() throws Exception {
+        PacketEncoder failingEncoder = new PacketEncoder(configuration, new JacksonJsonSupport()) {
+            @Override
+            public void encodePacket(Packet packet, ByteBuf buffer, ByteBufAllocator allocator, boolean binary) throws IOException {
+                throw new IOException("encode failed");
+            }
+        };
+        channel = new EmbeddedChannel(new EncoderHandler(configuration, failingEncoder));
+
+        ByteBuf data = Unpooled.copiedBuffer(new byte[] {1, 2, 3});
+        Packet packet = packet("binary");
+        packet.setData(Collections.singletonList(data));
+        packet.retainData();
+        queue.add(packet);
+
+        ChannelPromise promise = channel.newPromise();
+        channel.write(new OutPacketMessage(clientHead, Transport.WEBSOCKET), promise);
+
+        assertFalse(promise.isSuccess());
+        // only the sender's reference is left
+        assertEquals(1, data.refCnt());
+        data.release();
+    }
+
+}
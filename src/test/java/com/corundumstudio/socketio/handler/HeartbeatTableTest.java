@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.ack.AckRegistry;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.concurrent.EventExecutor;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+
+public class HeartbeatTableTest {
+
+    private static final long PING_INTERVAL = 100;
+    private static final long PING_TIMEOUT = 100;
+    // sweeps are invoked directly, embedded event loop doesn't run scheduled ones
+    private static final long SWEEP_INTERVAL = 50;
+    private static final long TIMEOUT = PING_INTERVAL + PING_TIMEOUT + SWEEP_INTERVAL;
+
+    @Mocked
+    private ClientHead client1;
+    @Mocked
+    private ClientHead client2;
+
+    private EmbeddedChannel channel;
+    private HeartbeatTable table;
+
+    @Before
+    public void setUp() {
+        // embedded event loop runs everything on the calling thread
+        channel = new EmbeddedChannel();
+        EventExecutor executor = channel.eventLoop();
+        table = new HeartbeatTable(executor, PING_INTERVAL, PING_TIMEOUT, SWEEP_INTERVAL);
+
+        new Expectations() {{
+            client1.getAckRegistry(); result = new AckRegistry(); minTimes = 0;
+            client2.getAckRegistry(); result = new AckRegistry(); minTimes = 0;
+        }};
+    }
+
+    @After
+    public void tearDown() {
+        table.shutdown();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testRegister() {
+        table.register(client1);
+        table.register(client2);
+
+        new Verifications() {{
+            client1.setHeartbeatSlot(0); times = 1;
+            client2.setHeartbeatSlot(1); times = 1;
+        }};
+    }
+
+    @Test
+    public void testSweepTimeout() throws InterruptedException {
+        table.register(client1);
+        table.sweep();
+        Thread.sleep(TIMEOUT + 50);
+        table.sweep();
+
+        new Verifications() {{
+            client1.onPingTimeout(); times = 1;
+        }};
+    }
+
+    @Test
+    public void testTouchPostponesTimeout() throws InterruptedException {
+        table.register(client1);
+        Thread.sleep(TIMEOUT / 2 + 20);
+        // touch records time of the last sweep
+        table.sweep();
+        table.touch(0);
+        Thread.sleep(TIMEOUT / 2 + 20);
+        table.sweep();
+
+        new Verifications() {{
+            client1.onPingTimeout(); times = 0;
+            client1.onPingTime(); times = 2;
+        }};
+    }
+
+    @Test
+    public void testUnregister() throws InterruptedException {
+        table.register(client1);
+        table.unregister(client1, 0);
+        Thread.sleep(TIMEOUT + 50);
+        table.sweep();
+        // released slot is reused
+        table.register(client2);
+
+        new Verifications() {{
+            client1.onPingTimeout(); times = 0;
+            client1.onPingTime(); times = 0;
+            client2.setHeartbeatSlot(0); times = 1;
+        }};
+    }
+
+    @Test
+    public void testSweepErrorDoesNotSkipOtherClients() throws InterruptedException {
+        new Expectations() {{
+            client1.onPingTimeout(); result = new IllegalStateException("test"); minTimes = 0;
+        }};
+        table.register(client1);
+        table.register(client2);
+        Thread.sleep(TIMEOUT + 50);
+        table.sweep();
+
+        new Verifications() {{
+            client2.onPingTimeout(); times = 1;
+        }};
+    }
+
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketType;
+
+public class PacketsQueueTest {
+
+    @Test
+    public void sizeTracksOfferPollAndRemove() {
+        PacketsQueue queue = new PacketsQueue();
+        Packet first = new Packet(PacketType.MESSAGE);
+        Packet second = new Packet(PacketType.MESSAGE);
+        Packet third = new Packet(PacketType.MESSAGE);
+        queue.add(first);
+        queue.add(second);
+        queue.add(third);
+        assertEquals(3, queue.size());
+
+        assertTrue(queue.remove(second));
+        assertEquals(2, queue.size());
+
+        Iterator<Packet> iterator = queue.iterator();
+        iterator.next();
+        iterator.remove();
+        assertEquals(1, queue.size());
+
+        assertSame(third, queue.poll());
+        assertEquals(0, queue.size());
+        assertTrue(queue.isEmpty());
+    }
+
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.corundumstudio.socketio.Configuration;
+
+public class PollingBatchTest {
+
+    private static final long LATENCY_TARGET = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private PollingBatch createBatch(boolean adaptive) {
+        Configuration configuration = new Configuration();
+        configuration.setPollingBatchSize(10);
+        configuration.setPollingBatchBytes(1000);
+        configuration.setPollingBatchMaxBytes(4000);
+        configuration.setPollingLatencyTarget(200);
+        configuration.setAdaptivePollingBatch(adaptive);
+        return new PollingBatch(configuration);
+    }
+
+    @Test
+    public void testFixed() {
+        PollingBatch batch = createBatch(false);
+        long time = 1;
+        for (int i = 0; i < 5; i++) {
+            batch.onPoll(time);
+            batch.onResponse(time, true);
+            time += 1;
+        }
+        assertEquals(10, batch.getSize());
+        assertEquals(1000, batch.getBytes());
+    }
+
+    @Test
+    public void testGrowsWhileClientKeepsUp() {
+        PollingBatch batch = createBatch(true);
+        long time = 1;
+        batch.onPoll(time);
+        batch.onResponse(time, true);
+
+        batch.onPoll(time += LATENCY_TARGET);
+        assertEquals(20, batch.getSize());
+        assertEquals(2000, batch.getBytes());
+        batch.onResponse(time, true);
+
+        batch.onPoll(time += 1);
+        batch.onResponse(time, true);
+        batch.onPoll(time += 1);
+        assertEquals(40, batch.getSize());
+        assertEquals(4000, batch.getBytes());
+    }
+
+    @Test
+    public void testKeepsSizeWithoutBacklog() {
+        PollingBatch batch = createBatch(true);
+        long time = 1;
+        batch.onPoll(time);
+        batch.onResponse(time, false);
+        batch.onPoll(time += 1);
+        assertEquals(10, batch.getSize());
+    }
+
+    @Test
+    public void testShrinksWhenClientIsLate() {
+        PollingBatch batch = createBatch(true);
+        long time = 1;
+        for (int i = 0; i < 3; i++) {
+            batch.onPoll(time);
+            batch.onResponse(time, true);
+            time += 1;
+        }
+        batch.onPoll(time);
+        assertEquals(4000, batch.getBytes());
+        batch.onResponse(time, true);
+
+        batch.onPoll(time += LATENCY_TARGET + 1);
+        assertEquals(2000, batch.getBytes());
+        batch.onResponse(time, true);
+        batch.onPoll(time += LATENCY_TARGET + 1);
+        batch.onResponse(time, true);
+        batch.onPoll(time += LATENCY_TARGET + 1);
+        assertEquals(10, batch.getSize());
+        assertEquals(1000, batch.getBytes());
+    }
+
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class SerialExecutorTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+    private final ExecutorService otherPool = Executors.newFixedThreadPool(4, r -> new Thread(r, "other"));
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        otherPool.shutdownNow();
+    }
+
+    @Test
+    public void testOrderAndExclusion() throws InterruptedException {
+        SerialExecutor executor = new SerialExecutor(pool);
+        List<Integer> result = Collections.synchronizedList(new ArrayList<Integer>());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        int count = 1000;
+        CountDownLatch latch = new CountDownLatch(count);
+
+        for (int i = 0; i < count; i++) {
+            final int value = i;
+            executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                result.add(value);
+                running.decrementAndGet();
+                latch.countDown();
+            });
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, (int) result.get(i));
+        }
+    }
+
+    @Test
+    public void testOrderAcrossExecutors() throws InterruptedException {
+        SerialExecutor executor = new SerialExecutor(pool);
+        List<Integer> result = Collections.synchronizedList(new ArrayList<Integer>());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger wrongThread = new AtomicInteger();
+        int count = 1000;
+        CountDownLatch latch = new CountDownLatch(count);
+
+        for (int i = 0; i < count; i++) {
+            final int value = i;
+            // switch executor every few tasks
+            final boolean other = (i / 3) % 2 == 1;
+            executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                if (other != "other".equals(Thread.currentThread().getName())) {
+                    wrongThread.incrementAndGet();
+                }
+                result.add(value);
+                running.decrementAndGet();
+                latch.countDown();
+            }, other ? otherPool : pool);
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+        assertEquals(0, wrongThread.get());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, (int) result.get(i));
+        }
+    }
+
+    @Test
+    public void testFailedTask() throws InterruptedException {
+        SerialExecutor executor = new SerialExecutor(pool);
+        CountDownLatch latch = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            throw new IllegalStateException();
+        });
+        executor.execute(latch::countDown);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+}
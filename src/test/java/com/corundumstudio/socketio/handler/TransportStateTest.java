@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.handler;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TransportStateTest {
+
+    @Test
+    public void testDrainScheduledOnce() {
+        TransportState state = new TransportState();
+        assertTrue(state.scheduleDrain());
+        assertFalse(state.scheduleDrain());
+
+        state.onDrain();
+        assertTrue(state.scheduleDrain());
+    }
+
+    @Test
+    public void testChannelUpdateResetsDrain() {
+        TransportState state = new TransportState();
+        assertTrue(state.scheduleDrain());
+
+        state.update(null);
+        assertTrue(state.scheduleDrain());
+    }
+
+}
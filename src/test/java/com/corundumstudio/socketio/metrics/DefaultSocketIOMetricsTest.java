@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.corundumstudio.socketio.Transport;
+
+public class DefaultSocketIOMetricsTest {
+
+    @Test
+    public void testHistogramBuckets() {
+        for (long value : new long[] {0, 1, 7, 8, 9, 15, 16, 100, 1000, 123456789, Long.MAX_VALUE}) {
+            int index = Histogram.bucketIndex(value);
+            long upper = Histogram.bucketUpperBound(index);
+            assertTrue(upper >= value);
+            assertTrue(upper - value <= value / 8);
+            if (index > 0) {
+                assertTrue(Histogram.bucketUpperBound(index - 1) < value);
+            }
+        }
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 0.001);
+        long median = histogram.getValueAtPercentile(50);
+        assertTrue(median >= 500 && median <= 500 * 9 / 8);
+        assertEquals(1000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testClients() {
+        DefaultSocketIOMetrics metrics = new DefaultSocketIOMetrics();
+        metrics.clientConnected(Transport.POLLING);
+        metrics.clientConnected(Transport.POLLING);
+        metrics.transportUpgraded(Transport.POLLING, Transport.WEBSOCKET);
+        metrics.namespaceClientConnected("/chat");
+
+        assertEquals(1, metrics.getConnectedClients(Transport.POLLING));
+        assertEquals(1, metrics.getConnectedClients(Transport.WEBSOCKET));
+        assertEquals(2, metrics.getConnectedClients());
+        assertEquals(1, metrics.getNamespaceClients("/chat"));
+        assertEquals(0, metrics.getNamespaceClients("/"));
+    }
+
+    @Test
+    public void testEventsLimit() {
+        DefaultSocketIOMetrics metrics = new DefaultSocketIOMetrics(2);
+        metrics.packetReceived("", "a", 10);
+        metrics.packetReceived("", "b", 20);
+        metrics.packetReceived("", "c", 30);
+        metrics.packetReceived("", "d", 40);
+        metrics.packetSent("", "a", 5);
+
+        assertEquals(1, metrics.getEventMetrics("a").getPacketsReceived());
+        assertEquals(10, metrics.getEventMetrics("a").getBytesReceived());
+        assertEquals(5, metrics.getEventMetrics("a").getBytesSent());
+        assertNull(metrics.getEventMetrics("c"));
+        assertEquals(2, metrics.getEventMetrics(DefaultSocketIOMetrics.OTHER_EVENTS).getPacketsReceived());
+        assertEquals(70, metrics.getEventMetrics(DefaultSocketIOMetrics.OTHER_EVENTS).getBytesReceived());
+    }
+
+}
@@ -0,0 +1,238 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.namespace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.HandshakeData;
+import com.corundumstudio.socketio.SocketIOClient;
+import com.corundumstudio.socketio.Transport;
+import com.corundumstudio.socketio.handler.ClientHead;
+import com.corundumstudio.socketio.handler.ClientsBox;
+import com.corundumstudio.socketio.messages.OutPacketMessage;
+import com.corundumstudio.socketio.protocol.EngineIOVersion;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketEncoder;
+import com.corundumstudio.socketio.protocol.PacketType;
+import com.corundumstudio.socketio.store.MemoryStoreFactory;
+import com.corundumstudio.socketio.transport.NamespaceClient;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.util.concurrent.EventExecutor;
+import mockit.Mocked;
+import mockit.Verifications;
+
+public class PacketBroadcasterTest {
+
+    @Mocked
+    private EventExecutor loop1;
+    @Mocked
+    private EventExecutor loop2;
+
+    private final Configuration configuration = new Configuration();
+    private final ClientsBox clientsBox = new ClientsBox();
+    private final List<EmbeddedChannel> channels = new ArrayList<EmbeddedChannel>();
+
+    private Namespace namespace;
+    private PacketBroadcaster broadcaster;
+
+    @Before
+    public void setUp() {
+        configuration.setJsonSupport(new JacksonJsonSupport());
+        namespace = new Namespace("", configuration);
+        broadcaster = new PacketBroadcaster("", new PacketEncoder(configuration, configuration.getJsonSupport()));
+    }
+
+    @After
+    public void tearDown() {
+        for (EmbeddedChannel channel : channels) {
+            for (Object msg : channel.outboundMessages()) {
+                ((OutPacketMessage) msg).getClientHead().getPacketsQueue(Transport.WEBSOCKET).forEach(Packet::release);
+            }
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    private static Packet packet() {
+        Packet packet = new Packet(PacketType.MESSAGE, EngineIOVersion.V4);
+        packet.setSubType(PacketType.EVENT);
+        packet.setName("event");
+        packet.setData(Collections.singletonList("data"));
+        return packet;
+    }
+
+    private static HandshakeData handshakeData() {
+        return new HandshakeData(new DefaultHttpHeaders(), Collections.<String, List<String>>emptyMap(),
+                null, "/socket.io/", false);
+    }
+
+    private ClientHead head(final EventExecutor eventLoop) {
+        return new ClientHead(UUID.randomUUID(), null, null, new MemoryStoreFactory(), handshakeData(), clientsBox,
+                Transport.WEBSOCKET, null, configuration, Collections.<String, List<String>>emptyMap()) {
+            @Override
+            public EventExecutor getEventLoop() {
+                if (eventLoop == null) {
+                    return super.getEventLoop();
+                }
+                return eventLoop;
+            }
+        };
+    }
+
+    /**
+     * @return client with bound channel which doesn't consume written messages,
+     * so its drain stays scheduled
+     */
+    private NamespaceClient client(ClientHead head) {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        channels.add(channel);
+        head.bindChannel(channel, Transport.WEBSOCKET);
+        // drop message written by bind
+        channel.outboundMessages().clear();
+        return new NamespaceClient(head, namespace);
+    }
+
+    private int written(NamespaceClient client) {
+        return client.getBaseClient().getPacketsQueue(Transport.WEBSOCKET).size();
+    }
+
+    @Test
+    public void testClientsGroupedByEventLoop() {
+        final NamespaceClient client1 = client(head(loop1));
+        final NamespaceClient client2 = client(head(loop1));
+        final NamespaceClient client3 = client(head(loop2));
+
+        broadcaster.send(Arrays.<SocketIOClient>asList(client1, client2, client3), packet());
+
+        final List<Runnable> tasks1 = new ArrayList<Runnable>();
+        final List<Runnable> tasks2 = new ArrayList<Runnable>();
+        new Verifications() {{
+            loop1.execute(withCapture(tasks1)); times = 1;
+            loop2.execute(withCapture(tasks2)); times = 1;
+        }};
+        // packets are queued by caller, written by event loop tasks
+        assertEquals(1, written(client1));
+        assertEquals(0, channels.get(0).outboundMessages().size());
+
+        tasks1.get(0).run();
+        assertEquals(1, channels.get(0).outboundMessages().size());
+        assertEquals(1, channels.get(1).outboundMessages().size());
+        assertEquals(0, channels.get(2).outboundMessages().size());
+
+        tasks2.get(0).run();
+        assertEquals(1, channels.get(2).outboundMessages().size());
+    }
+
+    @Test
+    public void testScheduledDrainSkipped() {
+        final NamespaceClient client1 = client(head(loop1));
+        final NamespaceClient client2 = client(head(loop1));
+
+        broadcaster.send(Arrays.<SocketIOClient>asList(client1, client2), packet());
+        // previous drain hasn't reached encoder yet, it writes both packets
+        broadcaster.send(Arrays.<SocketIOClient>asList(client1, client2), packet());
+
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        new Verifications() {{
+            loop1.execute(withCapture(tasks)); times = 1;
+        }};
+        assertEquals(2, written(client1));
+        assertEquals(2, written(client2));
+
+        tasks.get(0).run();
+        assertEquals(1, channels.get(0).outboundMessages().size());
+        assertEquals(1, channels.get(1).outboundMessages().size());
+    }
+
+    @Test
+    public void testFullBatchSubmitted() {
+        List<SocketIOClient> clients = new ArrayList<SocketIOClient>();
+        for (int i = 0; i < PacketBroadcaster.MAX_BATCH_SIZE + 1; i++) {
+            clients.add(client(head(loop1)));
+        }
+
+        broadcaster.send(clients, packet());
+
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        new Verifications() {{
+            loop1.execute(withCapture(tasks)); times = 2;
+        }};
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        for (EmbeddedChannel channel : channels) {
+            assertEquals(1, channel.outboundMessages().size());
+        }
+    }
+
+    @Test
+    public void testClientWithoutChannelSentDirectly() {
+        // no channel bound and heartbeat not started, so client has no event loop
+        NamespaceClient client = new NamespaceClient(head(null), namespace);
+
+        broadcaster.send(Collections.<SocketIOClient>singletonList(client), packet());
+
+        new Verifications() {{
+            loop1.execute((Runnable) any); times = 0;
+            loop2.execute((Runnable) any); times = 0;
+        }};
+        assertEquals(1, written(client));
+        client.getBaseClient().getPacketsQueue(Transport.WEBSOCKET).poll().release();
+    }
+
+    @Test
+    public void testDrainErrorDoesNotSkipOtherClients() {
+        ClientHead failingHead = new ClientHead(UUID.randomUUID(), null, null, new MemoryStoreFactory(), handshakeData(), clientsBox,
+                Transport.WEBSOCKET, null, configuration, Collections.<String, List<String>>emptyMap()) {
+            @Override
+            public EventExecutor getEventLoop() {
+                return loop1;
+            }
+
+            @Override
+            public void drainPackets(Transport transport) {
+                throw new IllegalStateException("test");
+            }
+        };
+        NamespaceClient failing = client(failingHead);
+        NamespaceClient client = client(head(loop1));
+
+        broadcaster.send(Arrays.<SocketIOClient>asList(failing, client), packet());
+
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        new Verifications() {{
+            loop1.execute(withCapture(tasks)); times = 1;
+        }};
+        tasks.get(0).run();
+        assertEquals(1, channels.get(1).outboundMessages().size());
+        assertTrue(channels.get(0).outboundMessages().isEmpty());
+    }
+
+}
@@ -17,7 +17,6 @@ package com.corundumstudio.socketio.parser;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
-import java.util.UUID;
 
 import io.netty.buffer.Unpooled;
 import io.netty.util.CharsetUtil;
@@ -28,6 +27,7 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import com.corundumstudio.socketio.AckCallback;
+import com.corundumstudio.socketio.handler.ClientHead;
 import com.corundumstudio.socketio.protocol.Packet;
 import com.corundumstudio.socketio.protocol.PacketType;
 import com.fasterxml.jackson.core.JsonParseException;
@@ -55,7 +55,7 @@ public class DecoderAckPacketTest extends DecoderBaseTest {
 
     private void initExpectations() {
         new Expectations() {{
-            ackManager.getCallback((UUID)any, anyInt);
+            ackManager.getCallback((ClientHead)any, anyLong);
             result = new AckCallback<String>(String.class) {
                 @Override
                 public void onSuccess(String result) {
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.corundumstudio.socketio.namespace.Namespace;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+public class JacksonJsonSupportTest {
+
+    @Test
+    public void testReadAttachments() throws IOException {
+        JacksonJsonSupport jsonSupport = new JacksonJsonSupport();
+        jsonSupport.addEventMapping(Namespace.DEFAULT_NAME, "upload", String.class, byte[].class, ByteBuf.class, Object.class);
+
+        ByteBuf src = Unpooled.copiedBuffer("[\"upload\",\"file\",{\"_placeholder\":true,\"num\":0},"
+                + "{\"num\":1,\"_placeholder\":true},{\"data\":{\"_placeholder\":true,\"num\":1}}]", CharsetUtil.UTF_8);
+        List<ByteBuf> attachments = Arrays.asList(Unpooled.wrappedBuffer(new byte[] {1, 2}),
+                                                    Unpooled.wrappedBuffer(new byte[] {3}));
+
+        Event event = jsonSupport.readValue(Namespace.DEFAULT_NAME, src, Event.class, attachments);
+
+        assertEquals("upload", event.getName());
+        assertEquals("file", event.getArgs().get(0));
+        assertArrayEquals(new byte[] {1, 2}, (byte[]) event.getArgs().get(1));
+        assertArrayEquals(new byte[] {3}, ByteBufUtil.getBytes((ByteBuf) event.getArgs().get(2)));
+        Map<?, ?> map = (Map<?, ?>) event.getArgs().get(3);
+        assertArrayEquals(new byte[] {3}, (byte[]) map.get("data"));
+    }
+
+    @Test
+    public void testWriteAttachments() throws IOException {
+        JacksonJsonSupport jsonSupport = new JacksonJsonSupport();
+        ByteBuf buf = Unpooled.wrappedBuffer(new byte[] {1, 2});
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] {3, 4});
+
+        ByteBuf out = Unpooled.buffer();
+        jsonSupport.writeEvent(new ByteBufOutputStream(out), "upload", Arrays.asList(new byte[] {0}, buf, buffer));
+
+        assertEquals("[\"upload\",{\"_placeholder\":true,\"num\":0},{\"_placeholder\":true,\"num\":1},"
+                + "{\"_placeholder\":true,\"num\":2}]", out.toString(CharsetUtil.UTF_8));
+        List<ByteBuf> attachments = jsonSupport.getAttachments();
+        assertEquals(3, attachments.size());
+        assertSame(buf, attachments.get(1));
+        assertEquals(0, buf.readerIndex());
+        assertArrayEquals(new byte[] {3, 4}, ByteBufUtil.getBytes(attachments.get(2)));
+        assertEquals(1, jsonSupport.getArrays().size());
+        out.release();
+    }
+
+    @Test
+    public void testReadBase64() throws IOException {
+        JacksonJsonSupport jsonSupport = new JacksonJsonSupport();
+        jsonSupport.addEventMapping(Namespace.DEFAULT_NAME, "upload", byte[].class);
+
+        ByteBuf src = Unpooled.copiedBuffer("[\"upload\",\"AQI=\"]", CharsetUtil.UTF_8);
+        Event event = jsonSupport.readValue(Namespace.DEFAULT_NAME, src, Event.class, Collections.<ByteBuf>emptyList());
+
+        assertArrayEquals(new byte[] {1, 2}, (byte[]) event.getArgs().get(0));
+    }
+
+}
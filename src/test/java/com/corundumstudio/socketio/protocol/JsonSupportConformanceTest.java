@@ -0,0 +1,232 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.AckCallback;
+import com.corundumstudio.socketio.MultiTypeAckCallback;
+import com.corundumstudio.socketio.MultiTypeArgs;
+import com.corundumstudio.socketio.namespace.Namespace;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Behaviour expected from any {@link JsonSupport} implementation.
+ * Extend it with {@link #createJsonSupport()} returning implementation to check.
+ */
+public abstract class JsonSupportConformanceTest {
+
+    public static class Bean {
+
+        private String name;
+        private int value;
+
+        public Bean() {
+        }
+
+        public Bean(String name, int value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        public String getName() {
+            return name;
+        }
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getValue() {
+            return value;
+        }
+        public void setValue(int value) {
+            this.value = value;
+        }
+
+    }
+
+    protected JsonSupport jsonSupport;
+
+    protected abstract JsonSupport createJsonSupport();
+
+    @Before
+    public void before() {
+        jsonSupport = createJsonSupport();
+    }
+
+    private ByteBuf heap(String json) {
+        return Unpooled.copiedBuffer(json, CharsetUtil.UTF_8);
+    }
+
+    private ByteBuf direct(String json) {
+        byte[] bytes = json.getBytes(CharsetUtil.UTF_8);
+        return Unpooled.directBuffer(bytes.length).writeBytes(bytes);
+    }
+
+    private Event readEvent(ByteBuf src) throws IOException {
+        try {
+            return jsonSupport.readValue("/chat", src, Event.class);
+        } finally {
+            src.release();
+        }
+    }
+
+    @Test
+    public void testReadEvent() throws IOException {
+        jsonSupport.addEventMapping("/chat", "message", String.class, Integer.class, Bean.class, Map.class, Object.class);
+        String json = "[\"message\",\"text\",5,{\"name\":\"bean\",\"value\":2,\"unknown\":true},{\"a\":1},[1,\"x\",null,1.5]]";
+
+        for (ByteBuf src : Arrays.asList(heap(json), direct(json))) {
+            Event event = readEvent(src);
+            assertEquals("message", event.getName());
+            List<Object> args = event.getArgs();
+            assertEquals(5, args.size());
+            assertEquals("text", args.get(0));
+            assertEquals(5, args.get(1));
+            Bean bean = (Bean) args.get(2);
+            assertEquals("bean", bean.getName());
+            assertEquals(2, bean.getValue());
+            assertEquals(Collections.singletonMap("a", 1), args.get(3));
+            assertEquals(Arrays.asList(1, "x", null, 1.5), args.get(4));
+        }
+    }
+
+    @Test
+    public void testReadEventMapping() throws IOException {
+        jsonSupport.addEventMapping(Namespace.DEFAULT_NAME, "message", String.class);
+
+        // default namespace mapping is used for other namespaces
+        Event event = readEvent(heap("[\"message\",\"a\",\"extra\"]"));
+        assertEquals(Collections.singletonList("a"), event.getArgs());
+
+        event = readEvent(heap("[\"unknown\",\"a\"]"));
+        assertEquals("unknown", event.getName());
+        assertTrue(event.getArgs().isEmpty());
+
+        jsonSupport.removeEventMapping(Namespace.DEFAULT_NAME, "message");
+        event = readEvent(heap("[\"message\",\"a\"]"));
+        assertTrue(event.getArgs().isEmpty());
+    }
+
+    @Test
+    public void testReadValue() throws IOException {
+        ByteBuf src = heap("{\"token\":\"abc\",\"num\":1}");
+        Map<?, ?> auth = jsonSupport.readValue(Namespace.DEFAULT_NAME, src, Map.class);
+        src.release();
+
+        assertEquals("abc", auth.get("token"));
+        assertEquals(1, auth.get("num"));
+    }
+
+    @Test
+    public void testReadAckArgs() throws IOException {
+        AckCallback<Bean> callback = new AckCallback<Bean>(Bean.class) {
+            @Override
+            public void onSuccess(Bean result) {
+            }
+        };
+        ByteBuf src = direct("[{\"name\":\"a\",\"value\":1},\"text\"]");
+        AckArgs args = jsonSupport.readAckArgs(src, callback);
+        src.release();
+
+        assertEquals(2, args.getArgs().size());
+        assertEquals("a", ((Bean) args.getArgs().get(0)).getName());
+        assertEquals("text", args.getArgs().get(1));
+
+        MultiTypeAckCallback multiCallback = new MultiTypeAckCallback(Integer.class, Bean.class) {
+            @Override
+            public void onSuccess(MultiTypeArgs result) {
+            }
+        };
+        src = heap("[1,{\"name\":\"b\",\"value\":2}]");
+        args = jsonSupport.readAckArgs(src, multiCallback);
+        src.release();
+
+        assertEquals(1, args.getArgs().get(0));
+        assertEquals(2, ((Bean) args.getArgs().get(1)).getValue());
+    }
+
+    @Test
+    public void testReadAttachments() throws IOException {
+        jsonSupport.addEventMapping("/chat", "upload", byte[].class, Object.class);
+        ByteBuf src = heap("[\"upload\",{\"_placeholder\":true,\"num\":1},{\"file\":{\"num\":0,\"_placeholder\":true}}]");
+        List<ByteBuf> attachments = Arrays.asList(Unpooled.wrappedBuffer(new byte[] {1}),
+                                                    Unpooled.wrappedBuffer(new byte[] {2, 3}));
+
+        Event event = jsonSupport.readValue("/chat", src, Event.class, attachments);
+        src.release();
+
+        assertArrayEquals(new byte[] {2, 3}, (byte[]) event.getArgs().get(0));
+        assertArrayEquals(new byte[] {1}, (byte[]) ((Map<?, ?>) event.getArgs().get(1)).get("file"));
+    }
+
+    @Test
+    public void testWriteEvent() throws IOException {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("a", 1);
+        map.put("b", Arrays.asList(true, 2.5));
+
+        ByteBuf out = Unpooled.buffer();
+        jsonSupport.writeEvent(new ByteBufOutputStream(out), "message",
+                                Arrays.asList("text", 5, 7L, map, new Bean("bean", 3)));
+
+        assertEquals("[\"message\",\"text\",5,7,{\"a\":1,\"b\":[true,2.5]},{\"name\":\"bean\",\"value\":3}]",
+                        out.toString(CharsetUtil.UTF_8));
+        assertTrue(jsonSupport.getAttachments().isEmpty());
+        out.release();
+    }
+
+    @Test
+    public void testWriteAttachments() throws IOException {
+        ByteBuf buf = Unpooled.wrappedBuffer(new byte[] {2});
+
+        ByteBuf out = Unpooled.buffer();
+        jsonSupport.writeEvent(new ByteBufOutputStream(out), "upload",
+                                Arrays.asList(new byte[] {1}, Collections.singletonMap("file", buf)));
+
+        assertEquals("[\"upload\",{\"_placeholder\":true,\"num\":0},{\"file\":{\"_placeholder\":true,\"num\":1}}]",
+                        out.toString(CharsetUtil.UTF_8));
+        List<ByteBuf> attachments = jsonSupport.getAttachments();
+        assertEquals(2, attachments.size());
+        assertEquals(Unpooled.wrappedBuffer(new byte[] {1}), attachments.get(0));
+        assertEquals(buf, attachments.get(1));
+        assertArrayEquals(new byte[] {1}, jsonSupport.getArrays().get(0));
+        out.release();
+
+        // attachments belong to the last write only
+        out = Unpooled.buffer();
+        jsonSupport.writeValue(new ByteBufOutputStream(out), Collections.singletonList("text"));
+        assertTrue(jsonSupport.getAttachments().isEmpty());
+        out.release();
+    }
+
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.protocol;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Queue;
+
+import org.junit.Test;
+
+import com.corundumstudio.socketio.Configuration;
+
+public class PacketEncoderTest {
+
+    private final PacketEncoder encoder = new PacketEncoder(new Configuration(), new JacksonJsonSupport());
+    private final ByteBufAllocator allocator = UnpooledByteBufAllocator.DEFAULT;
+
+    @Test
+    public void writeDigits() {
+        ByteBuf buf = Unpooled.buffer();
+        PacketEncoder.writeDigits(buf, 0, true);
+        PacketEncoder.writeDigits(buf, 1234567890123L, true);
+        assertEquals("01234567890123", buf.toString(CharsetUtil.US_ASCII));
+
+        buf.clear();
+        PacketEncoder.writeDigits(buf, 105, false);
+        assertArrayEquals(PacketEncoder.longToBytes(105), ByteBufUtil.getBytes(buf));
+        buf.release();
+    }
+
+    @Test
+    public void writeBase64() {
+        ByteBuf out = Unpooled.buffer();
+        for (int length = 0; length < 10; length++) {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = (byte) (i * 97 + 251);
+            }
+            ByteBuf in = Unpooled.wrappedBuffer(bytes);
+
+            out.clear();
+            PacketEncoder.writeBase64(in, out);
+            assertEquals(Base64.getUrlEncoder().encodeToString(bytes), out.toString(CharsetUtil.US_ASCII));
+            assertEquals(PacketEncoder.base64Length(length), out.readableBytes());
+            assertEquals(0, in.readerIndex());
+        }
+        out.release();
+    }
+
+    @Test
+    public void writeUtf8() {
+        ByteBuf in = Unpooled.copiedBuffer("a'\\\u00e9", CharsetUtil.UTF_8);
+        ByteBuf out = Unpooled.buffer();
+
+        PacketEncoder.writeUtf8(in, out, false);
+        // each byte of UTF-8 content is written as latin-1 char
+        assertEquals("a'\\\u00c3\u00a9", out.toString(CharsetUtil.UTF_8));
+
+        out.clear();
+        PacketEncoder.writeUtf8(in, out, true);
+        assertEquals("a\\'\\\\\u00c3\u00a9", out.toString(CharsetUtil.UTF_8));
+        in.release();
+        out.release();
+    }
+
+    private Queue<Packet> pongs(ByteBuf encoded) {
+        Queue<Packet> packets = new ArrayDeque<Packet>();
+        Packet first = new Packet(PacketType.PONG, EngineIOVersion.V4);
+        first.setData("first");
+        packets.add(first);
+
+        Packet shared = new Packet(PacketType.PONG, EngineIOVersion.V4);
+        shared.setEncoded(encoded);
+        packets.add(shared);
+
+        Packet last = new Packet(PacketType.PONG, EngineIOVersion.V4);
+        last.setData("last");
+        packets.add(last);
+        return packets;
+    }
+
+    @Test
+    public void encodePacketChunks() throws IOException {
+        PacketEncoder encoder = new PacketEncoder(new Configuration(), new JacksonJsonSupport());
+        UnpooledByteBufAllocator allocator = UnpooledByteBufAllocator.DEFAULT;
+
+        ByteBuf payload = Unpooled.buffer();
+        encoder.encodePackets(pongs(Unpooled.copiedBuffer("3shared", CharsetUtil.UTF_8)), payload, allocator, 50);
+
+        ByteBuf encoded = Unpooled.copiedBuffer("3shared", CharsetUtil.UTF_8);
+        List<ByteBuf> chunks = new ArrayList<ByteBuf>();
+        encoder.encodePacketChunks(pongs(encoded), chunks, allocator, 50, Integer.MAX_VALUE);
+
+        assertEquals(3, chunks.size());
+        // shared content is sent as is
+        assertSame(encoded, chunks.get(1));
+        assertEquals(payload, Unpooled.wrappedBuffer(chunks.toArray(new ByteBuf[0])));
+
+        // budget is exceeded by first packet
+        Queue<Packet> packets = pongs(Unpooled.copiedBuffer("3shared", CharsetUtil.UTF_8));
+        List<ByteBuf> limited = new ArrayList<ByteBuf>();
+        encoder.encodePacketChunks(packets, limited, allocator, 50, 1);
+        assertEquals(1, limited.size());
+        assertEquals("3first", limited.get(0).toString(CharsetUtil.UTF_8));
+        assertEquals(2, packets.size());
+    }
+
+    @Test
+    public void longToBytes() {
+        assertArrayEquals(new byte[] {0}, PacketEncoder.longToBytes(0));
+        assertArrayEquals(new byte[] {1, 0, 0}, PacketEncoder.longToBytes(100));
+    }
+
+    @Test
+    public void binaryEventHeader() throws IOException {
+        Packet packet = new Packet(PacketType.MESSAGE, EngineIOVersion.V4);
+        packet.setSubType(PacketType.EVENT);
+        packet.setNsp("/chat");
+        packet.setName("file");
+        packet.setData(Arrays.asList(new byte[] {1}, "some text to shift", new byte[] {2}));
+
+        ByteBuf buf = allocator.directBuffer();
+        encoder.encodePacket(packet, buf, allocator, true);
+        assertEquals("452-/chat,[\"file\",{\"_placeholder\":true,\"num\":0},"
+                + "\"some text to shift\",{\"_placeholder\":true,\"num\":1}]", buf.toString(CharsetUtil.UTF_8));
+        assertEquals(2, packet.getAttachments().size());
+        buf.release();
+    }
+
+    @Test
+    public void lengthHeader() throws IOException {
+        Packet packet = new Packet(PacketType.MESSAGE, EngineIOVersion.V3);
+        packet.setSubType(PacketType.EVENT);
+        packet.setName("message");
+        packet.setData(Arrays.asList("hello"));
+
+        ByteBuf buf = allocator.directBuffer();
+        buf.writeByte('x');
+        encoder.encodePacket(packet, buf, allocator, false);
+
+        String content = "42[\"message\",\"hello\"]";
+        ByteBuf expected = Unpooled.buffer();
+        expected.writeByte('x');
+        expected.writeByte(0);
+        expected.writeBytes(PacketEncoder.longToBytes(content.length()));
+        expected.writeByte(0xff);
+        expected.writeCharSequence(content, CharsetUtil.UTF_8);
+        assertArrayEquals(ByteBufUtil.getBytes(expected), ByteBufUtil.getBytes(buf));
+        expected.release();
+        buf.release();
+    }
+
+}
@@ -16,11 +16,17 @@
 package com.corundumstudio.socketio.protocol;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+
+import java.util.Arrays;
+
 import org.junit.Test;
 
 public class PacketTest {
@@ -49,6 +55,44 @@ public class PacketTest {
         assertSame(packet, packet.withNsp("", EngineIOVersion.UNKNOWN));
     }
 
+    @Test
+    public void retainedDuplicateSharesEncodedContent() {
+        Packet packet = createPacket();
+        ByteBuf encoded = Unpooled.copiedBuffer(new byte[]{1, 2, 3});
+        packet.setEncoded(encoded);
+
+        Packet duplicate = packet.retainedDuplicate(EngineIOVersion.V4);
+        assertEquals(EngineIOVersion.V4, duplicate.getEngineIOVersion());
+        assertEquals(packet.getNsp(), duplicate.getNsp());
+        assertPacketCopied(packet, duplicate);
+        assertEquals(2, encoded.refCnt());
+        assertEquals(encoded, duplicate.getEncoded());
+
+        duplicate.release();
+        assertNull(duplicate.getEncoded());
+        packet.release();
+        assertEquals(0, encoded.refCnt());
+    }
+
+    @Test
+    public void retainedDataIsReleasedOnce() {
+        ByteBuf arg = Unpooled.buffer().writeByte(1);
+        Packet packet = new Packet(PacketType.MESSAGE);
+        packet.setData(Arrays.asList("name", arg));
+
+        packet.retainData();
+        packet.retainData();
+        assertEquals(3, arg.refCnt());
+        assertTrue(packet.hasRetainedData());
+
+        packet.releaseData();
+        packet.release();
+        packet.releaseData();
+        assertEquals(1, arg.refCnt());
+        assertFalse(packet.hasRetainedData());
+        arg.release();
+    }
+
     private void assertPacketCopied(Packet oldPacket, Packet newPacket) {
         assertNotSame(newPacket, oldPacket);
         assertEquals(oldPacket.getName(), newPacket.getName());
@@ -57,7 +101,7 @@ public class PacketTest {
         assertEquals(oldPacket.getAckId(), newPacket.getAckId());
         assertEquals(oldPacket.getAttachments().size(), newPacket.getAttachments().size());
         assertSame(oldPacket.getAttachments(), newPacket.getAttachments());
-        assertEquals(oldPacket.getData(), newPacket.getData());
+        assertEquals((Object) oldPacket.getData(), newPacket.getData());
         assertSame(oldPacket.getDataSource(), newPacket.getDataSource());
     }
 
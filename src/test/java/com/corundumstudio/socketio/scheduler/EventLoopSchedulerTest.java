@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.scheduler;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.scheduler.SchedulerKey.Type;
+
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoop;
+
+public class EventLoopSchedulerTest {
+
+    private EventLoop eventLoop;
+    private EventLoopScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        eventLoop = new DefaultEventLoop();
+        scheduler = new EventLoopScheduler(4);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        scheduler.shutdown();
+        eventLoop.shutdownGracefully(0, 1, TimeUnit.SECONDS).await(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testScheduledTaskRunsOnExecutor() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger inLoop = new AtomicInteger();
+        SchedulerKey key = new SchedulerKey(Type.PING_TIMEOUT, UUID.randomUUID());
+        scheduler.schedule(eventLoop, key, new Runnable() {
+            @Override
+            public void run() {
+                if (eventLoop.inEventLoop()) {
+                    inLoop.incrementAndGet();
+                }
+                latch.countDown();
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, inLoop.get());
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        final AtomicInteger counter = new AtomicInteger();
+        SchedulerKey key = new SchedulerKey(Type.ACK_TIMEOUT, UUID.randomUUID());
+        scheduler.schedule(eventLoop, key, new Runnable() {
+            @Override
+            public void run() {
+                counter.incrementAndGet();
+            }
+        }, 100, TimeUnit.MILLISECONDS);
+        scheduler.cancel(key);
+
+        Thread.sleep(300);
+        Assert.assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void testRescheduleReplacesTask() throws InterruptedException {
+        final AtomicInteger first = new AtomicInteger();
+        final AtomicInteger second = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(1);
+        SchedulerKey key = new SchedulerKey(Type.UPGRADE_TIMEOUT, UUID.randomUUID());
+        scheduler.schedule(eventLoop, key, new Runnable() {
+            @Override
+            public void run() {
+                first.incrementAndGet();
+            }
+        }, 50, TimeUnit.MILLISECONDS);
+        scheduler.schedule(eventLoop, key, new Runnable() {
+            @Override
+            public void run() {
+                second.incrementAndGet();
+                latch.countDown();
+            }
+        }, 100, TimeUnit.MILLISECONDS);
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, first.get());
+        Assert.assertEquals(1, second.get());
+    }
+
+    @Test
+    public void testExpiredTaskKeepsRescheduledOne() throws InterruptedException {
+        final AtomicInteger counter = new AtomicInteger();
+        final CountDownLatch expired = new CountDownLatch(1);
+        final SchedulerKey key = new SchedulerKey(Type.PING, UUID.randomUUID());
+        // reschedule under the same key from inside the expiring task
+        scheduler.schedule(eventLoop, key, new Runnable() {
+            @Override
+            public void run() {
+                scheduler.schedule(eventLoop, key, new Runnable() {
+                    @Override
+                    public void run() {
+                        counter.incrementAndGet();
+                    }
+                }, 100, TimeUnit.MILLISECONDS);
+                expired.countDown();
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+
+        Assert.assertTrue(expired.await(5, TimeUnit.SECONDS));
+        // the rescheduled task must still be cancelable by key
+        scheduler.cancel(key);
+
+        Thread.sleep(300);
+        Assert.assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void testShutdownCancelsPendingTasks() throws InterruptedException {
+        final AtomicInteger counter = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            scheduler.schedule(eventLoop, new SchedulerKey(Type.PING, UUID.randomUUID()), new Runnable() {
+                @Override
+                public void run() {
+                    counter.incrementAndGet();
+                }
+            }, 100, TimeUnit.MILLISECONDS);
+        }
+        scheduler.shutdown();
+
+        Thread.sleep(300);
+        Assert.assertEquals(0, counter.get());
+    }
+
+}
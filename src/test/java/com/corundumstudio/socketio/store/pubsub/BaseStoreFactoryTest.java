@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.store.pubsub;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.Configuration;
+import com.corundumstudio.socketio.namespace.NamespacesHub;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketType;
+import com.corundumstudio.socketio.store.Store;
+
+public class BaseStoreFactoryTest {
+
+    private TestStoreFactory factory;
+
+    private static class TestPubSubStore implements PubSubStore {
+
+        private final Map<PubSubType, PubSubListener<PubSubMessage>> listeners = new ConcurrentHashMap<>();
+        private final List<PubSubType> published = new CopyOnWriteArrayList<>();
+        private final List<Long> publishedNodes = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void publish(PubSubType type, PubSubMessage msg) {
+            published.add(type);
+        }
+
+        @Override
+        public void publish(Long nodeId, PubSubType type, PubSubMessage msg) {
+            publishedNodes.add(nodeId);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends PubSubMessage> void subscribe(PubSubType type, PubSubListener<T> listener, Class<T> clazz) {
+            listeners.put(type, (PubSubListener<PubSubMessage>) listener);
+        }
+
+        @Override
+        public <T extends PubSubMessage> void subscribe(Long nodeId, PubSubType type, PubSubListener<T> listener, Class<T> clazz) {
+        }
+
+        @Override
+        public void unsubscribe(PubSubType type) {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        void receive(PubSubType type, PubSubMessage msg, Long nodeId) {
+            msg.setNodeId(nodeId);
+            listeners.get(type).onMessage(msg);
+        }
+
+    }
+
+    private static class TestStoreFactory extends BaseStoreFactory {
+
+        private final TestPubSubStore pubSubStore;
+
+        TestStoreFactory(TestPubSubStore pubSubStore) {
+            this.pubSubStore = pubSubStore;
+        }
+
+        @Override
+        public PubSubStore pubSubStore() {
+            return batching(pubSubStore);
+        }
+
+        @Override
+        public <K, V> Map<K, V> createMap(String name) {
+            return new ConcurrentHashMap<K, V>();
+        }
+
+        @Override
+        public Store createStore(UUID sessionId) {
+            return null;
+        }
+
+    }
+
+    private TestStoreFactory factory(boolean roomRouting) {
+        return factory(roomRouting, 0);
+    }
+
+    private TestStoreFactory factory(boolean roomRouting, int batchSize) {
+        factory = new TestStoreFactory(new TestPubSubStore());
+        factory.setRoomRouting(roomRouting);
+        factory.setPubSubBatchSize(batchSize);
+        factory.setPubSubBatchInterval(60000);
+        factory.init(new NamespacesHub(new Configuration()), null, null);
+        return factory;
+    }
+
+    private DispatchMessage dispatchMessage() {
+        return new DispatchMessage("room", new Packet(PacketType.MESSAGE), "/");
+    }
+
+    @After
+    public void after() {
+        factory.pubSubStore().shutdown();
+        factory.shutdown();
+    }
+
+    @Test
+    public void testDispatchBroadcastWithoutRouting() {
+        TestStoreFactory factory = factory(false);
+        factory.pubSubStore.receive(PubSubType.JOIN, new JoinLeaveMessage(UUID.randomUUID(), "room", "/"), 7L);
+
+        factory.dispatch(dispatchMessage());
+        assertTrue(factory.pubSubStore.published.contains(PubSubType.DISPATCH));
+        assertTrue(factory.pubSubStore.publishedNodes.isEmpty());
+    }
+
+    @Test
+    public void testDispatchRoutedToRoomNodes() {
+        TestStoreFactory factory = factory(true);
+
+        factory.pubSubStore.receive(PubSubType.JOIN, new JoinLeaveMessage(UUID.randomUUID(), "room", "/"), 7L);
+        factory.pubSubStore.receive(PubSubType.JOIN, new JoinLeaveMessage(UUID.randomUUID(), "other", "/"), 8L);
+
+        factory.dispatch(dispatchMessage());
+        assertFalse(factory.pubSubStore.published.contains(PubSubType.DISPATCH));
+        assertEquals(1, factory.pubSubStore.publishedNodes.size());
+        assertEquals(Long.valueOf(7L), factory.pubSubStore.publishedNodes.get(0));
+    }
+
+    @Test
+    public void testJoinNotBatchedWithRouting() {
+        TestStoreFactory factory = factory(true, 100);
+        UUID sessionId = UUID.randomUUID();
+
+        // room members on this node should get dispatches right after join
+        factory.pubSubStore().publish(PubSubType.JOIN, new JoinLeaveMessage(sessionId, "room", "/"));
+        factory.pubSubStore().publish(PubSubType.LEAVE, new JoinLeaveMessage(sessionId, "other", "/"));
+        assertTrue(factory.pubSubStore.published.contains(PubSubType.JOIN));
+        assertFalse(factory.pubSubStore.published.contains(PubSubType.LEAVE));
+
+        factory.pubSubStore.receive(PubSubType.JOIN, new JoinLeaveMessage(sessionId, "room", "/"), 7L);
+        factory.dispatch(dispatchMessage());
+        assertEquals(Arrays.asList(7L), factory.pubSubStore.publishedNodes);
+    }
+
+    @Test
+    public void testCodecChangeResetsBatchingStore() {
+        TestStoreFactory factory = factory(false, 100);
+        PubSubStore store = factory.pubSubStore();
+
+        factory.setPubSubCodec(new BinaryPubSubCodec());
+        assertNotSame(store, factory.pubSubStore());
+    }
+
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.store.pubsub;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchingPubSubStoreTest {
+
+    private final List<PubSubType> types = new CopyOnWriteArrayList<>();
+    private final List<PubSubMessage> messages = new CopyOnWriteArrayList<>();
+
+    private PubSubStore delegate;
+    private BatchingPubSubStore store;
+
+    @Before
+    public void before() {
+        delegate = new PubSubStore() {
+            @Override
+            public void publish(PubSubType type, PubSubMessage msg) {
+                types.add(type);
+                messages.add(msg);
+            }
+
+            @Override
+            public void publish(Long nodeId, PubSubType type, PubSubMessage msg) {
+            }
+
+            @Override
+            public <T extends PubSubMessage> void subscribe(Long nodeId, PubSubType type, PubSubListener<T> listener, Class<T> clazz) {
+            }
+
+            @Override
+            public <T extends PubSubMessage> void subscribe(PubSubType type, PubSubListener<T> listener, Class<T> clazz) {
+            }
+
+            @Override
+            public void unsubscribe(PubSubType type) {
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        };
+        store = new BatchingPubSubStore(delegate, 100, 60000);
+    }
+
+    @After
+    public void after() {
+        store.shutdown();
+    }
+
+    @Test
+    public void testConnectPublishedImmediately() {
+        UUID sessionId = UUID.randomUUID();
+        store.publish(PubSubType.CONNECT, new ConnectMessage(sessionId));
+        assertEquals(Arrays.asList(PubSubType.CONNECT), types);
+
+        store.publish(PubSubType.JOIN, new JoinLeaveMessage(sessionId, "/", "/"));
+        store.publish(PubSubType.JOIN, new JoinLeaveMessage(sessionId, "room", "/"));
+        store.publish(PubSubType.BULK_LEAVE, new BulkJoinLeaveMessage(sessionId, new HashSet<>(Arrays.asList("/", "room")), "/"));
+        store.publish(PubSubType.DISCONNECT, new DisconnectMessage(sessionId));
+        assertEquals(1, types.size());
+        store.flush();
+
+        assertEquals(Arrays.asList(PubSubType.CONNECT, PubSubType.BATCH), types);
+        List<BatchMessage.Entry> entries = ((BatchMessage) messages.get(1)).getEntries();
+        assertEquals(2, entries.size());
+        assertEquals(PubSubType.BULK_LEAVE, entries.get(0).getType());
+        assertEquals(PubSubType.DISCONNECT, entries.get(1).getType());
+    }
+
+    @Test
+    public void testFullBatchPublishedByExecutor() throws InterruptedException {
+        store.shutdown();
+        store = new BatchingPubSubStore(delegate, 2, 60000);
+
+        store.publish(PubSubType.DISCONNECT, new DisconnectMessage(UUID.randomUUID()));
+        store.publish(PubSubType.DISCONNECT, new DisconnectMessage(UUID.randomUUID()));
+        for (int i = 0; i < 100 && types.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList(PubSubType.BATCH), types);
+    }
+
+    @Test
+    public void testJoinNotBatched() {
+        store.shutdown();
+        store = new BatchingPubSubStore(delegate, 100, 60000, false);
+
+        UUID sessionId = UUID.randomUUID();
+        store.publish(PubSubType.LEAVE, new JoinLeaveMessage(sessionId, "room1", "/"));
+        store.publish(PubSubType.LEAVE, new JoinLeaveMessage(sessionId, "room2", "/"));
+        store.publish(PubSubType.JOIN, new JoinLeaveMessage(sessionId, "room1", "/"));
+        assertEquals(Arrays.asList(PubSubType.JOIN), types);
+
+        // pending leave of room1 is dropped, it shouldn't be published after join
+        store.flush();
+        assertEquals(Arrays.asList(PubSubType.JOIN, PubSubType.LEAVE), types);
+        assertEquals("room2", ((JoinLeaveMessage) messages.get(1)).getRoom());
+    }
+
+    @Test
+    public void testLastRoomOperationWins() {
+        UUID sessionId = UUID.randomUUID();
+        store.publish(PubSubType.LEAVE, new JoinLeaveMessage(sessionId, "room1", "/"));
+        store.publish(PubSubType.JOIN, new JoinLeaveMessage(sessionId, "room1", "/"));
+        store.publish(PubSubType.JOIN, new JoinLeaveMessage(sessionId, "room2", "/"));
+        store.publish(PubSubType.LEAVE, new JoinLeaveMessage(sessionId, "room2", "/"));
+        store.flush();
+
+        assertEquals(Arrays.asList(PubSubType.BATCH), types);
+        List<BatchMessage.Entry> entries = ((BatchMessage) messages.get(0)).getEntries();
+        assertEquals(2, entries.size());
+        assertEquals(PubSubType.JOIN, entries.get(0).getType());
+        assertEquals("room1", ((JoinLeaveMessage) entries.get(0).getMessage()).getRoom());
+        assertEquals(PubSubType.LEAVE, entries.get(1).getType());
+        assertEquals("room2", ((JoinLeaveMessage) entries.get(1).getMessage()).getRoom());
+    }
+
+    @Test
+    public void testJoinsMergedToBulk() {
+        UUID sessionId = UUID.randomUUID();
+        store.publish(PubSubType.JOIN, new JoinLeaveMessage(sessionId, "room1", "/"));
+        store.publish(PubSubType.JOIN, new JoinLeaveMessage(sessionId, "room2", "/"));
+        store.flush();
+
+        assertEquals(Arrays.asList(PubSubType.BULK_JOIN), types);
+        BulkJoinLeaveMessage msg = (BulkJoinLeaveMessage) messages.get(0);
+        assertEquals(new HashSet<>(Arrays.asList("room1", "room2")), msg.getRooms());
+    }
+
+    @Test
+    public void testOtherTypesNotBatched() {
+        store.publish(PubSubType.DISPATCH, new DispatchMessage());
+        assertEquals(Arrays.asList(PubSubType.DISPATCH), types);
+    }
+
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.store.pubsub;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.corundumstudio.socketio.protocol.EngineIOVersion;
+import com.corundumstudio.socketio.protocol.JacksonJsonSupport;
+import com.corundumstudio.socketio.protocol.Packet;
+import com.corundumstudio.socketio.protocol.PacketType;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+public class BinaryPubSubCodecTest {
+
+    private final BinaryPubSubCodec codec = new BinaryPubSubCodec();
+
+    @Before
+    public void before() {
+        codec.init(new JacksonJsonSupport());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends PubSubMessage> T roundtrip(T msg) throws IOException {
+        msg.setNodeId(123L);
+        T result = (T) codec.decode(codec.encode(msg));
+        assertEquals(Long.valueOf(123L), result.getNodeId());
+        return result;
+    }
+
+    @Test
+    public void testBulkJoinLeave() throws IOException {
+        UUID sessionId = UUID.randomUUID();
+        Set<String> rooms = new LinkedHashSet<>(Arrays.asList("room1", "/chat", "room2"));
+        BulkJoinLeaveMessage result = roundtrip(new BulkJoinLeaveMessage(sessionId, rooms, "/chat"));
+
+        assertEquals(sessionId, result.getSessionId());
+        assertEquals("/chat", result.getNamespace());
+        assertEquals(rooms, result.getRooms());
+    }
+
+    @Test
+    public void testBatch() throws IOException {
+        UUID sessionId = UUID.randomUUID();
+        BatchMessage result = roundtrip(new BatchMessage(Arrays.asList(
+                new BatchMessage.Entry(PubSubType.CONNECT, new ConnectMessage(sessionId)),
+                new BatchMessage.Entry(PubSubType.JOIN, new JoinLeaveMessage(sessionId, "room", "/")),
+                new BatchMessage.Entry(PubSubType.LEAVE, new JoinLeaveMessage(sessionId, "room", "/")))));
+
+        List<BatchMessage.Entry> entries = result.getEntries();
+        assertEquals(3, entries.size());
+        assertEquals(PubSubType.CONNECT, entries.get(0).getType());
+        assertEquals(sessionId, ((ConnectMessage) entries.get(0).getMessage()).getSessionId());
+        assertEquals(PubSubType.LEAVE, entries.get(2).getType());
+        JoinLeaveMessage leave = (JoinLeaveMessage) entries.get(2).getMessage();
+        assertEquals("room", leave.getRoom());
+        assertEquals("/", leave.getNamespace());
+    }
+
+    @Test
+    public void testNodeRooms() throws IOException {
+        UUID sessionId = UUID.randomUUID();
+        Map<String, Map<String, Set<UUID>>> rooms = Collections.singletonMap("/",
+                Collections.singletonMap("room", Collections.singleton(sessionId)));
+        NodeRoomsMessage result = roundtrip(new NodeRoomsMessage(rooms));
+
+        assertEquals(Collections.singleton(sessionId), result.getRooms().get("/").get("room"));
+    }
+
+    @Test
+    public void testNodeAlive() throws IOException {
+        assertEquals(NodeAliveMessage.class, roundtrip(new NodeAliveMessage()).getClass());
+    }
+
+    @Test
+    public void testDispatch() throws IOException {
+        Packet packet = new Packet(PacketType.MESSAGE, EngineIOVersion.V4);
+        packet.setSubType(PacketType.EVENT);
+        packet.setName("message");
+        packet.setNsp("/chat");
+        packet.setData(Arrays.asList("text", 1));
+        DispatchMessage result = roundtrip(new DispatchMessage("room", packet, "/chat"));
+
+        assertEquals("room", result.getRoom());
+        assertEquals("/chat", result.getNamespace());
+        Packet resultPacket = result.getPacket();
+        assertEquals(PacketType.MESSAGE, resultPacket.getType());
+        assertEquals(PacketType.EVENT, resultPacket.getSubType());
+        assertEquals(EngineIOVersion.V4, resultPacket.getEngineIOVersion());
+        assertEquals("message", resultPacket.getName());
+        assertEquals("/chat", resultPacket.getNsp());
+        assertNull(resultPacket.getAckId());
+        assertEquals(Arrays.asList("text", 1), resultPacket.getData());
+    }
+
+    @Test
+    public void testDispatchWithBinaryData() throws IOException {
+        byte[] bytes = new byte[] {1, 2, 3};
+        Packet packet = new Packet(PacketType.MESSAGE, EngineIOVersion.V3);
+        packet.setSubType(PacketType.EVENT);
+        packet.setName("binary");
+        packet.setData(Arrays.asList(bytes, Collections.singletonMap("nested", Arrays.asList("text", bytes))));
+        DispatchMessage result = roundtrip(new DispatchMessage("room", packet, ""));
+
+        List<Object> data = result.getPacket().getData();
+        assertArrayEquals(bytes, (byte[]) data.get(0));
+        List<?> nested = (List<?>) ((Map<?, ?>) data.get(1)).get("nested");
+        assertEquals("text", nested.get(0));
+        assertArrayEquals(bytes, (byte[]) nested.get(1));
+    }
+
+    @Test
+    public void testDispatchWithByteBufData() throws IOException {
+        byte[] bytes = new byte[] {1, 2, 3};
+        ByteBuf buf = Unpooled.wrappedBuffer(new byte[] {0, 1, 2, 3}).skipBytes(1);
+        Packet packet = new Packet(PacketType.MESSAGE, EngineIOVersion.V3);
+        packet.setSubType(PacketType.EVENT);
+        packet.setName("binary");
+        packet.setData(Arrays.asList(buf, ByteBuffer.wrap(bytes)));
+        DispatchMessage result = roundtrip(new DispatchMessage("room", packet, ""));
+
+        List<Object> data = result.getPacket().getData();
+        assertArrayEquals(bytes, (byte[]) data.get(0));
+        assertArrayEquals(bytes, (byte[]) data.get(1));
+        assertEquals(1, buf.readerIndex());
+    }
+
+    @Test
+    public void testUnknownMessageSerialized() throws IOException {
+        TestMessage result = roundtrip(new TestMessage(new HashSet<>(Arrays.asList("a", "b"))));
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), result.values);
+    }
+
+    private static class TestMessage extends PubSubMessage {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Set<String> values;
+
+        TestMessage(Set<String> values) {
+            this.values = values;
+        }
+
+    }
+
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2012-2023 Nikita Koksharov
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.corundumstudio.socketio.store.pubsub;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class RoomNodesRegistryTest {
+
+    private final RoomNodesRegistry registry = new RoomNodesRegistry();
+
+    @Test
+    public void testJoinLeave() {
+        UUID session1 = UUID.randomUUID();
+        UUID session2 = UUID.randomUUID();
+        registry.join(1L, "/", "room", session1);
+        registry.join(1L, "/", "room", session2);
+        registry.join(2L, "/", "room", UUID.randomUUID());
+        registry.join(2L, "/chat", "room", UUID.randomUUID());
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), registry.getNodes("/", "room"));
+
+        registry.leave(1L, "/", "room", session1);
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), registry.getNodes("/", "room"));
+        registry.leave(1L, "/", "room", session2);
+        assertEquals(Collections.singleton(2L), registry.getNodes("/", "room"));
+    }
+
+    @Test
+    public void testRemoveNode() {
+        registry.join(1L, "/", "room1", UUID.randomUUID());
+        registry.join(1L, "/", "room2", UUID.randomUUID());
+        registry.join(2L, "/", "room2", UUID.randomUUID());
+
+        registry.removeNode(1L);
+        assertTrue(registry.getNodes("/", "room1").isEmpty());
+        assertEquals(Collections.singleton(2L), registry.getNodes("/", "room2"));
+    }
+
+    @Test
+    public void testRemoveStaleNodes() {
+        registry.join(1L, "/", "room", UUID.randomUUID());
+        registry.join(2L, "/", "room", UUID.randomUUID());
+        registry.join(3L, "/", "room", UUID.randomUUID());
+
+        long now = System.currentTimeMillis();
+        registry.touch(1L, now - 30000);
+        registry.touch(2L, now - 30000);
+        registry.touch(2L, now);
+
+        assertEquals(Collections.singleton(1L), registry.removeStaleNodes(now - 10000));
+        assertEquals(new HashSet<>(Arrays.asList(2L, 3L)), registry.getNodes("/", "room"));
+
+        // removed node is added again once it joins
+        registry.join(1L, "/", "room", UUID.randomUUID());
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L, 3L)), registry.getNodes("/", "room"));
+        assertTrue(registry.removeStaleNodes(now - 10000).isEmpty());
+    }
+
+}